@@ -1,3 +1,5 @@
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 import java.awt.image.BufferedImage;
 import java.io.BufferedReader;
 import java.io.InputStreamReader;
@@ -12,6 +14,9 @@ import rna.ativacoes.*;
 import rna.avaliacao.perda.*;
 import rna.otimizadores.*;
 import rna.estrutura.RedeNeural;
+import rna.treinamento.Cancelamento;
+import rna.treinamento.MetricasTreino;
+import rna.treinamento.OuvinteTreino;
 import utilitarios.ged.Dados;
 import utilitarios.ged.Ged;
 import utilitarios.geim.Geim;
@@ -104,8 +109,8 @@ class Main{
    }
 
    public static void treinoEmPainel(RedeNeural rede, BufferedImage imagem, double[][] dadosEntrada, double[][] dadosSaida){
-      final int fps = 600;
-      int epocasPorFrame = 20;
+      //tempo de treino entre cada desenho, independente do tamanho do conjunto de dados
+      final long msPorFrame = 16;
 
       //acelerar o processo de desenho
       //bom em situações de janelas muito grandes
@@ -113,27 +118,51 @@ class Main{
 
       JanelaTreino jt = new JanelaTreino(imagem.getWidth(), imagem.getHeight(), escalaRender);
       jt.desenharTreino(rede, 0, numThreads);
-      
-      //trabalhar com o tempo de renderização baseado no fps
-      double intervaloDesenho = 1000000000/fps;
-      double proximoTempoDesenho = System.nanoTime() + intervaloDesenho;
-      double tempoRestante;
-      
-      int i = 0;
-      while(i < epocas && jt.isVisible()){
-         rede.treinar(dadosEntrada, dadosSaida, epocasPorFrame);
-         jt.desenharTreino(rede, i, numThreads);
-         i += epocasPorFrame;
 
-         try{
-            tempoRestante = proximoTempoDesenho - System.nanoTime();
-            tempoRestante /= 1000000;
-            if(tempoRestante < 0) tempoRestante = 0;
+      //fechar a janela interrompe o treino no fim da amostra atual
+      Cancelamento cancelamento = new Cancelamento();
+      jt.addWindowListener(new WindowAdapter(){
+         @Override
+         public void windowClosing(WindowEvent e){
+            cancelamento.cancelar();
+         }
+      });
+      
+      //o prazo interrompe épocas no meio, então o progresso é contado pelas amostras treinadas
+      long[] amostras = {0};
+      OuvinteTreino progresso = new OuvinteTreino(){
+         private long anteriores = 0;
+
+         @Override
+         public void inicioEpoca(MetricasTreino metricas){
+            anteriores = 0;
+         }
 
-            Thread.sleep((long)tempoRestante);
-            proximoTempoDesenho += intervaloDesenho;
+         @Override
+         public void lote(MetricasTreino metricas){
+            amostras[0] += metricas.amostras() - anteriores;
+            anteriores = metricas.amostras();
+         }
 
-         }catch(Exception e){ }
+         @Override
+         public int intervaloLotes(){
+            return 1;
+         }
+      };
+
+      long total = (long) epocas * dadosEntrada.length;
+      rede.adicionarOuvinte(progresso);
+      try{
+         int i = 0;
+         while(amostras[0] < total && !cancelamento.foiCancelado() && jt.isVisible()){
+            cancelamento.configurarPrazo(msPorFrame);
+            rede.treinar(dadosEntrada, dadosSaida, epocas - i, cancelamento);
+            i = (int)(amostras[0] / dadosEntrada.length);
+
+            jt.desenharTreino(rede, i, numThreads);
+         }
+      }finally{
+         rede.removerOuvinte(progresso);
       }
 
       jt.dispose();
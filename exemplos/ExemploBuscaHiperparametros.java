@@ -0,0 +1,63 @@
+package exemplos;
+
+import java.util.List;
+
+import rna.busca.BuscaHiperparametros;
+import rna.busca.EspacoBusca;
+import rna.busca.ResultadoBusca;
+import rna.otimizadores.*;
+import utilitarios.ged.Dados;
+import utilitarios.ged.Ged;
+
+public class ExemploBuscaHiperparametros{
+
+   public static void main(String[] args){
+      Ged ged = new Ged();
+      ged.limparConsole();
+
+      //carregando dados e tratando
+      Dados iris = ged.lerCsv("./dados/datasets-maiores/iris.csv");
+      ged.removerLinha(iris, 0);
+      int[] shape = ged.shapeDados(iris);
+      ged.categorizar(iris, shape[1]-1);
+
+      //separando dados de treino e validação
+      double[][] dados = ged.dadosParaDouble(iris);
+      ged.embaralharDados(dados);
+      double[][][] treinoTeste = (double[][][]) ged.separarTreinoTeste(dados, 0.25f);
+      int qEntradas = 4;
+      int qSaidas = 3;
+
+      double[][] treinoX = (double[][]) ged.separarDadosEntrada(treinoTeste[0], qEntradas);
+      double[][] treinoY = (double[][]) ged.separarDadosSaida(treinoTeste[0], qSaidas);
+      double[][] testeX = (double[][]) ged.separarDadosEntrada(treinoTeste[1], qEntradas);
+      double[][] testeY = (double[][]) ged.separarDadosSaida(treinoTeste[1], qSaidas);
+
+      //espaço de busca
+      EspacoBusca espaco = new EspacoBusca();
+      espaco.adicionarArquitetura(qEntradas, 4, qSaidas);
+      espaco.adicionarArquitetura(qEntradas, 8, qSaidas);
+      espaco.adicionarArquitetura(qEntradas, 8, 8, qSaidas);
+      espaco.adicionarOtimizador("SGD", tA -> new SGD(tA, 0.9));
+      espaco.adicionarOtimizador("Adam", tA -> new Adam(tA, 0.9, 0.999, 1e-7));
+      espaco.adicionarOtimizador("RMSProp", tA -> new RMSProp(tA, 0.99, 1e-7));
+      espaco.adicionarTaxaAprendizagem(0.01, 0.001, 0.0001);
+      espaco.adicionarAtivacao("tanh", "sigmoid", "leakyrelu");
+      espaco.configurarAtivacaoSaida("sigmoid");
+
+      //81 candidatos, começando com 20 épocas e terminando com até 540
+      BuscaHiperparametros busca = new BuscaHiperparametros(espaco, treinoX, treinoY, testeX, testeY);
+      busca.configurarSeed(1234);
+
+      long t1 = System.nanoTime();
+      List<ResultadoBusca> resultados = busca.grade(20, 540);
+      long t2 = System.nanoTime();
+
+      System.out.println(BuscaHiperparametros.tabela(resultados.subList(0, 10)));
+      System.out.println("Candidatos avaliados: " + resultados.size());
+      System.out.println("Tempo da busca: " + ((t2 - t1) / 1_000_000) + "ms");
+
+      ResultadoBusca melhor = resultados.get(0);
+      System.out.println("Acurácia do melhor: " + melhor.rede().avaliador.acuracia(testeX, testeY));
+   }
+}
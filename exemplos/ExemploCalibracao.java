@@ -0,0 +1,69 @@
+package exemplos;
+
+import java.util.List;
+import java.util.Random;
+
+import rna.ativacoes.Linear;
+import rna.ativacoes.TanH;
+import rna.avaliacao.perda.ErroMedioQuadrado;
+import rna.busca.Calibrador;
+import rna.busca.ResultadoCalibracao;
+import rna.estrutura.RedeNeural;
+import rna.inicializadores.Xavier;
+import rna.otimizadores.Adam;
+
+/**
+ * Calibra o tamanho de lote e a quantidade de threads do cálculo do gradiente de uma
+ * rede, mostra que a segunda calibração da mesma arquitetura usa os resultados guardados
+ * e calibra separadamente o tamanho de lote do treino em lotes.
+ */
+public class ExemploCalibracao{
+
+   public static void main(String[] args){
+      Random random = new Random(1234);
+      double[][] x = new double[4_096][];
+      double[][] y = new double[4_096][];
+      for(int i = 0; i < x.length; i++){
+         double a = random.nextDouble() * 2 - 1;
+         double b = random.nextDouble() * 2 - 1;
+         x[i] = new double[]{a, b};
+         y[i] = new double[]{Math.sin(3 * a) * b};
+      }
+
+      RedeNeural rede = criarRede();
+      Calibrador calibrador = new Calibrador(rede, x, y);
+
+      long t1 = System.nanoTime();
+      List<ResultadoCalibracao> resultados = calibrador.calibrar();
+      long t2 = System.nanoTime();
+
+      System.out.println("Assinatura: " + Calibrador.assinatura(rede));
+      System.out.println(Calibrador.tabela(resultados));
+      System.out.println("Tempo da calibração: " + ((t2 - t1) / 1_000_000) + "ms");
+
+      //outra rede com a mesma arquitetura reaproveita a calibração
+      t1 = System.nanoTime();
+      ResultadoCalibracao melhor = new Calibrador(criarRede(), x, y).calibrar().get(0);
+      t2 = System.nanoTime();
+      System.out.println("Recalibração: " + ((t2 - t1) / 1_000_000) + "ms, melhor: " + melhor);
+
+      //as threads calibradas valem para calcularGradiente() e o treino com LBFGS
+      rede.configurarThreads(melhor.threads());
+
+      //o treino em lotes usa uma única thread e tem a sua própria calibração
+      List<ResultadoCalibracao> lotes = calibrador.calibrarTreinoLote(ExemploCalibracao::criarRede);
+      System.out.println(Calibrador.tabela(lotes));
+
+      rede.treinar(x, y, 5, lotes.get(0).tamLote());
+      System.out.println("Perda após o treino: " + rede.avaliador.erroMedioQuadrado(x, y));
+   }
+
+   static RedeNeural criarRede(){
+      RedeNeural rede = new RedeNeural(new int[]{2, 64, 64, 1});
+      rede.configurarSeed(1234);
+      rede.compilar(new ErroMedioQuadrado(), new Adam(), new Xavier());
+      rede.configurarAtivacao(new TanH());
+      rede.configurarAtivacao(rede.obterCamadaSaida(), new Linear());
+      return rede;
+   }
+}
@@ -0,0 +1,131 @@
+package exemplos;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import rna.ativacoes.Linear;
+import rna.ativacoes.TanH;
+import rna.avaliacao.perda.ErroMedioQuadrado;
+import rna.distribuido.Coordenador;
+import rna.distribuido.Trabalhador;
+import rna.estrutura.RedeNeural;
+import rna.inicializadores.Xavier;
+import rna.otimizadores.Adam;
+
+/**
+ * Treino distribuído em uma única máquina, com cada trabalhador em uma JVM separada
+ * comunicando com o coordenador por TCP no localhost.
+ * <p>
+ *    Sem argumentos, o exemplo treina a mesma rede com 1, 2, 4 e 8 trabalhadores e
+ *    mostra a vazão (amostras por segundo somando todos os trabalhadores) e a eficiência
+ *    de escala em relação a um trabalhador. Com os argumentos
+ *    {@code trabalhador <porta> <id> <total>} o processo executa um trabalhador.
+ * </p>
+ */
+public class ExemploDistribuido{
+
+   static final long seed = 1234;
+   static final int amostras = 16_384;
+   static final int tamLote = 64;
+   static final int epocas = 5;
+
+   public static void main(String[] args) throws Exception{
+      if(args.length == 4 && args[0].equals("trabalhador")){
+         executarTrabalhador(Integer.parseInt(args[1]), Integer.parseInt(args[2]), Integer.parseInt(args[3]));
+         return;
+      }
+
+      int[] quantidades = {1, 2, 4, 8};
+      double vazaoBase = 0;
+      for(int n : quantidades){
+         RedeNeural rede = criarRede();
+         Coordenador coordenador = new Coordenador(rede, 0, n);
+         List<Process> processos = iniciarTrabalhadores(coordenador.porta(), n);
+
+         coordenador.aguardarTrabalhadores();
+         coordenador.treinar(epocas, tamLote);
+         coordenador.encerrar();
+         for(Process processo : processos){
+            processo.waitFor();
+         }
+
+         double vazao = coordenador.amostrasPorSegundo();
+         if(n == 1) vazaoBase = vazao;
+         System.out.printf(
+            "Trabalhadores: %d | amostras/s: %.0f | eficiência: %.1f%% | perda final: %.6f | MB enviados: %.1f%n",
+            n, vazao, 100 * vazao / (n * vazaoBase),
+            coordenador.obterHistoricoPerda().ultimo(),
+            coordenador.bytesEnviados() / 1e6
+         );
+      }
+   }
+
+   /**
+    * Inicia os trabalhadores em novas JVMs usando o mesmo classpath.
+    */
+   static List<Process> iniciarTrabalhadores(int porta, int n) throws Exception{
+      String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+      String classpath = System.getProperty("java.class.path");
+
+      List<Process> processos = new ArrayList<>();
+      for(int i = 0; i < n; i++){
+         ProcessBuilder pb = new ProcessBuilder(
+            java, "-cp", classpath, ExemploDistribuido.class.getName(),
+            "trabalhador", String.valueOf(porta), String.valueOf(i), String.valueOf(n)
+         );
+         pb.inheritIO();
+         processos.add(pb.start());
+      }
+
+      return processos;
+   }
+
+   /**
+    * Gera os dados, separa a parte do trabalhador e participa do treino.
+    */
+   static void executarTrabalhador(int porta, int id, int total){
+      double[][] x = new double[amostras][];
+      double[][] y = new double[amostras][];
+      gerarDados(x, y);
+
+      int qtd = 0;
+      for(int i = id; i < amostras; i += total) qtd++;
+      double[][] parteX = new double[qtd][];
+      double[][] parteY = new double[qtd][];
+      for(int i = id, j = 0; i < amostras; i += total, j++){
+         parteX[j] = x[i];
+         parteY[j] = y[i];
+      }
+
+      RedeNeural rede = criarRede();
+      rede.configurarThreads(1);
+
+      Trabalhador trabalhador = new Trabalhador(rede, parteX, parteY);
+      trabalhador.configurarSeed(seed + id);
+      trabalhador.executar("localhost", porta);
+   }
+
+   /**
+    * Regressão de {@code sin(x1) * cos(x2)}.
+    */
+   static void gerarDados(double[][] x, double[][] y){
+      Random random = new Random(seed);
+      for(int i = 0; i < x.length; i++){
+         double a = random.nextDouble() * 2 * Math.PI - Math.PI;
+         double b = random.nextDouble() * 2 * Math.PI - Math.PI;
+         x[i] = new double[]{a, b};
+         y[i] = new double[]{Math.sin(a) * Math.cos(b)};
+      }
+   }
+
+   static RedeNeural criarRede(){
+      RedeNeural rede = new RedeNeural(new int[]{2, 64, 64, 1});
+      rede.configurarSeed(seed);
+      rede.compilar(new ErroMedioQuadrado(), new Adam(), new Xavier());
+      rede.configurarAtivacao(new TanH());
+      rede.configurarAtivacao(rede.obterCamadaSaida(), new Linear());
+      return rede;
+   }
+}
@@ -0,0 +1,96 @@
+package exemplos;
+
+import rna.ativacoes.Sigmoid;
+import rna.ativacoes.TanH;
+import rna.avaliacao.perda.ErroMedioQuadrado;
+import rna.estrutura.RedeNeural;
+import rna.inicializadores.Xavier;
+import rna.otimizadores.Adam;
+import rna.otimizadores.LAMB;
+import rna.otimizadores.LARS;
+import rna.otimizadores.Otimizador;
+import utilitarios.ged.Dados;
+import utilitarios.ged.Ged;
+
+/**
+ * Compara o tempo até atingir uma perda alvo entre o Adam com lotes pequenos
+ * e os otimizadores LARS e LAMB com lotes grandes.
+ */
+public class ExemploLotesGrandes{
+   static Ged ged = new Ged();
+
+   static final int epocasMaximas = 20_000;
+   static final long seed = 99999;
+
+   public static void main(String[] args){
+      ged.limparConsole();
+
+      //iris com as classes categorizadas
+      Dados iris = ged.lerCsv("./dados/datasets-maiores/iris.csv");
+      ged.removerLinha(iris, 0);
+      ged.categorizar(iris, ged.shapeDados(iris)[1]-1);
+      double[][] dadosIris = ged.dadosParaDouble(iris);
+      double[][] irisX = (double[][]) ged.separarDadosEntrada(dadosIris, 4);
+      double[][] irisY = (double[][]) ged.separarDadosSaida(dadosIris, 3);
+
+      //breast cancer: remove o id e transforma a classe (2 ou 4) em 0 ou 1
+      Dados cancer = ged.lerCsv("./dados/datasets-maiores/breast-cancer-wisconsin.csv");
+      ged.removerColuna(cancer, 0);
+      ged.removerNaoNumericos(cancer);
+      int colClasse = ged.shapeDados(cancer)[1]-1;
+      ged.editarValor(cancer, colClasse, "2", "0");
+      ged.editarValor(cancer, colClasse, "4", "1");
+      for(int i = 0; i < colClasse; i++){
+         cancer.normalizar(i);
+      }
+      double[][] dadosCancer = ged.dadosParaDouble(cancer);
+      double[][] cancerX = (double[][]) ged.separarDadosEntrada(dadosCancer, colClasse);
+      double[][] cancerY = (double[][]) ged.separarDadosSaida(dadosCancer, 1);
+
+      System.out.println("Iris (" + irisX.length + " amostras), perda alvo = 0.02");
+      comparar(irisX, irisY, 0.02);
+
+      System.out.println("\nBreast cancer (" + cancerX.length + " amostras), perda alvo = 0.03");
+      comparar(cancerX, cancerY, 0.03);
+   }
+
+   static void comparar(double[][] x, double[][] y, double perdaAlvo){
+      int loteGrande = x.length;
+
+      executar("Adam  (lote 8)", new Adam(), x, y, 8, perdaAlvo);
+      executar("LARS  (lote " + loteGrande + ")", new LARS(), x, y, loteGrande, perdaAlvo);
+      executar("LAMB  (lote " + loteGrande + ")", new LAMB(), x, y, loteGrande, perdaAlvo);
+   }
+
+   /**
+    * Treina a rede uma época por vez até a perda de treino ficar abaixo do alvo.
+    */
+   static void executar(String nome, Otimizador otimizador, double[][] x, double[][] y, int tamLote, double perdaAlvo){
+      int[] arq = {x[0].length, 16, 16, y[0].length};
+      RedeNeural rede = new RedeNeural(arq);
+      rede.configurarSeed(seed);
+      rede.compilar(new ErroMedioQuadrado(), otimizador, new Xavier());
+      rede.configurarAtivacao(new TanH());
+      rede.configurarAtivacao(rede.obterCamadaSaida(), new Sigmoid());
+
+      int passosPorEpoca = (x.length + tamLote - 1) / tamLote;
+      int epocas = 0;
+      double perda = rede.avaliador.erroMedioQuadrado(x, y);
+
+      long t1 = System.nanoTime();
+      while(perda > perdaAlvo && epocas < epocasMaximas){
+         rede.treinar(x, y, 1, tamLote);
+         perda = rede.avaliador.erroMedioQuadrado(x, y);
+         epocas++;
+      }
+      long t2 = System.nanoTime();
+
+      String status = (perda <= perdaAlvo) ? "atingiu" : "não atingiu";
+      System.out.println(
+         nome + " -> " + status + " | épocas: " + epocas +
+         " | passos do otimizador: " + (epocas * passosPorEpoca) +
+         " | tempo: " + ((t2 - t1) / 1_000_000) + "ms" +
+         " | perda: " + perda
+      );
+   }
+}
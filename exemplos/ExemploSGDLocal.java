@@ -0,0 +1,79 @@
+package exemplos;
+
+import java.util.Random;
+
+import rna.ativacoes.Linear;
+import rna.ativacoes.TanH;
+import rna.avaliacao.perda.ErroMedioQuadrado;
+import rna.distribuido.SGDLocal;
+import rna.estrutura.RedeNeural;
+import rna.inicializadores.Xavier;
+import rna.otimizadores.Adam;
+
+/**
+ * Mede a vazão e a convergência do treino por média de modelos (local SGD) com
+ * 1 a 32 threads e diferentes intervalos de sincronização.
+ * <p>
+ *    A eficiência é a vazão com {@code N} threads dividida por {@code N} vezes a vazão
+ *    com uma thread e o mesmo intervalo. A perda final mostra o custo de convergência
+ *    de sincronizar com menos frequência.
+ * </p>
+ */
+public class ExemploSGDLocal{
+
+   static final long seed = 1234;
+   static final int amostras = 16_384;
+   static final int tamLote = 32;
+   static final int epocas = 3;
+
+   public static void main(String[] args){
+      double[][] x = new double[amostras][];
+      double[][] y = new double[amostras][];
+      gerarDados(x, y);
+
+      int[] threads = {1, 2, 4, 8, 16, 32};
+      int[] sincronizacoes = {1, 8, 32};
+
+      System.out.println("Processadores disponíveis: " + Runtime.getRuntime().availableProcessors());
+      for(int h : sincronizacoes){
+         System.out.println("\nSincronização a cada " + h + " passo(s)");
+         double vazaoBase = 0;
+         for(int n : threads){
+            RedeNeural rede = criarRede();
+            SGDLocal sgd = new SGDLocal(rede, n, ExemploSGDLocal::criarRede);
+            sgd.configurarSincronizacao(h);
+            sgd.configurarSeed(seed);
+            sgd.treinar(x, y, epocas, tamLote);
+
+            double vazao = sgd.amostrasPorSegundo();
+            if(n == 1) vazaoBase = vazao;
+            System.out.printf(
+               "Threads: %-3d | amostras/s: %-9.0f | eficiência: %5.1f%% | perda final: %.6f%n",
+               n, vazao, 100 * vazao / (n * vazaoBase), rede.avaliador.erroMedioQuadrado(x, y)
+            );
+         }
+      }
+   }
+
+   /**
+    * Regressão de {@code sin(x1) * cos(x2)}.
+    */
+   static void gerarDados(double[][] x, double[][] y){
+      Random random = new Random(seed);
+      for(int i = 0; i < x.length; i++){
+         double a = random.nextDouble() * 2 * Math.PI - Math.PI;
+         double b = random.nextDouble() * 2 * Math.PI - Math.PI;
+         x[i] = new double[]{a, b};
+         y[i] = new double[]{Math.sin(a) * Math.cos(b)};
+      }
+   }
+
+   static RedeNeural criarRede(){
+      RedeNeural rede = new RedeNeural(new int[]{2, 64, 64, 1});
+      rede.configurarSeed(seed);
+      rede.compilar(new ErroMedioQuadrado(), new Adam(), new Xavier());
+      rede.configurarAtivacao(new TanH());
+      rede.configurarAtivacao(rede.obterCamadaSaida(), new Linear());
+      return rede;
+   }
+}
@@ -27,14 +27,19 @@ public class EntropiaCruzada extends Perda{
    
    @Override
    public double[] derivada(double[] previsto, double[] real){
+      double[] derivadas = new double[previsto.length];
+      derivada(previsto, real, derivadas);
+      return derivadas;
+   }
+
+   @Override
+   public void derivada(double[] previsto, double[] real, double[] destino){
       verificarDimensoes(previsto.length, real.length);
 
       //adaptação pra minha arquitetura por enquanto
       //não econtrei ainda uma boa resposta de como calcular isso
-      double[] derivadas = new double[previsto.length];
       for(int i = 0; i < previsto.length; i++){
-         derivadas[i] = real[i] - previsto[i];
+         destino[i] = real[i] - previsto[i];
       }
-      return derivadas;
    }
 }
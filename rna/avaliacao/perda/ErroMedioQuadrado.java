@@ -29,13 +29,17 @@ public class ErroMedioQuadrado extends Perda{
    
    @Override
    public double[] derivada(double[] previsto, double[] real){
+      double[] derivadas = new double[previsto.length];
+      derivada(previsto, real, derivadas);
+      return derivadas;
+   }
+
+   @Override
+   public void derivada(double[] previsto, double[] real, double[] destino){
       verificarDimensoes(previsto.length, real.length);
       
-      double[] derivadas = new double[previsto.length];
       for(int i = 0; i < previsto.length; i++){
-         derivadas[i] = 2 * (real[i] - previsto[i]);
+         destino[i] = 2 * (real[i] - previsto[i]);
       }
-
-      return derivadas;
    }
 }
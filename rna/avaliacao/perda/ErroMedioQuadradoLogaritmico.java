@@ -29,12 +29,17 @@ public class ErroMedioQuadradoLogaritmico extends Perda{
    
    @Override
    public double[] derivada(double[] previsto, double[] real){
+      double[] derivadas = new double[previsto.length];
+      derivada(previsto, real, derivadas);
+      return derivadas;
+   }
+
+   @Override
+   public void derivada(double[] previsto, double[] real, double[] destino){
       verificarDimensoes(previsto.length, real.length);
 
-      double[] derivadas = new double[previsto.length];
       for (int i = 0; i < previsto.length; i++) {
-         derivadas[i] = 2 * (Math.log(1 + real[i]) - Math.log(1 + previsto[i]));
+         destino[i] = 2 * (Math.log(1 + real[i]) - Math.log(1 + previsto[i]));
       }
-      return derivadas;
    }
 }
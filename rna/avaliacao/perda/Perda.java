@@ -28,4 +28,20 @@ public abstract class Perda{
          "É necessário implementar o cálculo de derivada."
       );
    }
+
+   /**
+    * Calcula a derivada da função de perda configurada, escrevendo o resultado
+    * no array de destino ao invés de criar um novo.
+    * <p>
+    *    A implementação padrão copia o resultado de {@code derivada(previsto, real)}, 
+    *    funções de perda usadas no treino sem alocações devem sobrescrever este método.
+    * </p>
+    * @param previsto dados previstos.
+    * @param real dados rotulados.
+    * @param destino array que receberá as derivadas, com o mesmo tamanho dos dados previstos.
+    */
+   public void derivada(double[] previsto, double[] real, double[] destino){
+      double[] derivadas = derivada(previsto, real);
+      System.arraycopy(derivadas, 0, destino, 0, derivadas.length);
+   }
 }
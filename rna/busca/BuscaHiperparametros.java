@@ -0,0 +1,347 @@
+package rna.busca;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import rna.avaliacao.perda.Perda;
+import rna.estrutura.RedeNeural;
+
+/**
+ * Busca de hiperparâmetros da {@code Rede Neural} treinando vários candidatos ao
+ * mesmo tempo.
+ * <p>
+ *    Os candidatos são treinados por um grupo de threads de tamanho limitado (por padrão
+ *    a quantidade de processadores), onde cada thread pega o próximo candidato ainda não
+ *    treinado. Todos os candidatos usam os mesmos arrays de dados, que não são copiados
+ *    nem modificados pelo treino.
+ * </p>
+ * <p>
+ *    Para não gastar tempo com candidatos ruins é usada a redução sucessiva (successive
+ *    halving): todos os candidatos começam treinando poucas épocas, são avaliados no
+ *    conjunto de validação e apenas a melhor fração deles continua para a próxima rodada,
+ *    onde o orçamento de épocas é multiplicado pelo fator de redução. As rodadas continuam
+ *    até o orçamento máximo de épocas ou até restar apenas um candidato.
+ * </p>
+ * Exemplo:
+ * <pre>{@code
+ * BuscaHiperparametros busca = new BuscaHiperparametros(espaco, treinoX, treinoY, testeX, testeY);
+ * List<ResultadoBusca> resultados = busca.grade(50, 1_000);
+ * System.out.println(BuscaHiperparametros.tabela(resultados));
+ * }</pre>
+ */
+public class BuscaHiperparametros{
+
+   /**
+    * Espaço de busca.
+    */
+   private EspacoBusca espaco;
+
+   /**
+    * Dados de entrada do treino.
+    */
+   private double[][] treinoX;
+
+   /**
+    * Dados de saída do treino.
+    */
+   private double[][] treinoY;
+
+   /**
+    * Dados de entrada da validação.
+    */
+   private double[][] validacaoX;
+
+   /**
+    * Dados de saída da validação.
+    */
+   private double[][] validacaoY;
+
+   /**
+    * Quantidade de candidatos treinados ao mesmo tempo.
+    */
+   private int threads = Runtime.getRuntime().availableProcessors();
+
+   /**
+    * Fator de redução dos candidatos e de aumento do orçamento a cada rodada.
+    */
+   private int reducao = 3;
+
+   /**
+    * Tamanho do lote de treino, zero treina uma amostra por vez.
+    */
+   private int tamLote = 0;
+
+   /**
+    * Seed usada por todos os candidatos e pela busca aleatória.
+    */
+   private long seed = 0;
+
+   /**
+    * Inicializa uma nova busca de hiperparâmetros.
+    * @param espaco espaço de busca.
+    * @param treinoX dados de entrada do treino.
+    * @param treinoY dados de saída do treino.
+    * @param validacaoX dados de entrada da validação, usados para comparar os candidatos.
+    * @param validacaoY dados de saída da validação.
+    * @throws IllegalArgumentException se os dados forem vazios ou as quantidades de
+    * amostras de entrada e saída forem diferentes.
+    */
+   public BuscaHiperparametros(EspacoBusca espaco, double[][] treinoX, double[][] treinoY, double[][] validacaoX, double[][] validacaoY){
+      if(treinoX.length == 0 || treinoX.length != treinoY.length){
+         throw new IllegalArgumentException(
+            "Os dados de treino devem ter a mesma quantidade de amostras, maior que zero."
+         );
+      }
+      if(validacaoX.length == 0 || validacaoX.length != validacaoY.length){
+         throw new IllegalArgumentException(
+            "Os dados de validação devem ter a mesma quantidade de amostras, maior que zero."
+         );
+      }
+
+      this.espaco = espaco;
+      this.treinoX = treinoX;
+      this.treinoY = treinoY;
+      this.validacaoX = validacaoX;
+      this.validacaoY = validacaoY;
+   }
+
+   /**
+    * Configura a quantidade de candidatos treinados ao mesmo tempo.
+    * <p>
+    *    {@code O valor padrão é a quantidade de processadores disponíveis}
+    * </p>
+    * @param threads quantidade de threads.
+    * @throws IllegalArgumentException se a quantidade de threads for menor que um.
+    */
+   public void configurarThreads(int threads){
+      if(threads < 1){
+         throw new IllegalArgumentException(
+            "A quantidade de threads (" + threads + ") deve ser maior que zero."
+         );
+      }
+
+      this.threads = threads;
+   }
+
+   /**
+    * Configura o fator de redução, onde apenas {@code 1/reducao} dos candidatos passam
+    * para a próxima rodada, que tem o orçamento de épocas multiplicado por {@code reducao}.
+    * <p>
+    *    {@code O valor padrão é 3}
+    * </p>
+    * @param reducao fator de redução.
+    * @throws IllegalArgumentException se o fator for menor que dois.
+    */
+   public void configurarReducao(int reducao){
+      if(reducao < 2){
+         throw new IllegalArgumentException(
+            "O fator de redução (" + reducao + ") deve ser maior que um."
+         );
+      }
+
+      this.reducao = reducao;
+   }
+
+   /**
+    * Configura o tamanho do lote usado no treino dos candidatos.
+    * <p>
+    *    {@code O valor padrão é 0 (treino sem lotes)}
+    * </p>
+    * @param tamLote tamanho do lote, zero treina uma amostra por vez.
+    * @throws IllegalArgumentException se o tamanho do lote for negativo.
+    */
+   public void configurarTamLote(int tamLote){
+      if(tamLote < 0){
+         throw new IllegalArgumentException(
+            "O tamanho do lote (" + tamLote + ") não pode ser negativo."
+         );
+      }
+
+      this.tamLote = tamLote;
+   }
+
+   /**
+    * Configura a seed usada na inicialização e no treino de todos os candidatos e
+    * no sorteio da busca aleatória, tornando a busca reproduzível.
+    * @param seed nova seed.
+    */
+   public void configurarSeed(long seed){
+      this.seed = seed;
+   }
+
+   /**
+    * Executa a busca em grade, avaliando todas as combinações do espaço de busca.
+    * @param epocasIniciais orçamento de épocas da primeira rodada.
+    * @param epocasMaximas orçamento máximo de épocas de um candidato.
+    * @return resultados ordenados do melhor para o pior candidato.
+    */
+   public List<ResultadoBusca> grade(int epocasIniciais, int epocasMaximas){
+      List<Candidato> candidatos = new ArrayList<>();
+      int tamanho = espaco.tamanho();
+      for(int i = 0; i < tamanho; i++){
+         candidatos.add(espaco.candidato(i));
+      }
+
+      return executar(candidatos, epocasIniciais, epocasMaximas);
+   }
+
+   /**
+    * Executa a busca aleatória, sorteando os candidatos do espaço de busca.
+    * @param quantidade quantidade de candidatos sorteados.
+    * @param epocasIniciais orçamento de épocas da primeira rodada.
+    * @param epocasMaximas orçamento máximo de épocas de um candidato.
+    * @return resultados ordenados do melhor para o pior candidato.
+    * @throws IllegalArgumentException se a quantidade de candidatos for menor que um.
+    */
+   public List<ResultadoBusca> aleatoria(int quantidade, int epocasIniciais, int epocasMaximas){
+      if(quantidade < 1){
+         throw new IllegalArgumentException(
+            "A quantidade de candidatos (" + quantidade + ") deve ser maior que zero."
+         );
+      }
+
+      Random random = (seed == 0) ? new Random() : new Random(seed);
+      List<Candidato> candidatos = new ArrayList<>();
+      for(int i = 0; i < quantidade; i++){
+         candidatos.add(espaco.sortear(random));
+      }
+
+      return executar(candidatos, epocasIniciais, epocasMaximas);
+   }
+
+   /**
+    * Treina os candidatos em rodadas de redução sucessiva.
+    */
+   private List<ResultadoBusca> executar(List<Candidato> candidatos, int epocasIniciais, int epocasMaximas){
+      if(epocasIniciais < 1 || epocasMaximas < epocasIniciais){
+         throw new IllegalArgumentException(
+            "O orçamento inicial (" + epocasIniciais + ") deve ser maior que zero e menor " +
+            "ou igual ao orçamento máximo (" + epocasMaximas + ")."
+         );
+      }
+
+      List<ResultadoBusca> resultados = new ArrayList<>();
+      for(Candidato candidato : candidatos){
+         resultados.add(new ResultadoBusca(candidato));
+      }
+
+      Comparator<ResultadoBusca> porPerda = (a, b) -> Double.compare(a.perda, b.perda);
+
+      List<ResultadoBusca> vivos = new ArrayList<>(resultados);
+      int orcamento = epocasIniciais;
+      for(int rodada = 0; ; rodada++){
+         treinarRodada(vivos, orcamento, rodada);
+         vivos.sort(porPerda);
+
+         if(orcamento >= epocasMaximas || vivos.size() == 1) break;
+
+         int manter = Math.max(1, vivos.size() / reducao);
+         vivos = new ArrayList<>(vivos.subList(0, manter));
+         orcamento = (int) Math.min(epocasMaximas, (long) orcamento * reducao);
+      }
+
+      //quem chegou mais longe fica na frente, depois a menor perda
+      resultados.sort(Comparator.comparingInt((ResultadoBusca r) -> -r.rodada).thenComparing(porPerda));
+
+      return resultados;
+   }
+
+   /**
+    * Treina todos os candidatos da rodada até o orçamento de épocas, dividindo os
+    * candidatos entre as threads.
+    */
+   private void treinarRodada(List<ResultadoBusca> vivos, int orcamento, int rodada){
+      AtomicInteger proximo = new AtomicInteger(0);
+      int nThreads = Math.min(threads, vivos.size());
+
+      Thread[] trabalhadores = new Thread[nThreads];
+      for(int t = 0; t < nThreads; t++){
+         trabalhadores[t] = new Thread(() -> {
+            int id;
+            while((id = proximo.getAndIncrement()) < vivos.size()){
+               treinar(vivos.get(id), orcamento, rodada);
+            }
+         });
+         trabalhadores[t].start();
+      }
+
+      try{
+         for(Thread trabalhador : trabalhadores){
+            trabalhador.join();
+         }
+      }catch(InterruptedException e){
+         Thread.currentThread().interrupt();
+         throw new RuntimeException(e);
+      }
+   }
+
+   /**
+    * Continua o treino do candidato até o orçamento de épocas e avalia a perda
+    * de validação.
+    */
+   private void treinar(ResultadoBusca resultado, int orcamento, int rodada){
+      long inicio = System.nanoTime();
+
+      try{
+         if(resultado.rede == null){
+            resultado.rede = resultado.candidato.criarRede(seed);
+            //o paralelismo já está nos candidatos
+            resultado.rede.configurarThreads(1);
+         }
+
+         int epocas = orcamento - resultado.epocas;
+         if(epocas > 0){
+            if(tamLote > 0) resultado.rede.treinar(treinoX, treinoY, epocas, tamLote);
+            else resultado.rede.treinar(treinoX, treinoY, epocas);
+            resultado.epocas = orcamento;
+         }
+
+         resultado.perda = avaliar(resultado.rede);
+
+      }catch(RuntimeException e){
+         resultado.erro = e.toString();
+         resultado.perda = Double.NaN;
+      }
+
+      resultado.rodada = rodada;
+      resultado.tempo += System.nanoTime() - inicio;
+   }
+
+   /**
+    * Calcula a perda média da rede no conjunto de validação.
+    */
+   private double avaliar(RedeNeural rede){
+      Perda perda = rede.obterPerda();
+      double soma = 0;
+      for(int i = 0; i < validacaoX.length; i++){
+         rede.calcularSaida(validacaoX[i]);
+         soma += perda.calcular(rede.obterSaidas(), validacaoY[i]);
+      }
+
+      return soma / validacaoX.length;
+   }
+
+   /**
+    * Monta uma tabela de texto com os resultados da busca, na ordem fornecida.
+    * @param resultados resultados da busca.
+    * @return tabela de resultados.
+    */
+   public static String tabela(List<ResultadoBusca> resultados){
+      StringBuilder sb = new StringBuilder();
+      sb.append(String.format("%-5s %-14s %-8s %-7s %-11s %s%n", "Pos", "Perda", "Épocas", "Rodada", "Tempo(ms)", "Candidato"));
+
+      int pos = 1;
+      for(ResultadoBusca r : resultados){
+         sb.append(String.format(
+            "%-5d %-14.6e %-8d %-7d %-11.1f %s%s%n",
+            pos++, r.perda, r.epocas, r.rodada, r.tempo(), r.candidato,
+            (r.erro == null) ? "" : " (erro: " + r.erro + ")"
+         ));
+      }
+
+      return sb.toString();
+   }
+}
@@ -0,0 +1,411 @@
+package rna.busca;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import rna.estrutura.Camada;
+import rna.estrutura.RedeNeural;
+
+/**
+ * Calibração do tamanho de lote e da quantidade de threads com maior vazão de treino
+ * para uma {@code Rede Neural} na máquina atual.
+ * <p>
+ *    Cada configuração é testada por um tempo curto com lotes da amostra de dados
+ *    fornecida, e a vazão é medida em amostras por segundo. Os resultados valem apenas
+ *    para o caminho de treino medido:
+ * </p>
+ * <ul>
+ *    <li>
+ *       {@link #calibrar()} testa as combinações de tamanho de lote e quantidade de
+ *       threads no cálculo paralelo de {@code RedeNeural.calcularGradiente()}, usado pelo
+ *       treino com o otimizador {@code LBFGS}, pelos trabalhadores do treino distribuído
+ *       e por laços próprios de {@code calcularGradiente()} e {@code aplicarGradiente()}.
+ *       Os testes não alteram os pesos da rede nem o estado do otimizador, e a quantidade
+ *       de threads da rede é restaurada no final.
+ *    </li>
+ *    <li>
+ *       {@link #calibrarTreinoLote(Supplier)} testa os tamanhos de lote no treino em lotes
+ *       de {@code RedeNeural.treinar(entradas, saidas, epocas, tamLote)}, que usa uma única
+ *       thread e ignora {@code configurarThreads()}. Os testes treinam redes novas criadas
+ *       pela fábrica fornecida, sem alterar a rede calibrada.
+ *    </li>
+ * </ul>
+ * <p>
+ *    Os resultados ficam guardados em memória pela assinatura da arquitetura (tamanhos
+ *    das camadas, ativações e bias) e pelas configurações testadas, então calibrar outra
+ *    rede com a mesma arquitetura não repete os testes.
+ * </p>
+ * Exemplo:
+ * <pre>{@code
+ * Calibrador calibrador = new Calibrador(rede, amostraX, amostraY);
+ * List<ResultadoCalibracao> resultados = calibrador.calibrar();
+ * ResultadoCalibracao melhor = resultados.get(0);
+ * rede.configurarThreads(melhor.threads());
+ * 
+ * ResultadoCalibracao melhorLote = calibrador.calibrarTreinoLote(() -> criarRede()).get(0);
+ * rede.treinar(entradas, saidas, epocas, melhorLote.tamLote());
+ * }</pre>
+ */
+public class Calibrador{
+
+   /**
+    * Quantidade de testes de aquecimento antes das medições.
+    */
+   private static final int AQUECIMENTO = 3;
+
+   /**
+    * Resultados de calibrações anteriores, por assinatura.
+    */
+   private static final Map<String, List<ResultadoCalibracao>> cache = new ConcurrentHashMap<>();
+
+   /**
+    * Rede neural calibrada.
+    */
+   private RedeNeural rede;
+
+   /**
+    * Amostra dos dados de entrada.
+    */
+   private double[][] entradas;
+
+   /**
+    * Amostra dos dados de saída.
+    */
+   private double[][] saidas;
+
+   /**
+    * Tamanhos de lote testados.
+    */
+   private int[] tamLotes = {16, 32, 64, 128, 256};
+
+   /**
+    * Quantidades de threads testadas.
+    */
+   private int[] threads = potenciasDeDois(Runtime.getRuntime().availableProcessors());
+
+   /**
+    * Tempo de teste de cada configuração, em nanossegundos.
+    */
+   private long duracao = 100_000_000;
+
+   /**
+    * Inicializa o calibrador para a rede e a amostra de dados fornecidas.
+    * @param rede rede neural compilada.
+    * @param entradas amostra dos dados de entrada.
+    * @param saidas amostra dos dados de saída.
+    * @throws IllegalArgumentException se os dados forem vazios ou as quantidades de
+    * amostras de entrada e saída forem diferentes.
+    */
+   public Calibrador(RedeNeural rede, double[][] entradas, double[][] saidas){
+      if(entradas.length == 0 || entradas.length != saidas.length){
+         throw new IllegalArgumentException(
+            "Os dados devem ter a mesma quantidade de amostras, maior que zero."
+         );
+      }
+
+      this.rede = rede;
+      this.entradas = entradas;
+      this.saidas = saidas;
+   }
+
+   /**
+    * Configura os tamanhos de lote testados.
+    * <p>
+    *    {@code O valor padrão é {16, 32, 64, 128, 256}}
+    * </p>
+    * @param tamLotes tamanhos de lote.
+    * @throws IllegalArgumentException se nenhum tamanho for fornecido ou algum for menor que um.
+    */
+   public void configurarTamLotes(int... tamLotes){
+      verificarCandidatos(tamLotes, "tamanho de lote");
+      this.tamLotes = tamLotes.clone();
+   }
+
+   /**
+    * Configura as quantidades de threads testadas.
+    * <p>
+    *    {@code O valor padrão são as potências de dois até a quantidade de processadores disponíveis}
+    * </p>
+    * @param threads quantidades de threads.
+    * @throws IllegalArgumentException se nenhuma quantidade for fornecida ou alguma for menor que um.
+    */
+   public void configurarThreads(int... threads){
+      verificarCandidatos(threads, "quantidade de threads");
+      this.threads = threads.clone();
+   }
+
+   /**
+    * Configura o tempo de teste de cada configuração.
+    * <p>
+    *    Tempos maiores reduzem o ruído das medições, mas a calibração leva
+    *    {@code lotes * threads * duracao} no total.
+    * </p>
+    * <p>
+    *    {@code O valor padrão é 100 ms}
+    * </p>
+    * @param ms tempo de teste em milissegundos.
+    * @throws IllegalArgumentException se o tempo for menor que um.
+    */
+   public void configurarDuracaoTeste(long ms){
+      if(ms < 1){
+         throw new IllegalArgumentException(
+            "O tempo de teste (" + ms + ") deve ser maior que zero."
+         );
+      }
+
+      this.duracao = ms * 1_000_000;
+   }
+
+   /**
+    * Testa todas as combinações de tamanho de lote e quantidade de threads no cálculo
+    * paralelo do gradiente, ou usa os resultados guardados de uma calibração anterior
+    * com a mesma assinatura.
+    * <p>
+    *    Os resultados valem para {@code RedeNeural.calcularGradiente()} e os modos de
+    *    treino baseados nele, não para o treino em lotes de {@code treinar()}, que usa
+    *    uma única thread (veja {@link #calibrarTreinoLote(Supplier)}).
+    * </p>
+    * <p>
+    *    Combinações com mais threads que amostras no lote não são testadas.
+    * </p>
+    * @return resultados ordenados da maior para a menor vazão.
+    */
+   public List<ResultadoCalibracao> calibrar(){
+      String chave = "gradiente|" + assinatura(rede) + "|" + Arrays.toString(tamLotes) + "|" + Arrays.toString(threads);
+      List<ResultadoCalibracao> resultados = cache.get(chave);
+      if(resultados == null){
+         resultados = executar();
+         cache.put(chave, resultados);
+      }
+
+      return resultados;
+   }
+
+   /**
+    * Testa os tamanhos de lote no treino em lotes de
+    * {@code RedeNeural.treinar(entradas, saidas, epocas, tamLote)}, ou usa os resultados
+    * guardados de uma calibração anterior com a mesma assinatura.
+    * <p>
+    *    Cada tamanho de lote é testado numa rede nova criada pela fábrica, treinando
+    *    repetidamente uma época de um único lote da amostra de dados, então a rede
+    *    calibrada, seus ouvintes e sua validação não são afetados. Como o treino em
+    *    lotes usa uma única thread, a quantidade de threads dos resultados é sempre um.
+    * </p>
+    * @param fabrica fábrica de redes compiladas com a mesma configuração da rede calibrada.
+    * @return resultados ordenados da maior para a menor vazão.
+    * @throws IllegalArgumentException se a fábrica retornar a própria rede calibrada ou
+    * uma rede com quantidade de parâmetros diferente.
+    */
+   public List<ResultadoCalibracao> calibrarTreinoLote(Supplier<RedeNeural> fabrica){
+      String chave = "lote|" + assinatura(rede) + "|" + Arrays.toString(tamLotes);
+      List<ResultadoCalibracao> resultados = cache.get(chave);
+      if(resultados == null){
+         resultados = executarTreinoLote(fabrica);
+         cache.put(chave, resultados);
+      }
+
+      return resultados;
+   }
+
+   /**
+    * Executa os testes de todas as combinações no cálculo do gradiente.
+    */
+   private List<ResultadoCalibracao> executar(){
+      int threadsOriginal = rede.obterThreads();
+      double[] gradiente = new double[rede.obterQuantidadeParametros()];
+      List<ResultadoCalibracao> resultados = new ArrayList<>();
+
+      try{
+         //aquecimento do compilador just-in-time antes das medições
+         for(int i = 0; i < AQUECIMENTO; i++){
+            rede.configurarThreads(1);
+            testar(new ResultadoCalibracao(tamLotes[0], 1), (x, y) -> rede.calcularGradiente(x, y, gradiente));
+         }
+
+         for(int tamLote : tamLotes){
+            for(int n : threads){
+               if(n > tamLote) continue;
+
+               ResultadoCalibracao resultado = new ResultadoCalibracao(tamLote, n);
+               rede.configurarThreads(n);
+               testar(resultado, (x, y) -> rede.calcularGradiente(x, y, gradiente));
+               resultados.add(resultado);
+            }
+         }
+
+      }finally{
+         rede.configurarThreads(threadsOriginal);
+      }
+
+      return ordenar(resultados);
+   }
+
+   /**
+    * Executa os testes de todos os tamanhos de lote no treino em lotes.
+    */
+   private List<ResultadoCalibracao> executarTreinoLote(Supplier<RedeNeural> fabrica){
+      List<ResultadoCalibracao> resultados = new ArrayList<>();
+
+      RedeNeural teste = criarRede(fabrica);
+      for(int i = 0; i < AQUECIMENTO; i++){
+         int tamLote = tamLotes[0];
+         testar(new ResultadoCalibracao(tamLote, 1), (x, y) -> teste.treinar(x, y, 1, tamLote));
+      }
+
+      for(int tamLote : tamLotes){
+         RedeNeural copia = criarRede(fabrica);
+         ResultadoCalibracao resultado = new ResultadoCalibracao(tamLote, 1);
+         testar(resultado, (x, y) -> copia.treinar(x, y, 1, tamLote));
+         resultados.add(resultado);
+      }
+
+      return ordenar(resultados);
+   }
+
+   /**
+    * Cria uma rede de teste pela fábrica, verificando que ela é compatível com a
+    * rede calibrada.
+    */
+   private RedeNeural criarRede(Supplier<RedeNeural> fabrica){
+      RedeNeural nova = fabrica.get();
+      if(nova == rede || nova.obterQuantidadeParametros() != rede.obterQuantidadeParametros()){
+         throw new IllegalArgumentException(
+            "A fábrica deve criar uma nova rede com a mesma quantidade de parâmetros " +
+            "da rede calibrada (" + rede.obterQuantidadeParametros() + ")."
+         );
+      }
+
+      return nova;
+   }
+
+   /**
+    * Passo medido da calibração, processando um lote completo.
+    */
+   private interface Passo{
+      void executar(double[][] loteX, double[][] loteY);
+   }
+
+   /**
+    * Executa o passo com lotes consecutivos da amostra de dados até o tempo de
+    * teste acabar, depois de um passo de aquecimento não medido.
+    */
+   private void testar(ResultadoCalibracao resultado, Passo passo){
+      int tamLote = resultado.tamLote;
+      double[][] loteX = new double[tamLote][];
+      double[][] loteY = new double[tamLote][];
+      int inicio = 0;
+
+      inicio = preencherLote(loteX, loteY, inicio);
+      passo.executar(loteX, loteY);
+
+      long comeco = System.nanoTime();
+      long tempo;
+      do{
+         inicio = preencherLote(loteX, loteY, inicio);
+         passo.executar(loteX, loteY);
+         resultado.passos++;
+         tempo = System.nanoTime() - comeco;
+      }while(tempo < duracao);
+
+      resultado.tempo = tempo;
+   }
+
+   /**
+    * Ordena os resultados da maior para a menor vazão.
+    */
+   private static List<ResultadoCalibracao> ordenar(List<ResultadoCalibracao> resultados){
+      resultados.sort((a, b) -> Double.compare(b.amostrasPorSegundo(), a.amostrasPorSegundo()));
+      return Collections.unmodifiableList(resultados);
+   }
+
+   /**
+    * Preenche o lote com as próximas amostras, voltando ao início da amostra de dados
+    * quando necessário.
+    * @return início do próximo lote.
+    */
+   private int preencherLote(double[][] loteX, double[][] loteY, int inicio){
+      for(int i = 0; i < loteX.length; i++){
+         loteX[i] = entradas[inicio];
+         loteY[i] = saidas[inicio];
+         inicio = (inicio + 1) % entradas.length;
+      }
+
+      return inicio;
+   }
+
+   /**
+    * Retorna a assinatura da arquitetura da rede, formada pelos tamanhos das camadas,
+    * pela ativação de cada camada e pelo uso de bias.
+    * @param rede rede neural compilada.
+    * @return assinatura da rede.
+    */
+   public static String assinatura(RedeNeural rede){
+      StringBuilder sb = new StringBuilder(Arrays.toString(rede.obterArquitetura()));
+      for(Camada camada : rede.obterCamadas()){
+         sb.append(' ').append(camada.obterAtivacao().getClass().getSimpleName());
+      }
+      sb.append(rede.obterCamadaSaida().temBias() ? " bias" : " sem bias");
+
+      return sb.toString();
+   }
+
+   /**
+    * Descarta os resultados guardados de calibrações anteriores.
+    */
+   public static void limparCache(){
+      cache.clear();
+   }
+
+   /**
+    * Monta uma tabela de texto com os resultados da calibração, na ordem fornecida.
+    * @param resultados resultados da calibração.
+    * @return tabela de resultados.
+    */
+   public static String tabela(List<ResultadoCalibracao> resultados){
+      StringBuilder sb = new StringBuilder();
+      sb.append(String.format("%-5s %-8s %-8s %-8s %s%n", "Pos", "Lote", "Threads", "Passos", "Amostras/s"));
+
+      int pos = 1;
+      for(ResultadoCalibracao r : resultados){
+         sb.append(String.format(
+            "%-5d %-8d %-8d %-8d %.0f%n",
+            pos++, r.tamLote, r.threads, r.passos, r.amostrasPorSegundo()
+         ));
+      }
+
+      return sb.toString();
+   }
+
+   /**
+    * Verifica os valores candidatos de uma configuração.
+    */
+   private static void verificarCandidatos(int[] valores, String nome){
+      if(valores.length == 0){
+         throw new IllegalArgumentException("Deve haver ao menos um valor de " + nome + ".");
+      }
+      for(int valor : valores){
+         if(valor < 1){
+            throw new IllegalArgumentException(
+               "O valor de " + nome + " (" + valor + ") deve ser maior que zero."
+            );
+         }
+      }
+   }
+
+   /**
+    * Retorna as potências de dois menores ou iguais ao limite.
+    */
+   private static int[] potenciasDeDois(int limite){
+      int[] valores = new int[32 - Integer.numberOfLeadingZeros(limite)];
+      for(int i = 0; i < valores.length; i++){
+         valores[i] = 1 << i;
+      }
+
+      return valores;
+   }
+}
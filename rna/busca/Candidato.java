@@ -0,0 +1,107 @@
+package rna.busca;
+
+import java.util.Arrays;
+
+import rna.estrutura.RedeNeural;
+
+/**
+ * Combinação de hiperparâmetros avaliada pela busca.
+ */
+public class Candidato{
+
+   /**
+    * Espaço de busca de origem.
+    */
+   private EspacoBusca espaco;
+
+   /**
+    * Arquitetura da rede.
+    */
+   private int[] arquitetura;
+
+   /**
+    * Índice do otimizador dentro do espaço de busca.
+    */
+   private int otimizador;
+
+   /**
+    * Taxa de aprendizagem.
+    */
+   private double taxa;
+
+   /**
+    * Função de ativação das camadas ocultas.
+    */
+   private String ativacao;
+
+   /**
+    * Inicializa um novo candidato.
+    */
+   Candidato(EspacoBusca espaco, int[] arquitetura, int otimizador, double taxa, String ativacao){
+      this.espaco = espaco;
+      this.arquitetura = arquitetura;
+      this.otimizador = otimizador;
+      this.taxa = taxa;
+      this.ativacao = ativacao;
+   }
+
+   /**
+    * Cria e compila uma nova rede com os hiperparâmetros do candidato.
+    * @param seed seed usada na inicialização dos pesos e no treino.
+    * @return rede neural compilada.
+    */
+   public RedeNeural criarRede(long seed){
+      RedeNeural rede = new RedeNeural(arquitetura);
+      rede.configurarSeed(seed);
+
+      rede.compilar(
+         espaco.perda.get(),
+         espaco.otimizadores.get(otimizador).apply(taxa),
+         espaco.inicializador.get()
+      );
+
+      rede.configurarAtivacao(ativacao);
+      if(espaco.ativacaoSaida != null){
+         rede.configurarAtivacao(rede.obterCamadaSaida(), espaco.ativacaoSaida);
+      }
+
+      return rede;
+   }
+
+   /**
+    * Retorna a arquitetura do candidato.
+    * @return arquitetura da rede.
+    */
+   public int[] arquitetura(){
+      return arquitetura.clone();
+   }
+
+   /**
+    * Retorna o nome do otimizador do candidato.
+    * @return nome do otimizador.
+    */
+   public String otimizador(){
+      return espaco.nomesOtimizadores.get(otimizador);
+   }
+
+   /**
+    * Retorna a taxa de aprendizagem do candidato.
+    * @return taxa de aprendizagem.
+    */
+   public double taxaAprendizagem(){
+      return taxa;
+   }
+
+   /**
+    * Retorna a função de ativação das camadas ocultas do candidato.
+    * @return nome da função de ativação.
+    */
+   public String ativacao(){
+      return ativacao;
+   }
+
+   @Override
+   public String toString(){
+      return Arrays.toString(arquitetura) + " " + otimizador() + "(" + taxa + ") " + ativacao;
+   }
+}
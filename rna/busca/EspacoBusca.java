@@ -0,0 +1,220 @@
+package rna.busca;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.function.DoubleFunction;
+import java.util.function.Supplier;
+
+import rna.avaliacao.perda.ErroMedioQuadrado;
+import rna.avaliacao.perda.Perda;
+import rna.inicializadores.Inicializador;
+import rna.inicializadores.Xavier;
+import rna.otimizadores.Otimizador;
+
+/**
+ * Espaço de busca de hiperparâmetros da {@code Rede Neural}.
+ * <p>
+ *    Cada dimensão do espaço é uma lista de valores possíveis: arquiteturas, otimizadores,
+ *    taxas de aprendizagem e funções de ativação das camadas ocultas. Um candidato é
+ *    formado escolhendo um valor de cada dimensão, seja percorrendo todas as combinações
+ *    (busca em grade) ou sorteando os valores (busca aleatória).
+ * </p>
+ * <p>
+ *    Os otimizadores são informados por fábricas que recebem a taxa de aprendizagem, já
+ *    que cada candidato precisa da sua própria instância de otimizador.
+ * </p>
+ * Exemplo:
+ * <pre>{@code
+ * EspacoBusca espaco = new EspacoBusca();
+ * espaco.adicionarArquitetura(4, 8, 3);
+ * espaco.adicionarArquitetura(4, 16, 16, 3);
+ * espaco.adicionarOtimizador("SGD", tA -> new SGD(tA, 0.9));
+ * espaco.adicionarOtimizador("Adam", tA -> new Adam(tA, 0.9, 0.999, 1e-7));
+ * espaco.adicionarTaxaAprendizagem(0.01, 0.001);
+ * espaco.adicionarAtivacao("tanh", "relu");
+ * espaco.configurarAtivacaoSaida("sigmoid");
+ * }</pre>
+ */
+public class EspacoBusca{
+
+   /**
+    * Arquiteturas possíveis.
+    */
+   ArrayList<int[]> arquiteturas = new ArrayList<>();
+
+   /**
+    * Nomes dos otimizadores possíveis.
+    */
+   ArrayList<String> nomesOtimizadores = new ArrayList<>();
+
+   /**
+    * Fábricas dos otimizadores possíveis, recebendo a taxa de aprendizagem.
+    */
+   ArrayList<DoubleFunction<Otimizador>> otimizadores = new ArrayList<>();
+
+   /**
+    * Taxas de aprendizagem possíveis.
+    */
+   ArrayList<Double> taxas = new ArrayList<>();
+
+   /**
+    * Funções de ativação possíveis para as camadas ocultas.
+    */
+   ArrayList<String> ativacoes = new ArrayList<>();
+
+   /**
+    * Função de ativação da camada de saída, nula para usar a mesma das ocultas.
+    */
+   String ativacaoSaida = null;
+
+   /**
+    * Fábrica da função de perda.
+    */
+   Supplier<Perda> perda = ErroMedioQuadrado::new;
+
+   /**
+    * Fábrica do inicializador de pesos.
+    */
+   Supplier<Inicializador> inicializador = Xavier::new;
+
+   /**
+    * Inicializa um espaço de busca vazio.
+    */
+   public EspacoBusca(){}
+
+   /**
+    * Adiciona uma arquitetura ao espaço de busca.
+    * @param arquitetura arquitetura da rede, no mesmo formato do construtor da {@code RedeNeural}.
+    * @throws IllegalArgumentException se a arquitetura tiver menos de duas camadas.
+    */
+   public void adicionarArquitetura(int... arquitetura){
+      if(arquitetura.length < 2){
+         throw new IllegalArgumentException(
+            "A arquitetura deve conter pelo menos a camada de entrada e de saída."
+         );
+      }
+
+      arquiteturas.add(arquitetura.clone());
+   }
+
+   /**
+    * Adiciona um otimizador ao espaço de busca.
+    * @param nome nome usado na tabela de resultados.
+    * @param fabrica fábrica que cria o otimizador a partir da taxa de aprendizagem.
+    */
+   public void adicionarOtimizador(String nome, DoubleFunction<Otimizador> fabrica){
+      nomesOtimizadores.add(nome);
+      otimizadores.add(fabrica);
+   }
+
+   /**
+    * Adiciona taxas de aprendizagem ao espaço de busca.
+    * @param taxas valores de taxa de aprendizagem.
+    * @throws IllegalArgumentException se alguma taxa não for positiva.
+    */
+   public void adicionarTaxaAprendizagem(double... taxas){
+      for(double taxa : taxas){
+         if(taxa <= 0){
+            throw new IllegalArgumentException(
+               "A taxa de aprendizagem (" + taxa + ") deve ser maior que zero."
+            );
+         }
+         this.taxas.add(taxa);
+      }
+   }
+
+   /**
+    * Adiciona funções de ativação para as camadas ocultas ao espaço de busca.
+    * @param ativacoes nomes das funções de ativação, como usados em
+    * {@code RedeNeural.configurarAtivacao(String)}.
+    */
+   public void adicionarAtivacao(String... ativacoes){
+      for(String ativacao : ativacoes){
+         this.ativacoes.add(ativacao);
+      }
+   }
+
+   /**
+    * Configura a função de ativação fixa da camada de saída de todos os candidatos.
+    * @param ativacao nome da função de ativação.
+    */
+   public void configurarAtivacaoSaida(String ativacao){
+      this.ativacaoSaida = ativacao;
+   }
+
+   /**
+    * Configura a função de perda usada por todos os candidatos.
+    * <p>
+    *    {@code O valor padrão é o ErroMedioQuadrado}
+    * </p>
+    * @param perda fábrica da função de perda.
+    */
+   public void configurarPerda(Supplier<Perda> perda){
+      this.perda = perda;
+   }
+
+   /**
+    * Configura o inicializador de pesos usado por todos os candidatos.
+    * <p>
+    *    {@code O valor padrão é o Xavier}
+    * </p>
+    * @param inicializador fábrica do inicializador.
+    */
+   public void configurarInicializador(Supplier<Inicializador> inicializador){
+      this.inicializador = inicializador;
+   }
+
+   /**
+    * Retorna a quantidade de combinações do espaço de busca.
+    * @return quantidade de candidatos da busca em grade.
+    */
+   public int tamanho(){
+      verificar();
+      return arquiteturas.size() * otimizadores.size() * taxas.size() * ativacoes.size();
+   }
+
+   /**
+    * Retorna o candidato correspondente a combinação fornecida, percorrendo as
+    * dimensões na ordem: ativação, taxa, otimizador e arquitetura.
+    * @param id índice da combinação, entre zero e {@code tamanho() - 1}.
+    * @return candidato da combinação.
+    */
+   Candidato candidato(int id){
+      int a = id % ativacoes.size();
+      id /= ativacoes.size();
+      int t = id % taxas.size();
+      id /= taxas.size();
+      int o = id % otimizadores.size();
+      id /= otimizadores.size();
+
+      return new Candidato(this, arquiteturas.get(id), o, taxas.get(t), ativacoes.get(a));
+   }
+
+   /**
+    * Sorteia um candidato do espaço de busca.
+    * @param random gerador de números aleatórios.
+    * @return candidato sorteado.
+    */
+   Candidato sortear(Random random){
+      verificar();
+      return new Candidato(
+         this,
+         arquiteturas.get(random.nextInt(arquiteturas.size())),
+         random.nextInt(otimizadores.size()),
+         taxas.get(random.nextInt(taxas.size())),
+         ativacoes.get(random.nextInt(ativacoes.size()))
+      );
+   }
+
+   /**
+    * Verifica se todas as dimensões possuem pelo menos um valor.
+    */
+   private void verificar(){
+      if(arquiteturas.isEmpty() || otimizadores.isEmpty() || taxas.isEmpty() || ativacoes.isEmpty()){
+         throw new IllegalArgumentException(
+            "O espaço de busca deve ter pelo menos uma arquitetura, um otimizador, " +
+            "uma taxa de aprendizagem e uma função de ativação."
+         );
+      }
+   }
+}
@@ -0,0 +1,112 @@
+package rna.busca;
+
+import rna.estrutura.RedeNeural;
+
+/**
+ * Resultado da avaliação de um candidato da busca de hiperparâmetros.
+ */
+public class ResultadoBusca{
+
+   /**
+    * Candidato avaliado.
+    */
+   Candidato candidato;
+
+   /**
+    * Rede treinada do candidato.
+    */
+   RedeNeural rede;
+
+   /**
+    * Perda de validação da última rodada alcançada.
+    */
+   double perda = Double.NaN;
+
+   /**
+    * Quantidade de épocas treinadas.
+    */
+   int epocas = 0;
+
+   /**
+    * Última rodada alcançada pelo candidato, começando em zero.
+    */
+   int rodada = 0;
+
+   /**
+    * Tempo total de treino, em nanossegundos.
+    */
+   long tempo = 0;
+
+   /**
+    * Erro ocorrido durante o treino, nulo caso o treino tenha terminado normalmente.
+    */
+   String erro = null;
+
+   /**
+    * Inicializa o resultado de um candidato.
+    */
+   ResultadoBusca(Candidato candidato){
+      this.candidato = candidato;
+   }
+
+   /**
+    * Retorna o candidato avaliado.
+    * @return candidato.
+    */
+   public Candidato candidato(){
+      return candidato;
+   }
+
+   /**
+    * Retorna a rede treinada do candidato.
+    * @return rede neural treinada.
+    */
+   public RedeNeural rede(){
+      return rede;
+   }
+
+   /**
+    * Retorna a perda de validação da última rodada alcançada pelo candidato.
+    * @return perda de validação, ou {@code NaN} caso o treino tenha falhado.
+    */
+   public double perda(){
+      return perda;
+   }
+
+   /**
+    * Retorna a quantidade de épocas treinadas pelo candidato.
+    * @return épocas treinadas.
+    */
+   public int epocas(){
+      return epocas;
+   }
+
+   /**
+    * Retorna a última rodada alcançada pelo candidato, começando em zero.
+    * @return rodada alcançada.
+    */
+   public int rodada(){
+      return rodada;
+   }
+
+   /**
+    * Retorna o tempo total de treino do candidato.
+    * @return tempo em milissegundos.
+    */
+   public double tempo(){
+      return tempo / 1_000_000.0;
+   }
+
+   /**
+    * Retorna a mensagem do erro ocorrido durante o treino do candidato.
+    * @return mensagem de erro, ou nulo caso o treino tenha terminado normalmente.
+    */
+   public String erro(){
+      return erro;
+   }
+
+   @Override
+   public String toString(){
+      return candidato + " perda: " + perda + " épocas: " + epocas;
+   }
+}
@@ -0,0 +1,79 @@
+package rna.busca;
+
+/**
+ * Vazão medida para uma configuração de tamanho de lote e quantidade de threads
+ * durante a calibração.
+ * <p>
+ *    O resultado vale apenas para o caminho de treino em que foi medido, o cálculo
+ *    paralelo do gradiente em {@code Calibrador.calibrar()} ou o treino em lotes em
+ *    {@code Calibrador.calibrarTreinoLote()}.
+ * </p>
+ */
+public class ResultadoCalibracao{
+
+   /**
+    * Tamanho do lote testado.
+    */
+   int tamLote;
+
+   /**
+    * Quantidade de threads testada.
+    */
+   int threads;
+
+   /**
+    * Quantidade de passos medidos.
+    */
+   long passos = 0;
+
+   /**
+    * Tempo total dos passos medidos, em nanossegundos.
+    */
+   long tempo = 0;
+
+   /**
+    * Inicializa o resultado de uma configuração.
+    */
+   ResultadoCalibracao(int tamLote, int threads){
+      this.tamLote = tamLote;
+      this.threads = threads;
+   }
+
+   /**
+    * Retorna o tamanho do lote testado.
+    * @return tamanho do lote.
+    */
+   public int tamLote(){
+      return tamLote;
+   }
+
+   /**
+    * Retorna a quantidade de threads testada.
+    * @return quantidade de threads.
+    */
+   public int threads(){
+      return threads;
+   }
+
+   /**
+    * Retorna a quantidade de passos medidos.
+    * @return passos medidos.
+    */
+   public long passos(){
+      return passos;
+   }
+
+   /**
+    * Retorna a vazão medida da configuração.
+    * @return amostras processadas por segundo.
+    */
+   public double amostrasPorSegundo(){
+      return (tempo == 0) ? 0 : (passos * tamLote) / (tempo / 1e9);
+   }
+
+   @Override
+   public String toString(){
+      return "tamLote: " + tamLote + " threads: " + threads +
+         " amostras/s: " + String.format("%.0f", amostrasPorSegundo());
+   }
+}
@@ -0,0 +1,185 @@
+package rna.dados;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * Fonte de dados lida a partir de um arquivo binário.
+ * <p>
+ *    O arquivo começa com dois inteiros, o tamanho da entrada e o tamanho da saída,
+ *    seguidos pelas amostras, cada uma com seus valores de entrada e saída em sequência
+ *    no formato {@code double}. Comparado ao csv, a leitura não precisa converter texto,
+ *    sendo bem mais rápida para conjuntos de dados grandes.
+ * </p>
+ * <p>
+ *    Arquivos nesse formato podem ser criados com {@link #escrever(String, double[][], double[][])}.
+ * </p>
+ */
+public class FonteBinaria implements FonteDados{
+
+   /**
+    * Caminho do arquivo.
+    */
+   private String caminho;
+
+   /**
+    * Quantidade de valores de entrada.
+    */
+   private int tamEntrada;
+
+   /**
+    * Quantidade de valores de saída.
+    */
+   private int tamSaida;
+
+   /**
+    * Leitor do arquivo aberto.
+    */
+   private DataInputStream leitor;
+
+   /**
+    * Inicializa uma fonte de dados binária, lendo os tamanhos de entrada
+    * e saída do início do arquivo.
+    * @param caminho caminho do arquivo.
+    * @throws IllegalArgumentException se o arquivo não existir.
+    */
+   public FonteBinaria(String caminho){
+      if(!(new File(caminho).exists())){
+         throw new IllegalArgumentException("O caminho especificado não existe ou não foi encontrado.");
+      }
+
+      this.caminho = caminho;
+      lerCabecalho();
+   }
+
+   /**
+    * Lê os tamanhos de entrada e saída do início do arquivo.
+    */
+   private void lerCabecalho(){
+      try(DataInputStream cabecalho = new DataInputStream(new FileInputStream(caminho))){
+         tamEntrada = cabecalho.readInt();
+         tamSaida = cabecalho.readInt();
+      }catch(IOException e){
+         throw new RuntimeException("Erro ao ler o cabeçalho do arquivo " + caminho, e);
+      }
+   }
+
+   @Override
+   public void abrir(){
+      fechar();
+
+      try{
+         leitor = new DataInputStream(new BufferedInputStream(new FileInputStream(caminho), 1 << 16));
+         tamEntrada = leitor.readInt();
+         tamSaida = leitor.readInt();
+      }catch(IOException e){
+         throw new RuntimeException("Erro ao abrir o arquivo " + caminho, e);
+      }
+   }
+
+   @Override
+   public boolean proxima(double[] entrada, double[] saida){
+      try{
+         try{
+            entrada[0] = leitor.readDouble();
+         }catch(EOFException e){
+            return false;
+         }
+         for(int i = 1; i < tamEntrada; i++){
+            entrada[i] = leitor.readDouble();
+         }
+         for(int i = 0; i < tamSaida; i++){
+            saida[i] = leitor.readDouble();
+         }
+
+      }catch(IOException e){
+         throw new RuntimeException("Erro ao ler o arquivo " + caminho, e);
+      }
+
+      return true;
+   }
+
+   @Override
+   public void fechar(){
+      if(leitor == null) return;
+
+      try{
+         leitor.close();
+      }catch(IOException e){
+         throw new RuntimeException("Erro ao fechar o arquivo " + caminho, e);
+      }finally{
+         leitor = null;
+      }
+   }
+
+   @Override
+   public int tamanhoEntrada(){
+      return this.tamEntrada;
+   }
+
+   @Override
+   public int tamanhoSaida(){
+      return this.tamSaida;
+   }
+
+   /**
+    * Escreve os dados fornecidos num arquivo binário no formato lido pela
+    * {@code FonteBinaria}.
+    * @param caminho caminho do arquivo que será criado.
+    * @param entradas dados de entrada.
+    * @param saidas dados de saída correspondentes as entradas.
+    * @throws IllegalArgumentException se a quantidade de amostras de entrada e saída
+    * forem diferentes.
+    * @throws IllegalArgumentException se os dados forem vazios ou as amostras tiverem
+    * tamanhos diferentes entre si.
+    */
+   public static void escrever(String caminho, double[][] entradas, double[][] saidas){
+      if(entradas.length != saidas.length){
+         throw new IllegalArgumentException(
+            "Quantidade de amostras de dados de entrada (" + entradas.length +
+            ") e saída (" + saidas.length + ") devem ser iguais."
+         );
+      }
+      if(entradas.length == 0){
+         throw new IllegalArgumentException("Os dados fornecidos não possuem amostras.");
+      }
+
+      //o formato guarda um único tamanho de entrada e saída para todas as amostras
+      int tamEntrada = entradas[0].length;
+      int tamSaida = saidas[0].length;
+      if(tamEntrada == 0 || tamSaida == 0){
+         throw new IllegalArgumentException("As amostras devem ter ao menos um valor de entrada e de saída.");
+      }
+      for(int i = 0; i < entradas.length; i++){
+         if(entradas[i].length != tamEntrada || saidas[i].length != tamSaida){
+            throw new IllegalArgumentException(
+               "A amostra " + i + " possui tamanhos de entrada (" + entradas[i].length + 
+               ") e saída (" + saidas[i].length + ") diferentes dos da primeira amostra (" + 
+               tamEntrada + ", " + tamSaida + ")."
+            );
+         }
+      }
+
+      try(DataOutputStream escritor = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(caminho), 1 << 16))){
+         escritor.writeInt(tamEntrada);
+         escritor.writeInt(tamSaida);
+         for(int i = 0; i < entradas.length; i++){
+            for(double valor : entradas[i]){
+               escritor.writeDouble(valor);
+            }
+            for(double valor : saidas[i]){
+               escritor.writeDouble(valor);
+            }
+         }
+      }catch(IOException e){
+         throw new RuntimeException("Erro ao escrever o arquivo " + caminho, e);
+      }
+   }
+}
@@ -0,0 +1,163 @@
+package rna.dados;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+
+/**
+ * Fonte de dados lida a partir de um arquivo csv.
+ * <p>
+ *    Cada linha do arquivo é uma amostra, com os valores de entrada nas primeiras
+ *    colunas e os valores de saída logo em seguida. O arquivo é lido linha por linha,
+ *    então apenas a linha atual fica em memória.
+ * </p>
+ */
+public class FonteCsv implements FonteDados{
+
+   /**
+    * Caminho do arquivo.
+    */
+   private String caminho;
+
+   /**
+    * Quantidade de colunas de entrada.
+    */
+   private int tamEntrada;
+
+   /**
+    * Quantidade de colunas de saída.
+    */
+   private int tamSaida;
+
+   /**
+    * Separador das colunas.
+    */
+   private String separador;
+
+   /**
+    * Ignorar a primeira linha do arquivo.
+    */
+   private boolean cabecalho;
+
+   /**
+    * Leitor do arquivo aberto.
+    */
+   private BufferedReader leitor;
+
+   /**
+    * Quantidade de linhas lidas, usada nas mensagens de erro.
+    */
+   private long linhaAtual;
+
+   /**
+    * Inicializa uma fonte de dados csv.
+    * @param caminho caminho do arquivo.
+    * @param tamEntrada quantidade de colunas de entrada.
+    * @param tamSaida quantidade de colunas de saída.
+    * @param separador separador das colunas.
+    * @param cabecalho se verdadeiro, a primeira linha do arquivo é ignorada.
+    * @throws IllegalArgumentException se o arquivo não existir.
+    * @throws IllegalArgumentException se os tamanhos de entrada ou saída forem menores que um.
+    */
+   public FonteCsv(String caminho, int tamEntrada, int tamSaida, String separador, boolean cabecalho){
+      if(!(new File(caminho).exists())){
+         throw new IllegalArgumentException("O caminho especificado não existe ou não foi encontrado.");
+      }
+      if(tamEntrada < 1 || tamSaida < 1){
+         throw new IllegalArgumentException(
+            "Os tamanhos de entrada (" + tamEntrada + ") e saída (" + tamSaida + ") devem ser maiores que zero."
+         );
+      }
+
+      this.caminho = caminho;
+      this.tamEntrada = tamEntrada;
+      this.tamSaida = tamSaida;
+      this.separador = separador;
+      this.cabecalho = cabecalho;
+   }
+
+   /**
+    * Inicializa uma fonte de dados csv separada por vírgulas.
+    * @param caminho caminho do arquivo.
+    * @param tamEntrada quantidade de colunas de entrada.
+    * @param tamSaida quantidade de colunas de saída.
+    * @param cabecalho se verdadeiro, a primeira linha do arquivo é ignorada.
+    */
+   public FonteCsv(String caminho, int tamEntrada, int tamSaida, boolean cabecalho){
+      this(caminho, tamEntrada, tamSaida, ",", cabecalho);
+   }
+
+   @Override
+   public void abrir(){
+      fechar();
+
+      try{
+         leitor = new BufferedReader(new FileReader(caminho));
+         linhaAtual = 0;
+         if(cabecalho){
+            leitor.readLine();
+            linhaAtual++;
+         }
+      }catch(IOException e){
+         throw new RuntimeException("Erro ao abrir o arquivo " + caminho, e);
+      }
+   }
+
+   @Override
+   public boolean proxima(double[] entrada, double[] saida){
+      String linha;
+      try{
+         //linhas em branco são ignoradas
+         do{
+            linha = leitor.readLine();
+            linhaAtual++;
+            if(linha == null) return false;
+            linha = linha.trim();
+         }while(linha.isEmpty());
+
+      }catch(IOException e){
+         throw new RuntimeException("Erro ao ler o arquivo " + caminho, e);
+      }
+
+      String[] valores = linha.split(separador);
+      if(valores.length != tamEntrada + tamSaida){
+         throw new IllegalArgumentException(
+            "A linha " + linhaAtual + " possui " + valores.length + 
+            " colunas, mas eram esperadas " + (tamEntrada + tamSaida) + "."
+         );
+      }
+
+      for(int i = 0; i < tamEntrada; i++){
+         entrada[i] = Double.parseDouble(valores[i].trim());
+      }
+      for(int i = 0; i < tamSaida; i++){
+         saida[i] = Double.parseDouble(valores[tamEntrada + i].trim());
+      }
+
+      return true;
+   }
+
+   @Override
+   public void fechar(){
+      if(leitor == null) return;
+
+      try{
+         leitor.close();
+      }catch(IOException e){
+         throw new RuntimeException("Erro ao fechar o arquivo " + caminho, e);
+      }finally{
+         leitor = null;
+      }
+   }
+
+   @Override
+   public int tamanhoEntrada(){
+      return this.tamEntrada;
+   }
+
+   @Override
+   public int tamanhoSaida(){
+      return this.tamSaida;
+   }
+}
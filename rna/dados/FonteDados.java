@@ -0,0 +1,49 @@
+package rna.dados;
+
+/**
+ * Fonte de dados de treino lida em sequência, amostra por amostra.
+ * <p>
+ *    Diferente dos dados em formato de matriz, uma fonte não precisa manter todas as
+ *    amostras em memória, permitindo treinar a Rede Neural com arquivos maiores que a
+ *    memória disponível. Cada época do treino abre a fonte novamente e a percorre do
+ *    início ao fim.
+ * </p>
+ * <p>
+ *    Erros de leitura são lançados como {@code RuntimeException}, contendo a
+ *    exceção original como causa.
+ * </p>
+ */
+public interface FonteDados{
+
+   /**
+    * Abre a fonte de dados posicionando a leitura na primeira amostra. Caso a
+    * fonte já esteja aberta, ela é reiniciada.
+    */
+   void abrir();
+
+   /**
+    * Lê a próxima amostra da fonte, preenchendo os arrays fornecidos.
+    * @param entrada array que receberá os dados de entrada da amostra.
+    * @param saida array que receberá os dados de saída da amostra.
+    * @return verdadeiro caso uma amostra tenha sido lida, falso caso a fonte
+    * tenha chegado ao fim.
+    */
+   boolean proxima(double[] entrada, double[] saida);
+
+   /**
+    * Libera os recursos usados pela fonte de dados.
+    */
+   void fechar();
+
+   /**
+    * Retorna a quantidade de valores de entrada de cada amostra.
+    * @return tamanho da entrada.
+    */
+   int tamanhoEntrada();
+
+   /**
+    * Retorna a quantidade de valores de saída de cada amostra.
+    * @return tamanho da saída.
+    */
+   int tamanhoSaida();
+}
@@ -0,0 +1,193 @@
+package rna.distribuido;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+
+/**
+ * Canal de comunicação entre o coordenador e um trabalhador do treino distribuído.
+ * <p>
+ *    As mensagens são quadros binários compactos no formato:
+ * </p>
+ * <pre>
+ * [byte tipo][int a][int b][double c][int n][n doubles]
+ * </pre>
+ * <p>
+ *    O significado dos campos {@code a}, {@code b} e {@code c} depende do tipo da
+ *    mensagem. Os arrays de valores são convertidos para bytes de uma vez só usando
+ *    um buffer reaproveitado, evitando escrever um double por vez no fluxo.
+ * </p>
+ */
+class Canal{
+
+   /**
+    * Apresentação do trabalhador, {@code a} = amostras locais, {@code b} = quantidade
+    * de parâmetros da rede.
+    */
+   static final byte OLA = 1;
+
+   /**
+    * Pesos atuais da rede, {@code a} = tamanho do lote, valores = pesos.
+    */
+   static final byte PESOS = 2;
+
+   /**
+    * Gradiente calculado pelo trabalhador, {@code a} = amostras usadas, {@code c} = perda
+    * média, valores = gradiente médio.
+    */
+   static final byte GRADIENTE = 3;
+
+   /**
+    * Fim do treino.
+    */
+   static final byte FIM = 4;
+
+   /**
+    * Tamanho do cabeçalho de cada quadro, em bytes.
+    */
+   static final int CABECALHO = 1 + 4 + 4 + 8 + 4;
+
+   private Socket socket;
+   private DataInputStream entrada;
+   private DataOutputStream saida;
+
+   /**
+    * Buffer auxiliar para conversão dos valores.
+    */
+   private ByteBuffer buffer = ByteBuffer.allocate(0);
+
+   /**
+    * Tipo da última mensagem recebida.
+    */
+   byte tipo;
+
+   /**
+    * Campo inteiro {@code a} da última mensagem recebida.
+    */
+   int a;
+
+   /**
+    * Campo inteiro {@code b} da última mensagem recebida.
+    */
+   int b;
+
+   /**
+    * Campo real {@code c} da última mensagem recebida.
+    */
+   double c;
+
+   /**
+    * Valores da última mensagem recebida, reaproveitados enquanto o tamanho não mudar.
+    */
+   double[] valores = new double[0];
+
+   /**
+    * Quantidade de bytes enviados pelo canal.
+    */
+   long bytesEnviados = 0;
+
+   /**
+    * Inicializa o canal a partir de uma conexão aberta.
+    * @param socket conexão.
+    */
+   Canal(Socket socket){
+      this.socket = socket;
+      try{
+         socket.setTcpNoDelay(true);
+         this.entrada = new DataInputStream(new BufferedInputStream(socket.getInputStream(), 1 << 16));
+         this.saida = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), 1 << 16));
+      }catch(IOException e){
+         throw new RuntimeException("Erro de comunicação ao abrir o canal.", e);
+      }
+   }
+
+   /**
+    * Envia uma mensagem.
+    * @param tipo tipo da mensagem.
+    * @param a campo inteiro {@code a}.
+    * @param b campo inteiro {@code b}.
+    * @param c campo real {@code c}.
+    * @param valores valores da mensagem, pode ser nulo.
+    */
+   void enviar(byte tipo, int a, int b, double c, double[] valores){
+      int n = (valores == null) ? 0 : valores.length;
+      try{
+         saida.writeByte(tipo);
+         saida.writeInt(a);
+         saida.writeInt(b);
+         saida.writeDouble(c);
+         saida.writeInt(n);
+         if(n > 0){
+            ByteBuffer buf = buffer(n);
+            buf.asDoubleBuffer().put(valores, 0, n);
+            saida.write(buf.array(), 0, n * Double.BYTES);
+         }
+         saida.flush();
+      }catch(IOException e){
+         throw new RuntimeException("Erro de comunicação ao enviar a mensagem.", e);
+      }
+
+      bytesEnviados += CABECALHO + (long) n * Double.BYTES;
+   }
+
+   /**
+    * Espera a próxima mensagem e preenche os campos {@code tipo}, {@code a}, {@code b},
+    * {@code c} e {@code valores}.
+    */
+   void receber(){
+      try{
+         tipo = entrada.readByte();
+         a = entrada.readInt();
+         b = entrada.readInt();
+         c = entrada.readDouble();
+         int n = entrada.readInt();
+         if(valores.length != n){
+            valores = new double[n];
+         }
+         if(n > 0){
+            ByteBuffer buf = buffer(n);
+            entrada.readFully(buf.array(), 0, n * Double.BYTES);
+            buf.asDoubleBuffer().get(valores, 0, n);
+         }
+      }catch(IOException e){
+         throw new RuntimeException("Erro de comunicação ao receber a mensagem.", e);
+      }
+   }
+
+   /**
+    * Espera a próxima mensagem e verifica se ela é do tipo esperado.
+    * @param esperado tipo esperado.
+    */
+   void receber(byte esperado){
+      receber();
+      if(tipo != esperado){
+         throw new IllegalStateException(
+            "Mensagem inesperada recebida (" + tipo + "), era esperado (" + esperado + ")."
+         );
+      }
+   }
+
+   /**
+    * Retorna o buffer auxiliar com capacidade para a quantidade de valores.
+    */
+   private ByteBuffer buffer(int n){
+      if(buffer.capacity() < n * Double.BYTES){
+         buffer = ByteBuffer.allocate(n * Double.BYTES);
+      }
+      buffer.clear();
+      return buffer;
+   }
+
+   /**
+    * Fecha a conexão.
+    */
+   void fechar(){
+      try{
+         socket.close();
+      }catch(IOException e){}
+   }
+}
@@ -0,0 +1,285 @@
+package rna.distribuido;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.util.Arrays;
+
+import rna.estrutura.RedeNeural;
+import rna.otimizadores.LBFGS;
+import rna.treinamento.HistoricoPerda;
+
+/**
+ * Coordenador do treino distribuído da {@code Rede Neural}, no modelo de servidor
+ * de parâmetros.
+ * <p>
+ *    O coordenador guarda a única cópia oficial dos pesos e do estado do otimizador.
+ *    Cada trabalhador (normalmente uma JVM separada, veja {@link Trabalhador}) possui
+ *    uma parte dos dados de treino e, a cada passo:
+ * </p>
+ * <ol>
+ *    <li>recebe os pesos atuais do coordenador;</li>
+ *    <li>calcula o gradiente médio de um lote das suas amostras;</li>
+ *    <li>envia o gradiente de volta.</li>
+ * </ol>
+ * <p>
+ *    O coordenador faz a média dos gradientes ponderada pela quantidade de amostras
+ *    de cada trabalhador e aplica o otimizador da rede, então um passo distribuído
+ *    com {@code N} trabalhadores equivale a um passo do treino em lote com {@code N}
+ *    vezes o tamanho do lote. A comunicação é feita por TCP com quadros binários
+ *    compactos, de forma síncrona: todos os trabalhadores usam os mesmos pesos em
+ *    cada passo.
+ * </p>
+ * Exemplo:
+ * <pre>{@code
+ * Coordenador coordenador = new Coordenador(rede, 5000, 4);
+ * coordenador.aguardarTrabalhadores();
+ * coordenador.treinar(100, 32);
+ * coordenador.encerrar();
+ * }</pre>
+ */
+public class Coordenador{
+
+   /**
+    * Rede neural com os pesos oficiais.
+    */
+   private RedeNeural rede;
+
+   /**
+    * Servidor que aceita as conexões dos trabalhadores.
+    */
+   private ServerSocket servidor;
+
+   /**
+    * Canais de comunicação com os trabalhadores.
+    */
+   private Canal[] canais;
+
+   /**
+    * Quantidade de amostras de cada trabalhador.
+    */
+   private int[] amostras;
+
+   /**
+    * Pesos atuais da rede, enviados a cada passo.
+    */
+   private double[] pesos;
+
+   /**
+    * Média dos gradientes recebidos.
+    */
+   private double[] gradiente;
+
+   /**
+    * Perdas médias das épocas treinadas.
+    */
+   private HistoricoPerda historico = new HistoricoPerda();
+
+   /**
+    * Amostras processadas pelos trabalhadores no último treino.
+    */
+   private long amostrasProcessadas = 0;
+
+   /**
+    * Tempo do último treino, em nanossegundos.
+    */
+   private long tempoTreino = 0;
+
+   /**
+    * Inicializa o coordenador e abre a porta para os trabalhadores.
+    * @param rede rede neural compilada, que receberá os pesos treinados.
+    * @param porta porta de escuta, zero escolhe uma porta livre (veja {@link #porta()}).
+    * @param trabalhadores quantidade de trabalhadores esperados.
+    * @throws IllegalArgumentException se a quantidade de trabalhadores for menor que um.
+    * @throws IllegalArgumentException se o otimizador da rede for o {@code LBFGS}.
+    */
+   public Coordenador(RedeNeural rede, int porta, int trabalhadores){
+      if(trabalhadores < 1){
+         throw new IllegalArgumentException(
+            "A quantidade de trabalhadores (" + trabalhadores + ") deve ser maior que zero."
+         );
+      }
+      if(rede.obterOtimizador() instanceof LBFGS){
+         throw new IllegalArgumentException(
+            "O LBFGS não é suportado pelo treino distribuído."
+         );
+      }
+
+      this.rede = rede;
+      this.canais = new Canal[trabalhadores];
+      this.amostras = new int[trabalhadores];
+      this.pesos = new double[rede.obterQuantidadeParametros()];
+      this.gradiente = new double[pesos.length];
+
+      try{
+         this.servidor = new ServerSocket(porta, trabalhadores, InetAddress.getLoopbackAddress());
+      }catch(IOException e){
+         throw new RuntimeException("Erro ao abrir a porta " + porta + ".", e);
+      }
+   }
+
+   /**
+    * Retorna a porta em que o coordenador está escutando.
+    * @return porta de escuta.
+    */
+   public int porta(){
+      return servidor.getLocalPort();
+   }
+
+   /**
+    * Espera todos os trabalhadores se conectarem.
+    * @throws IllegalStateException se algum trabalhador usar uma rede com quantidade
+    * de parâmetros diferente da rede do coordenador.
+    */
+   public void aguardarTrabalhadores(){
+      for(int i = 0; i < canais.length; i++){
+         Canal canal;
+         try{
+            canal = new Canal(servidor.accept());
+         }catch(IOException e){
+            throw new RuntimeException("Erro ao aceitar a conexão do trabalhador " + i + ".", e);
+         }
+
+         canal.receber(Canal.OLA);
+         if(canal.b != pesos.length){
+            canal.fechar();
+            throw new IllegalStateException(
+               "O trabalhador " + i + " possui " + canal.b + " parâmetros, mas a rede do " +
+               "coordenador possui " + pesos.length + "."
+            );
+         }
+
+         canais[i] = canal;
+         amostras[i] = canal.a;
+      }
+   }
+
+   /**
+    * Treina a rede de forma distribuída.
+    * <p>
+    *    Uma época tem passos suficientes para que o trabalhador com mais amostras
+    *    percorra todos os seus dados uma vez.
+    * </p>
+    * @param epocas quantidade de épocas.
+    * @param tamLote tamanho do lote de cada trabalhador em cada passo.
+    * @throws IllegalArgumentException se a quantidade de épocas ou o tamanho do lote
+    * forem menores que um.
+    * @throws IllegalStateException se os trabalhadores ainda não se conectaram.
+    */
+   public void treinar(int epocas, int tamLote){
+      if(epocas < 1){
+         throw new IllegalArgumentException(
+            "A quantidade de épocas (" + epocas + ") deve ser maior que zero."
+         );
+      }
+      if(tamLote < 1){
+         throw new IllegalArgumentException(
+            "O tamanho do lote (" + tamLote + ") deve ser maior que zero."
+         );
+      }
+      if(canais[canais.length-1] == null){
+         throw new IllegalStateException(
+            "Os trabalhadores devem ser aguardados antes do treino."
+         );
+      }
+
+      int maiorParte = 0;
+      for(int a : amostras){
+         maiorParte = Math.max(maiorParte, a);
+      }
+      int passos = (maiorParte + tamLote - 1) / tamLote;
+
+      amostrasProcessadas = 0;
+      long inicio = System.nanoTime();
+
+      for(int e = 0; e < epocas; e++){
+         double perdaEpoca = 0;
+         long amostrasEpoca = 0;
+         for(int p = 0; p < passos; p++){
+            rede.obterParametros(pesos);
+            for(Canal canal : canais){
+               canal.enviar(Canal.PESOS, tamLote, 0, 0, pesos);
+            }
+
+            Arrays.fill(gradiente, 0);
+            double perdaPasso = 0;
+            int total = 0;
+            for(Canal canal : canais){
+               canal.receber(Canal.GRADIENTE);
+               int n = canal.a;
+               double[] g = canal.valores;
+               for(int i = 0; i < gradiente.length; i++){
+                  gradiente[i] += n * g[i];
+               }
+               perdaPasso += n * canal.c;
+               total += n;
+            }
+
+            for(int i = 0; i < gradiente.length; i++){
+               gradiente[i] /= total;
+            }
+            rede.aplicarGradiente(gradiente);
+
+            perdaEpoca += perdaPasso;
+            amostrasEpoca += total;
+         }
+
+         amostrasProcessadas += amostrasEpoca;
+         historico.adicionar(perdaEpoca / amostrasEpoca);
+      }
+
+      tempoTreino = System.nanoTime() - inicio;
+   }
+
+   /**
+    * Retorna o histórico de perdas das épocas treinadas.
+    * <p>
+    *    A perda de cada época é a média das perdas calculadas pelos trabalhadores antes
+    *    de cada passo.
+    * </p>
+    * @return histórico de perdas.
+    */
+   public HistoricoPerda obterHistoricoPerda(){
+      return historico;
+   }
+
+   /**
+    * Retorna a vazão do último treino, somando as amostras de todos os trabalhadores.
+    * @return amostras processadas por segundo.
+    */
+   public double amostrasPorSegundo(){
+      if(tempoTreino == 0) return 0;
+      return amostrasProcessadas / (tempoTreino / 1e9);
+   }
+
+   /**
+    * Retorna a quantidade de bytes enviados para os trabalhadores.
+    * @return bytes enviados.
+    */
+   public long bytesEnviados(){
+      long total = 0;
+      for(Canal canal : canais){
+         if(canal != null) total += canal.bytesEnviados;
+      }
+      return total;
+   }
+
+   /**
+    * Avisa os trabalhadores do fim do treino e fecha todas as conexões.
+    */
+   public void encerrar(){
+      for(Canal canal : canais){
+         if(canal == null) continue;
+         try{
+            canal.enviar(Canal.FIM, 0, 0, 0, null);
+         }catch(RuntimeException e){
+            //o trabalhador pode já ter encerrado
+         }
+         canal.fechar();
+      }
+
+      try{
+         servidor.close();
+      }catch(IOException e){}
+   }
+}
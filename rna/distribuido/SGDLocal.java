@@ -0,0 +1,414 @@
+package rna.distribuido;
+
+import java.util.SplittableRandom;
+import java.util.function.Supplier;
+
+import rna.estrutura.RedeNeural;
+import rna.otimizadores.LBFGS;
+import rna.treinamento.HistoricoPerda;
+import rna.treinamento.ReducaoArvore;
+
+/**
+ * Treino paralelo da {@code Rede Neural} por média de modelos (local SGD).
+ * <p>
+ *    Cada thread treina a sua própria réplica da rede, com o seu próprio otimizador,
+ *    usando apenas a sua parte dos dados. As réplicas não se comunicam durante os
+ *    passos locais: a cada {@code H} passos (veja {@link #configurarSincronizacao(int)})
+ *    todas as threads param, os pesos das réplicas são somados em uma única redução,
+ *    a média é copiada para a rede principal e redistribuída para todas as réplicas.
+ *    O estado dos otimizadores (momentos, acumuladores) continua local de cada réplica.
+ * </p>
+ * <p>
+ *    <strong>Escolha de H:</strong>
+ * </p>
+ * <ul>
+ *    <li>
+ *       {@code H = 1} sincroniza a cada lote. Com o SGD sem momento isso equivale ao
+ *       treino em lote com {@code threads * tamLote} amostras, que é o comportamento
+ *       mais estável, mas o custo da sincronização é pago em todos os passos e limita
+ *       a escala com muitas threads ou lotes pequenos.
+ *    </li>
+ *    <li>
+ *       Valores maiores dividem o custo da sincronização por {@code H}, então a vazão
+ *       cresce quase linearmente com as threads. Em troca, as réplicas se afastam umas
+ *       das outras entre as sincronizações e a média de pesos distantes pode ser pior do
+ *       que cada réplica sozinha, principalmente com taxas de aprendizagem altas, no
+ *       começo do treino e quando as partes dos dados são muito diferentes entre si.
+ *       Na prática isso aparece como mais épocas até a mesma perda.
+ *    </li>
+ *    <li>
+ *       Valores entre 4 e 32 costumam manter a convergência próxima da sincronização
+ *       a cada lote. Se a perda oscilar ou piorar ao aumentar {@code H}, reduzir a
+ *       taxa de aprendizagem ou o próprio {@code H} costuma resolver.
+ *    </li>
+ * </ul>
+ * <p>
+ *    As réplicas são criadas por uma fábrica, já que cada uma precisa do seu próprio
+ *    otimizador, e devem ter a mesma arquitetura da rede principal. Os pesos iniciais
+ *    das réplicas são sempre copiados da rede principal.
+ * </p>
+ * Exemplo:
+ * <pre>{@code
+ * SGDLocal sgd = new SGDLocal(rede, 8, () -> criarRede());
+ * sgd.configurarSincronizacao(16);
+ * sgd.treinar(treinoX, treinoY, 50, 32);
+ * }</pre>
+ */
+public class SGDLocal{
+
+   /**
+    * Rede principal, que recebe a média dos pesos.
+    */
+   private RedeNeural rede;
+
+   /**
+    * Réplicas treinadas pelas threads.
+    */
+   private Replica[] replicas;
+
+   /**
+    * Quantidade de passos locais entre as sincronizações.
+    */
+   private int sincronizacao = 8;
+
+   /**
+    * Média dos pesos das réplicas.
+    */
+   private double[] media;
+
+   /**
+    * Pesos auxiliares de cada réplica, somados em árvore na redução.
+    */
+   private double[][] somas;
+
+   /**
+    * Perdas médias das épocas treinadas.
+    */
+   private HistoricoPerda historico = new HistoricoPerda();
+
+   /**
+    * Amostras processadas no último treino.
+    */
+   private long amostrasProcessadas = 0;
+
+   /**
+    * Tempo do último treino, em nanossegundos.
+    */
+   private long tempoTreino = 0;
+
+   /**
+    * Inicializa o treino por média de modelos.
+    * @param rede rede principal compilada.
+    * @param threads quantidade de threads, cada uma com a sua réplica.
+    * @param fabrica fábrica das réplicas, que devem ser redes compiladas com a mesma
+    * arquitetura da rede principal e com uma instância própria de otimizador.
+    * @throws IllegalArgumentException se a quantidade de threads for menor que um.
+    * @throws IllegalArgumentException se alguma réplica for incompatível com a rede principal
+    * ou usar o otimizador {@code LBFGS}.
+    */
+   public SGDLocal(RedeNeural rede, int threads, Supplier<RedeNeural> fabrica){
+      if(threads < 1){
+         throw new IllegalArgumentException(
+            "A quantidade de threads (" + threads + ") deve ser maior que zero."
+         );
+      }
+
+      this.rede = rede;
+      this.media = new double[rede.obterQuantidadeParametros()];
+      this.replicas = new Replica[threads];
+      this.somas = new double[threads][];
+      SplittableRandom base = new SplittableRandom();
+      for(int i = 0; i < threads; i++){
+         RedeNeural replica = fabrica.get();
+         if(replica == rede || replica.obterQuantidadeParametros() != media.length){
+            throw new IllegalArgumentException(
+               "A réplica " + i + " deve ser uma nova rede com a mesma quantidade de " +
+               "parâmetros da rede principal (" + media.length + ")."
+            );
+         }
+         if(replica.obterOtimizador() instanceof LBFGS){
+            throw new IllegalArgumentException(
+               "O LBFGS não é suportado pelo treino por média de modelos."
+            );
+         }
+         for(int j = 0; j < i; j++){
+            if(replicas[j].rede.obterOtimizador() == replica.obterOtimizador()){
+               throw new IllegalArgumentException(
+                  "Cada réplica deve ter a sua própria instância de otimizador."
+               );
+            }
+         }
+
+         //o paralelismo já está nas réplicas
+         replica.configurarThreads(1);
+         replicas[i] = new Replica(replica, i, base.split());
+         somas[i] = replicas[i].pesos;
+      }
+   }
+
+   /**
+    * Configura a quantidade de passos locais de cada réplica entre as médias dos pesos.
+    * <p>
+    *    {@code O valor padrão é 8}
+    * </p>
+    * @param passos quantidade de passos entre as sincronizações.
+    * @throws IllegalArgumentException se a quantidade de passos for menor que um.
+    */
+   public void configurarSincronizacao(int passos){
+      if(passos < 1){
+         throw new IllegalArgumentException(
+            "A quantidade de passos entre as sincronizações (" + passos + ") deve ser maior que zero."
+         );
+      }
+
+      this.sincronizacao = passos;
+   }
+
+   /**
+    * Configura a seed do embaralhamento dos dados das réplicas.
+    * <p>
+    *    Cada réplica recebe o seu próprio {@code SplittableRandom}, derivado da seed na
+    *    ordem das réplicas. Como a divisão das amostras também é fixa e a média dos pesos
+    *    é somada em árvore numa ordem que não depende do tempo de cada thread, treinos
+    *    com a mesma seed, a mesma quantidade de threads e os mesmos pesos iniciais 
+    *    produzem pesos idênticos.
+    * </p>
+    * @param seed nova seed.
+    */
+   public void configurarSeed(long seed){
+      SplittableRandom base = new SplittableRandom(seed);
+      for(Replica replica : replicas){
+         replica.random = base.split();
+      }
+   }
+
+   /**
+    * Treina a rede dividindo as amostras entre as réplicas.
+    * <p>
+    *    A amostra {@code i} pertence à réplica {@code i % threads}. Uma época tem passos
+    *    suficientes para que a réplica com mais amostras percorra todos os seus dados uma
+    *    vez, e sempre termina com uma sincronização.
+    * </p>
+    * @param entradas dados de entrada.
+    * @param saidas dados de saída.
+    * @param epocas quantidade de épocas.
+    * @param tamLote tamanho do lote de cada réplica em cada passo.
+    * @throws IllegalArgumentException se houver menos amostras do que threads, se as
+    * quantidades de amostras de entrada e saída forem diferentes ou se a quantidade de
+    * épocas ou o tamanho do lote forem menores que um.
+    */
+   public void treinar(double[][] entradas, double[][] saidas, int epocas, int tamLote){
+      if(entradas.length != saidas.length || entradas.length < replicas.length){
+         throw new IllegalArgumentException(
+            "Os dados devem ter a mesma quantidade de amostras de entrada e saída, " +
+            "e pelo menos uma amostra por thread (" + replicas.length + ")."
+         );
+      }
+      if(epocas < 1){
+         throw new IllegalArgumentException(
+            "A quantidade de épocas (" + epocas + ") deve ser maior que zero."
+         );
+      }
+      if(tamLote < 1){
+         throw new IllegalArgumentException(
+            "O tamanho do lote (" + tamLote + ") deve ser maior que zero."
+         );
+      }
+
+      for(Replica replica : replicas){
+         replica.particionar(entradas, saidas, replicas.length, tamLote);
+      }
+      int passos = (replicas[0].entradas.length + tamLote - 1) / tamLote;
+
+      rede.obterParametros(media);
+      amostrasProcessadas = 0;
+      long inicio = System.nanoTime();
+
+      for(int e = 0; e < epocas; e++){
+         double perdaEpoca = 0;
+         long amostrasEpoca = 0;
+
+         for(int p = 0; p < passos; p += sincronizacao){
+            executar(Math.min(sincronizacao, passos - p));
+            reduzir();
+         }
+
+         for(Replica replica : replicas){
+            perdaEpoca += replica.perda;
+            amostrasEpoca += replica.amostras;
+            replica.perda = 0;
+            replica.amostras = 0;
+         }
+
+         amostrasProcessadas += amostrasEpoca;
+         historico.adicionar(perdaEpoca / amostrasEpoca);
+      }
+
+      tempoTreino = System.nanoTime() - inicio;
+   }
+
+   /**
+    * Copia os pesos atuais para as réplicas, executa os passos locais em paralelo e
+    * soma os pesos das réplicas em árvore, deixando o total em {@code somas[0]}.
+    * Um erro em qualquer réplica é lançado novamente depois que todas terminarem.
+    */
+   private void executar(int passos){
+      Thread[] threads = new Thread[replicas.length];
+      RuntimeException[] erros = new RuntimeException[replicas.length];
+      for(int t = 0; t < threads.length; t++){
+         Replica replica = replicas[t];
+         threads[t] = new Thread(() -> {
+            try{
+               replica.rede.configurarParametros(media);
+               for(int i = 0; i < passos; i++){
+                  replica.passo();
+               }
+
+               replica.rede.obterParametros(replica.pesos);
+               ReducaoArvore.reduzir(replica.id, threads, erros, somas, null);
+            }catch(RuntimeException e){
+               erros[replica.id] = e;
+            }
+         });
+      }
+      ReducaoArvore.iniciar(threads);
+
+      try{
+         for(Thread thread : threads){
+            thread.join();
+         }
+      }catch(InterruptedException e){
+         Thread.currentThread().interrupt();
+         throw new RuntimeException(e);
+      }
+
+      for(RuntimeException erro : erros){
+         if(erro != null) throw erro;
+      }
+   }
+
+   /**
+    * Calcula a média dos pesos das réplicas e atualiza a rede principal.
+    */
+   private void reduzir(){
+      double[] soma = somas[0];
+      double n = replicas.length;
+      for(int i = 0; i < media.length; i++){
+         media[i] = soma[i] / n;
+      }
+
+      rede.configurarParametros(media);
+   }
+
+   /**
+    * Retorna o histórico de perdas das épocas treinadas.
+    * <p>
+    *    A perda de cada época é a média das perdas calculadas pelas réplicas antes
+    *    de cada passo local.
+    * </p>
+    * @return histórico de perdas.
+    */
+   public HistoricoPerda obterHistoricoPerda(){
+      return historico;
+   }
+
+   /**
+    * Retorna a vazão do último treino, somando as amostras de todas as réplicas.
+    * @return amostras processadas por segundo.
+    */
+   public double amostrasPorSegundo(){
+      if(tempoTreino == 0) return 0;
+      return amostrasProcessadas / (tempoTreino / 1e9);
+   }
+
+   /**
+    * Réplica treinada por uma thread, com a sua parte dos dados.
+    */
+   private static class Replica{
+      RedeNeural rede;
+      int id;
+      SplittableRandom random;
+
+      double[][] entradas;
+      double[][] saidas;
+      int[] ordem;
+      int pos;
+
+      double[][] loteX;
+      double[][] loteY;
+      double[] gradiente;
+
+      /**
+       * Pesos da réplica ao fim dos passos locais, somados na redução.
+       */
+      double[] pesos;
+
+      /**
+       * Soma das perdas dos passos da época atual, ponderadas pelas amostras.
+       */
+      double perda = 0;
+
+      /**
+       * Amostras usadas na época atual.
+       */
+      long amostras = 0;
+
+      Replica(RedeNeural rede, int id, SplittableRandom random){
+         this.rede = rede;
+         this.id = id;
+         this.random = random;
+         this.gradiente = new double[rede.obterQuantidadeParametros()];
+         this.pesos = new double[gradiente.length];
+      }
+
+      /**
+       * Separa as amostras da réplica.
+       */
+      void particionar(double[][] x, double[][] y, int total, int tamLote){
+         int n = (x.length - id + total - 1) / total;
+         entradas = new double[n][];
+         saidas = new double[n][];
+         ordem = new int[n];
+         for(int i = 0; i < n; i++){
+            entradas[i] = x[id + i * total];
+            saidas[i] = y[id + i * total];
+            ordem[i] = i;
+         }
+
+         int tam = Math.min(tamLote, n);
+         loteX = new double[tam][];
+         loteY = new double[tam][];
+         pos = n;
+      }
+
+      /**
+       * Treina um lote das amostras locais, embaralhando novamente sempre que todas
+       * as amostras forem usadas.
+       */
+      void passo(){
+         int n = entradas.length;
+         for(int i = 0; i < loteX.length; i++){
+            if(pos == n){
+               embaralhar();
+               pos = 0;
+            }
+            loteX[i] = entradas[ordem[pos]];
+            loteY[i] = saidas[ordem[pos]];
+            pos++;
+         }
+
+         perda += loteX.length * rede.calcularGradiente(loteX, loteY, gradiente);
+         amostras += loteX.length;
+         rede.aplicarGradiente(gradiente);
+      }
+
+      void embaralhar(){
+         for(int i = ordem.length-1; i > 0; i--){
+            int j = random.nextInt(i+1);
+            int temp = ordem[i];
+            ordem[i] = ordem[j];
+            ordem[j] = temp;
+         }
+      }
+   }
+}
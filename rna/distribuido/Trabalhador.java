@@ -0,0 +1,151 @@
+package rna.distribuido;
+
+import java.io.IOException;
+import java.net.Socket;
+import java.util.Random;
+
+import rna.estrutura.RedeNeural;
+
+/**
+ * Trabalhador do treino distribuído da {@code Rede Neural}.
+ * <p>
+ *    O trabalhador possui uma parte dos dados de treino e uma rede com a mesma
+ *    arquitetura da rede do {@link Coordenador}. A cada passo ele recebe os pesos
+ *    atuais, calcula o gradiente médio do próximo lote das suas amostras e envia o
+ *    gradiente de volta, até o coordenador encerrar o treino.
+ * </p>
+ * <p>
+ *    As amostras são percorridas em ordem embaralhada, que é embaralhada novamente
+ *    sempre que todas as amostras locais são usadas. O gradiente de cada lote é
+ *    calculado por {@code RedeNeural.calcularGradiente()}, então as threads configuradas
+ *    na rede do trabalhador também são usadas.
+ * </p>
+ * Exemplo:
+ * <pre>{@code
+ * Trabalhador trabalhador = new Trabalhador(rede, parteX, parteY);
+ * trabalhador.executar("localhost", 5000);
+ * }</pre>
+ */
+public class Trabalhador{
+
+   /**
+    * Rede neural local.
+    */
+   private RedeNeural rede;
+
+   /**
+    * Dados de entrada locais.
+    */
+   private double[][] entradas;
+
+   /**
+    * Dados de saída locais.
+    */
+   private double[][] saidas;
+
+   /**
+    * Gerador de números aleatórios do embaralhamento.
+    */
+   private Random random = new Random();
+
+   /**
+    * Inicializa o trabalhador com a sua parte dos dados.
+    * @param rede rede neural compilada, com a mesma arquitetura da rede do coordenador.
+    * @param entradas dados de entrada locais.
+    * @param saidas dados de saída locais.
+    * @throws IllegalArgumentException se os dados forem vazios ou as quantidades de
+    * amostras de entrada e saída forem diferentes.
+    */
+   public Trabalhador(RedeNeural rede, double[][] entradas, double[][] saidas){
+      if(entradas.length == 0 || entradas.length != saidas.length){
+         throw new IllegalArgumentException(
+            "Os dados do trabalhador devem ter a mesma quantidade de amostras, maior que zero."
+         );
+      }
+
+      this.rede = rede;
+      this.entradas = entradas;
+      this.saidas = saidas;
+   }
+
+   /**
+    * Configura a seed do embaralhamento das amostras locais.
+    * @param seed nova seed.
+    */
+   public void configurarSeed(long seed){
+      this.random.setSeed(seed);
+   }
+
+   /**
+    * Conecta ao coordenador e participa do treino até o coordenador encerrá-lo.
+    * @param host endereço do coordenador.
+    * @param porta porta do coordenador.
+    */
+   public void executar(String host, int porta){
+      Canal canal;
+      try{
+         canal = new Canal(new Socket(host, porta));
+      }catch(IOException e){
+         throw new RuntimeException("Erro ao conectar ao coordenador em " + host + ":" + porta + ".", e);
+      }
+
+      int n = entradas.length;
+      int[] ordem = new int[n];
+      for(int i = 0; i < n; i++){
+         ordem[i] = i;
+      }
+      embaralhar(ordem);
+
+      double[] gradiente = new double[rede.obterQuantidadeParametros()];
+      double[][] loteX = new double[0][];
+      double[][] loteY = new double[0][];
+      int pos = 0;
+
+      try{
+         canal.enviar(Canal.OLA, n, gradiente.length, 0, null);
+
+         while(true){
+            canal.receber();
+            if(canal.tipo == Canal.FIM) break;
+            if(canal.tipo != Canal.PESOS){
+               throw new IllegalStateException("Mensagem inesperada recebida (" + canal.tipo + ").");
+            }
+
+            rede.configurarParametros(canal.valores);
+
+            int tamLote = Math.min(canal.a, n);
+            if(loteX.length != tamLote){
+               loteX = new double[tamLote][];
+               loteY = new double[tamLote][];
+            }
+            for(int i = 0; i < tamLote; i++){
+               if(pos == n){
+                  embaralhar(ordem);
+                  pos = 0;
+               }
+               loteX[i] = entradas[ordem[pos]];
+               loteY[i] = saidas[ordem[pos]];
+               pos++;
+            }
+
+            double perda = rede.calcularGradiente(loteX, loteY, gradiente);
+            canal.enviar(Canal.GRADIENTE, tamLote, 0, perda, gradiente);
+         }
+
+      }finally{
+         canal.fechar();
+      }
+   }
+
+   /**
+    * Embaralha os índices das amostras.
+    */
+   private void embaralhar(int[] ordem){
+      for(int i = ordem.length-1; i > 0; i--){
+         int j = random.nextInt(i+1);
+         int temp = ordem[i];
+         ordem[i] = ordem[j];
+         ordem[j] = temp;
+      }
+   }
+}
@@ -0,0 +1,265 @@
+package rna.estrutura;
+
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Aprendizado contínuo da {@code Rede Neural} com inferência concorrente.
+ * <p>
+ *    A rede fornecida é treinada amostra por amostra (ou em pequenos lotes) por
+ *    {@code aprender()}, enquanto outras threads fazem inferência ao mesmo tempo por
+ *    {@code calcularSaida()}. As threads de inferência nunca leem os pesos que estão
+ *    sendo treinados: a cada {@code N} passos de aprendizado (veja
+ *    {@link #configurarIntervaloPublicacao(int)}) os pesos são copiados para uma área
+ *    publicada, e cada thread de inferência possui o seu próprio clone da rede, que só
+ *    copia os pesos publicados quando uma nova versão aparece.
+ * </p>
+ * <p>
+ *    A publicação é pensada para muitas leituras e poucas escritas: o aprendizado só
+ *    trava as leituras durante a cópia dos pesos publicados, e as threads de inferência
+ *    fazem leituras otimistas, sem travar nada, repetindo a cópia com a trava apenas se
+ *    uma publicação acontecer no meio dela. Entre publicações, a inferência custa apenas
+ *    a leitura de um número de versão.
+ * </p>
+ * <p>
+ *    Nenhuma memória é alocada pelo aprendizado ou pela inferência depois da primeira
+ *    chamada de cada thread. Chamadas de {@code aprender()} de threads diferentes são
+ *    executadas uma de cada vez.
+ * </p>
+ * Exemplo:
+ * <pre>{@code
+ * AprendizadoOnline online = new AprendizadoOnline(rede);
+ *
+ * //thread do fluxo de eventos
+ * online.aprender(entrada, saida);
+ *
+ * //threads de inferência
+ * online.calcularSaida(entrada, previsao);
+ * }</pre>
+ */
+public class AprendizadoOnline{
+
+   /**
+    * Rede treinada pelo aprendizado, usada apenas pela thread que está aprendendo.
+    */
+   private RedeNeural rede;
+
+   /**
+    * Pesos publicados para as threads de inferência.
+    */
+   private double[] publicados;
+
+   /**
+    * Auxiliar para copiar os pesos da rede antes de travar a publicação.
+    */
+   private double[] copia;
+
+   /**
+    * Versão dos pesos publicados.
+    */
+   private volatile long versao = 0;
+
+   /**
+    * Trava da área publicada.
+    */
+   private final StampedLock trava = new StampedLock();
+
+   /**
+    * Trava das chamadas de aprendizado.
+    */
+   private final Object escrita = new Object();
+
+   /**
+    * Clone da rede de cada thread de inferência.
+    */
+   private final ThreadLocal<Leitor> leitores;
+
+   /**
+    * Quantidade de passos de aprendizado entre as publicações.
+    */
+   private int intervalo = 1;
+
+   /**
+    * Passos de aprendizado desde a última publicação.
+    */
+   private int passos = 0;
+
+   /**
+    * Inicializa o aprendizado contínuo, publicando os pesos atuais da rede.
+    * <p>
+    *    Depois disso a rede deve ser usada apenas por meio deste objeto.
+    * </p>
+    * @param rede rede neural compilada.
+    */
+   public AprendizadoOnline(RedeNeural rede){
+      this.rede = rede;
+      this.publicados = rede.obterParametros();
+      this.copia = new double[publicados.length];
+      this.leitores = ThreadLocal.withInitial(() -> new Leitor(rede.clone()));
+   }
+
+   /**
+    * Configura a quantidade de passos de aprendizado entre as publicações dos pesos.
+    * <p>
+    *    Intervalos maiores reduzem o custo de cópia dos pesos, tanto no aprendizado
+    *    quanto nas threads de inferência, em troca de previsões com pesos um pouco
+    *    mais antigos.
+    * </p>
+    * <p>
+    *    {@code O valor padrão é 1}
+    * </p>
+    * @param passos quantidade de passos entre as publicações.
+    * @throws IllegalArgumentException se a quantidade de passos for menor que um.
+    */
+   public void configurarIntervaloPublicacao(int passos){
+      if(passos < 1){
+         throw new IllegalArgumentException(
+            "O intervalo de publicação (" + passos + ") deve ser maior que zero."
+         );
+      }
+
+      synchronized(escrita){
+         this.intervalo = passos;
+      }
+   }
+
+   /**
+    * Treina a rede com uma única amostra e publica os pesos caso o intervalo de
+    * publicação tenha sido alcançado.
+    * @param entrada dados de entrada da amostra.
+    * @param saida dados de saída esperados da amostra.
+    * @return perda da amostra antes da atualização dos pesos.
+    */
+   public double aprender(double[] entrada, double[] saida){
+      synchronized(escrita){
+         double perda = rede.aprender(entrada, saida);
+         concluirPasso();
+         return perda;
+      }
+   }
+
+   /**
+    * Treina a rede com um pequeno lote de amostras e publica os pesos caso o
+    * intervalo de publicação tenha sido alcançado.
+    * @param entradas dados de entrada do lote.
+    * @param saidas dados de saída esperados do lote.
+    * @return perda média do lote antes da atualização dos pesos.
+    */
+   public double aprender(double[][] entradas, double[][] saidas){
+      synchronized(escrita){
+         double perda = rede.aprender(entradas, saidas);
+         concluirPasso();
+         return perda;
+      }
+   }
+
+   /**
+    * Conta o passo de aprendizado e publica os pesos quando necessário.
+    */
+   private void concluirPasso(){
+      if(++passos >= intervalo){
+         publicarPesos();
+      }
+   }
+
+   /**
+    * Publica os pesos atuais da rede imediatamente, independente do intervalo
+    * de publicação.
+    */
+   public void publicar(){
+      synchronized(escrita){
+         publicarPesos();
+      }
+   }
+
+   /**
+    * Copia os pesos da rede para a área publicada.
+    */
+   private void publicarPesos(){
+      rede.obterParametros(copia);
+
+      long stamp = trava.writeLock();
+      try{
+         System.arraycopy(copia, 0, publicados, 0, copia.length);
+         versao++;
+      }finally{
+         trava.unlockWrite(stamp);
+      }
+
+      passos = 0;
+   }
+
+   /**
+    * Calcula a saída da rede com os últimos pesos publicados.
+    * <p>
+    *    Pode ser chamado por várias threads ao mesmo tempo, inclusive durante o
+    *    aprendizado.
+    * </p>
+    * @param entrada dados de entrada.
+    * @param saida array que receberá a saída da rede.
+    * @throws IllegalArgumentException se o tamanho da entrada for diferente da capacidade
+    * de entrada da rede.
+    */
+   public void calcularSaida(double[] entrada, double[] saida){
+      Leitor leitor = leitores.get();
+      if(leitor.versao != versao){
+         sincronizar(leitor);
+      }
+
+      leitor.rede.calcularSaida(entrada);
+      System.arraycopy(leitor.rede.obterSaidas(), 0, saida, 0, saida.length);
+   }
+
+   /**
+    * Copia os pesos publicados para o clone da thread.
+    */
+   private void sincronizar(Leitor leitor){
+      long stamp = trava.tryOptimisticRead();
+      long v = versao;
+      leitor.rede.configurarParametros(publicados);
+
+      if(!trava.validate(stamp)){
+         //uma publicação aconteceu durante a cópia
+         stamp = trava.readLock();
+         try{
+            v = versao;
+            leitor.rede.configurarParametros(publicados);
+         }finally{
+            trava.unlockRead(stamp);
+         }
+      }
+
+      leitor.versao = v;
+   }
+
+   /**
+    * Retorna a versão dos pesos publicados, incrementada a cada publicação.
+    * @return versão atual.
+    */
+   public long versao(){
+      return versao;
+   }
+
+   /**
+    * Retorna a rede treinada pelo aprendizado.
+    * <p>
+    *    A rede não deve ser usada enquanto houver chamadas de {@code aprender()} em
+    *    andamento.
+    * </p>
+    * @return rede neural.
+    */
+   public RedeNeural obterRede(){
+      return rede;
+   }
+
+   /**
+    * Clone da rede de uma thread de inferência e a versão dos pesos dele.
+    */
+   private static class Leitor{
+      RedeNeural rede;
+      long versao = -1;
+
+      Leitor(RedeNeural rede){
+         this.rede = rede;
+      }
+   }
+}
@@ -0,0 +1,418 @@
+package rna.estrutura;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongFunction;
+
+/**
+ * Comitê (ensemble) de Redes Neurais, treinadas e avaliadas em paralelo.
+ * <p>
+ *    Cada membro é uma {@code RedeNeural} independente, normalmente com a mesma
+ *    arquitetura e seeds diferentes. Com o bootstrap habilitado, cada membro também
+ *    treina com uma reamostragem própria dos dados (sorteio das amostras com reposição),
+ *    o que aumenta a diversidade entre os membros.
+ * </p>
+ * <p>
+ *    O treino e a inferência dividem os membros entre as threads, uma por processador
+ *    por padrão. Como os membros são independentes, o tempo total fica próximo do tempo
+ *    de uma única rede enquanto houver processadores disponíveis.
+ * </p>
+ * <p>
+ *    As saídas do comitê podem ser a média das saídas dos membros ou a votação, onde
+ *    cada membro vota na classe de maior valor da sua saída.
+ * </p>
+ * Exemplo:
+ * <pre>{@code
+ * Comite comite = new Comite(8, 1234, seed -> {
+ *    RedeNeural rede = new RedeNeural(new int[]{4, 8, 3});
+ *    rede.configurarSeed(seed);
+ *    rede.compilar(new ErroMedioQuadrado(), new Adam(), new Xavier());
+ *    rede.configurarAtivacao("sigmoid");
+ *    return rede;
+ * });
+ * comite.configurarBootstrap(true);
+ * comite.treinar(treinoX, treinoY, 1_000);
+ * double[][] previsoes = comite.calcularSaida(testeX);
+ * }</pre>
+ */
+public class Comite{
+
+   /**
+    * Redes neurais que formam o comitê.
+    */
+   private RedeNeural[] membros;
+
+   /**
+    * Quantidade de threads usadas no treino e na inferência.
+    */
+   private int threads = Runtime.getRuntime().availableProcessors();
+
+   /**
+    * Treinar cada membro com uma reamostragem dos dados.
+    */
+   private boolean bootstrap = false;
+
+   /**
+    * Combinar as saídas por votação ao invés da média.
+    */
+   private boolean votacao = false;
+
+   /**
+    * Gerador usado nas reamostragens.
+    */
+   private Random random = new Random();
+
+   /**
+    * Inicializa um comitê com as redes fornecidas.
+    * @param membros redes neurais compiladas, com as mesmas dimensões de entrada e saída.
+    * @throws IllegalArgumentException se nenhuma rede for fornecida ou se as dimensões
+    * de entrada e saída forem diferentes entre as redes.
+    * @throws IllegalArgumentException se a mesma rede aparecer mais de uma vez ou se dois
+    * membros compartilharem o otimizador, como acontece com redes criadas por {@code clone()}.
+    */
+   public Comite(RedeNeural... membros){
+      if(membros.length == 0){
+         throw new IllegalArgumentException(
+            "O comitê deve ter pelo menos um membro."
+         );
+      }
+
+      int entrada = membros[0].obterTamanhoEntrada();
+      int saida = membros[0].obterTamanhoSaida();
+      for(int i = 0; i < membros.length; i++){
+         RedeNeural membro = membros[i];
+         if(membro.obterTamanhoEntrada() != entrada || membro.obterTamanhoSaida() != saida){
+            throw new IllegalArgumentException(
+               "Todos os membros do comitê devem ter as mesmas dimensões de entrada e saída."
+            );
+         }
+
+         //os membros são treinados ao mesmo tempo e não podem compartilhar estado
+         for(int j = 0; j < i; j++){
+            if(membros[j] == membro){
+               throw new IllegalArgumentException(
+                  "O membro " + i + " é a mesma rede do membro " + j + "."
+               );
+            }
+            if(membros[j].obterOtimizador() == membro.obterOtimizador()){
+               throw new IllegalArgumentException(
+                  "Os membros " + j + " e " + i + " compartilham o mesmo otimizador, " +
+                  "cada membro deve ter a sua própria instância."
+               );
+            }
+         }
+      }
+
+      this.membros = membros.clone();
+   }
+
+   /**
+    * Inicializa um comitê criando cada membro a partir de uma seed diferente.
+    * <p>
+    *    A fábrica recebe a seed de cada membro, que deve ser configurada na rede
+    *    antes da compilação. As seeds são {@code seed + 1}, {@code seed + 2}, ..., e
+    *    a seed também é usada no sorteio das reamostragens do bootstrap.
+    * </p>
+    * @param quantidade quantidade de membros.
+    * @param seed seed base do comitê.
+    * @param fabrica fábrica que cria uma rede compilada a partir da seed.
+    * @throws IllegalArgumentException se a quantidade de membros for menor que um.
+    */
+   public Comite(int quantidade, long seed, LongFunction<RedeNeural> fabrica){
+      this(criarMembros(quantidade, seed, fabrica));
+      this.random.setSeed(seed);
+   }
+
+   /**
+    * Cria os membros do comitê.
+    */
+   private static RedeNeural[] criarMembros(int quantidade, long seed, LongFunction<RedeNeural> fabrica){
+      if(quantidade < 1){
+         throw new IllegalArgumentException(
+            "A quantidade de membros (" + quantidade + ") deve ser maior que zero."
+         );
+      }
+
+      RedeNeural[] membros = new RedeNeural[quantidade];
+      for(int i = 0; i < quantidade; i++){
+         membros[i] = fabrica.apply(seed + i + 1);
+      }
+
+      return membros;
+   }
+
+   /**
+    * Configura a quantidade de threads usadas no treino e na inferência.
+    * <p>
+    *    {@code O valor padrão é a quantidade de processadores disponíveis}
+    * </p>
+    * @param threads quantidade de threads.
+    * @throws IllegalArgumentException se a quantidade de threads for menor que um.
+    */
+   public void configurarThreads(int threads){
+      if(threads < 1){
+         throw new IllegalArgumentException(
+            "A quantidade de threads (" + threads + ") deve ser maior que zero."
+         );
+      }
+
+      this.threads = threads;
+   }
+
+   /**
+    * Configura o treino de cada membro com uma reamostragem dos dados, com a mesma
+    * quantidade de amostras sorteadas com reposição. As amostras não são copiadas,
+    * apenas as referências das linhas.
+    * <p>
+    *    {@code O valor padrão é false}
+    * </p>
+    * @param bootstrap usar ou não reamostragem.
+    */
+   public void configurarBootstrap(boolean bootstrap){
+      this.bootstrap = bootstrap;
+   }
+
+   /**
+    * Configura a forma de combinar as saídas dos membros.
+    * <p>
+    *    Na votação, cada membro vota na posição de maior valor da sua saída e o resultado
+    *    é um vetor com 1 na posição mais votada (empates ficam com a primeira posição).
+    *    Com apenas uma saída, cada membro vota em 1 quando a saída for maior que 0.5.
+    * </p>
+    * <p>
+    *    {@code O valor padrão é false (média das saídas)}
+    * </p>
+    * @param votacao usar votação ao invés da média.
+    */
+   public void configurarVotacao(boolean votacao){
+      this.votacao = votacao;
+   }
+
+   /**
+    * Treina todos os membros em paralelo.
+    * @param entradas dados de entrada do treino.
+    * @param saidas dados de saída do treino.
+    * @param epochs quantidade de épocas de treinamento.
+    */
+   public void treinar(double[][] entradas, double[][] saidas, int epochs){
+      treinar(entradas, saidas, epochs, 0);
+   }
+
+   /**
+    * Treina todos os membros em paralelo usando lotes.
+    * @param entradas dados de entrada do treino.
+    * @param saidas dados de saída do treino.
+    * @param epochs quantidade de épocas de treinamento.
+    * @param tamLote tamanho do lote, zero treina uma amostra por vez.
+    */
+   public void treinar(double[][] entradas, double[][] saidas, int epochs, int tamLote){
+      if(entradas.length != saidas.length){
+         throw new IllegalArgumentException(
+            "A quantidade de dados de entrada (" + entradas.length +
+            ") e saída (" + saidas.length + ") deve ser igual."
+         );
+      }
+
+      //reamostragens sorteadas antes do treino para não depender da ordem das threads
+      double[][][] x = new double[membros.length][][];
+      double[][][] y = new double[membros.length][][];
+      for(int m = 0; m < membros.length; m++){
+         if(bootstrap){
+            x[m] = new double[entradas.length][];
+            y[m] = new double[saidas.length][];
+            for(int i = 0; i < entradas.length; i++){
+               int id = random.nextInt(entradas.length);
+               x[m][i] = entradas[id];
+               y[m][i] = saidas[id];
+            }
+         }else{
+            x[m] = entradas;
+            y[m] = saidas;
+         }
+      }
+
+      executar(m -> {
+         if(tamLote > 0) membros[m].treinar(x[m], y[m], epochs, tamLote);
+         else membros[m].treinar(x[m], y[m], epochs);
+      });
+   }
+
+   /**
+    * Calcula a saída do comitê para cada amostra de entrada, com os membros avaliados
+    * em paralelo sobre o mesmo lote de entradas.
+    * @param entradas dados de entrada.
+    * @return saídas combinadas do comitê para cada amostra.
+    */
+   public double[][] calcularSaida(double[][] entradas){
+      double[][][] saidasMembros = new double[membros.length][][];
+      executar(m -> saidasMembros[m] = membros[m].calcularSaida(entradas));
+
+      int tamSaida = membros[0].obterTamanhoSaida();
+      double[][] resultado = new double[entradas.length][tamSaida];
+      for(int i = 0; i < entradas.length; i++){
+         if(votacao){
+            votar(saidasMembros, i, resultado[i]);
+         }else{
+            for(double[][] saidaMembro : saidasMembros){
+               for(int j = 0; j < tamSaida; j++){
+                  resultado[i][j] += saidaMembro[i][j];
+               }
+            }
+            for(int j = 0; j < tamSaida; j++){
+               resultado[i][j] /= membros.length;
+            }
+         }
+      }
+
+      return resultado;
+   }
+
+   /**
+    * Calcula a saída do comitê para uma única amostra.
+    * <p>
+    *    Com apenas uma amostra o custo de criar as threads é maior que o da propagação,
+    *    então os membros são avaliados em sequência.
+    * </p>
+    * @param entrada dados de entrada.
+    * @return saída combinada do comitê.
+    */
+   public double[] calcularSaida(double[] entrada){
+      double[][] entradas = {entrada};
+      double[][][] saidasMembros = new double[membros.length][][];
+      for(int m = 0; m < membros.length; m++){
+         saidasMembros[m] = membros[m].calcularSaida(entradas);
+      }
+
+      double[] resultado = new double[membros[0].obterTamanhoSaida()];
+      if(votacao){
+         votar(saidasMembros, 0, resultado);
+      }else{
+         for(double[][] saidaMembro : saidasMembros){
+            for(int j = 0; j < resultado.length; j++){
+               resultado[j] += saidaMembro[0][j] / membros.length;
+            }
+         }
+      }
+
+      return resultado;
+   }
+
+   /**
+    * Calcula a acurácia do comitê, comparando a posição de maior valor da saída
+    * combinada com a posição de maior valor da saída esperada.
+    * @param entradas dados de entrada.
+    * @param saidas dados de saída esperados.
+    * @return acurácia entre 0 e 1.
+    */
+   public double acuracia(double[][] entradas, double[][] saidas){
+      double[][] previsoes = calcularSaida(entradas);
+
+      int acertos = 0;
+      for(int i = 0; i < previsoes.length; i++){
+         if(previsoes[i].length == 1){
+            if((previsoes[i][0] > 0.5) == (saidas[i][0] > 0.5)) acertos++;
+         }else if(indiceMaximo(previsoes[i]) == indiceMaximo(saidas[i])){
+            acertos++;
+         }
+      }
+
+      return (double) acertos / previsoes.length;
+   }
+
+   /**
+    * Conta os votos dos membros para a amostra e marca a posição mais votada.
+    */
+   private void votar(double[][][] saidasMembros, int amostra, double[] resultado){
+      if(resultado.length == 1){
+         int votos = 0;
+         for(double[][] saidaMembro : saidasMembros){
+            if(saidaMembro[amostra][0] > 0.5) votos++;
+         }
+         resultado[0] = (2 * votos > saidasMembros.length) ? 1 : 0;
+         return;
+      }
+
+      int[] votos = new int[resultado.length];
+      for(double[][] saidaMembro : saidasMembros){
+         votos[indiceMaximo(saidaMembro[amostra])]++;
+      }
+
+      int maisVotado = 0;
+      for(int j = 1; j < votos.length; j++){
+         if(votos[j] > votos[maisVotado]) maisVotado = j;
+      }
+      resultado[maisVotado] = 1;
+   }
+
+   /**
+    * Retorna a posição do maior valor do array.
+    */
+   private int indiceMaximo(double[] arr){
+      int id = 0;
+      for(int i = 1; i < arr.length; i++){
+         if(arr[i] > arr[id]) id = i;
+      }
+      return id;
+   }
+
+   /**
+    * Tarefa executada para cada membro do comitê.
+    */
+   private interface TarefaMembro{
+      void executar(int membro);
+   }
+
+   /**
+    * Executa a tarefa para todos os membros, dividindo os membros entre as threads.
+    */
+   private void executar(TarefaMembro tarefa){
+      AtomicInteger proximo = new AtomicInteger(0);
+      int nThreads = Math.min(threads, membros.length);
+
+      Thread[] trabalhadores = new Thread[nThreads];
+      RuntimeException[] erros = new RuntimeException[nThreads];
+      for(int t = 0; t < nThreads; t++){
+         final int id = t;
+         trabalhadores[t] = new Thread(() -> {
+            try{
+               int m;
+               while((m = proximo.getAndIncrement()) < membros.length){
+                  tarefa.executar(m);
+               }
+            }catch(RuntimeException e){
+               erros[id] = e;
+            }
+         });
+         trabalhadores[t].start();
+      }
+
+      try{
+         for(Thread trabalhador : trabalhadores){
+            trabalhador.join();
+         }
+      }catch(InterruptedException e){
+         Thread.currentThread().interrupt();
+         throw new RuntimeException(e);
+      }
+
+      for(RuntimeException erro : erros){
+         if(erro != null) throw erro;
+      }
+   }
+
+   /**
+    * Retorna as redes que formam o comitê.
+    * @return membros do comitê.
+    */
+   public RedeNeural[] obterMembros(){
+      return membros.clone();
+   }
+
+   /**
+    * Retorna a quantidade de membros do comitê.
+    * @return quantidade de membros.
+    */
+   public int quantidadeMembros(){
+      return membros.length;
+   }
+}
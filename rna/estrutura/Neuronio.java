@@ -298,6 +298,11 @@ public class Neuronio implements Cloneable{
             clone.entradas[i] = this.entradas[i];
          }
 
+         //cada clone precisa dos seus próprios gradientes para poder
+         //ser treinado de forma independente
+         clone.gradientes = new double[this.gradientes.length];
+         clone.gradientesAcumulados = new double[this.gradientesAcumulados.length];
+
          return clone;
       }catch(Exception e){
          throw new RuntimeException(e);
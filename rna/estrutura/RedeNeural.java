@@ -4,11 +4,15 @@ import rna.ativacoes.Ativacao;
 import rna.avaliacao.Avaliador;
 import rna.avaliacao.perda.ErroMedioQuadrado;
 import rna.avaliacao.perda.Perda;
+import rna.dados.FonteDados;
 import rna.inicializadores.Aleatorio;
 import rna.inicializadores.Inicializador;
 import rna.otimizadores.Otimizador;
 import rna.otimizadores.SGD;
 
+import rna.treinamento.Cancelamento;
+import rna.treinamento.HistoricoPerda;
+import rna.treinamento.OuvinteTreino;
 import rna.treinamento.Treinador;
 
 //TODO
@@ -538,6 +542,18 @@ public class RedeNeural implements Cloneable{
     *    <li>
     *       <strong> Adadelta </strong>: Também é novo pra mim e ainda to testando melhor. 
     *    </li>
+    *    <li>
+    *       <strong> LARS </strong>: SGD com momentum e taxa de aprendizagem adaptada por camada, 
+    *       pensado para o treino com lotes muito grandes.
+    *    </li>
+    *    <li>
+    *       <strong> LAMB </strong>: Aplica a mesma adaptação por camada do LARS sobre a 
+    *       atualização do Adam.
+    *    </li>
+    *    <li>
+    *       <strong> LBFGS </strong>: Método de segunda ordem aproximado que usa todo o conjunto 
+    *       de dados a cada iteração, indicado para conjuntos de dados pequenos.
+    *    </li>
     * </ol>
     * <p>
     *    {@code O otimizador padrão é o SGD}
@@ -557,9 +573,9 @@ public class RedeNeural implements Cloneable{
     * Define se durante o processo de treinamento, a rede vai salvar dados relacionados a 
     * função de custo/perda de cada época.
     * <p>
-    *    Calcular a perda é uma operação que pode ser computacionalmente cara dependendo do 
-    *    tamanho da rede e do conjunto de dados, então deve ser bem avaliado querer habilitar 
-    *    ou não esse recurso.
+    *    O valor salvo é a perda média das amostras da época, calculada a partir das saídas 
+    *    que o treino já obtém para cada amostra, sem percorrer os dados novamente. Ainda 
+    *    assim há o custo de calcular a função de perda para cada amostra.
     * </p>
     * <p>
     *    {@code O valor padrão é false}
@@ -570,6 +586,325 @@ public class RedeNeural implements Cloneable{
       this.treinador.configurarHistoricoCusto(calcular);
    }
 
+   /**
+    * Registra um ouvinte para acompanhar o andamento do treinamento.
+    * <p>
+    *    O ouvinte é avisado no início e no fim de cada época e, opcionalmente, a cada 
+    *    intervalo de lotes, recebendo métricas como a perda atual, amostras processadas 
+    *    por segundo e o tempo gasto em cada etapa do treino (propagação, retropropagação 
+    *    e otimizador).
+    * </p>
+    * <p>
+    *    As medições de tempo só são feitas enquanto existir algum ouvinte registrado, 
+    *    então sem ouvintes o treino não tem custo adicional.
+    * </p>
+    * @param ouvinte ouvinte de treino.
+    * @throws IllegalArgumentException se o ouvinte for nulo.
+    */
+   public void adicionarOuvinte(OuvinteTreino ouvinte){
+      if(ouvinte == null){
+         throw new IllegalArgumentException("O ouvinte não pode ser nulo.");
+      }
+
+      this.treinador.adicionarOuvinte(ouvinte);
+   }
+
+   /**
+    * Remove um ouvinte de treino registrado anteriormente.
+    * @param ouvinte ouvinte de treino.
+    */
+   public void removerOuvinte(OuvinteTreino ouvinte){
+      this.treinador.removerOuvinte(ouvinte);
+   }
+
+   /**
+    * Configura a avaliação de um conjunto de validação em segundo plano durante o treino.
+    * <p>
+    *    A cada {@code intervalo} épocas os pesos da rede são copiados e a perda média do 
+    *    conjunto de validação é calculada numa thread separada, usando a função de perda 
+    *    da rede, enquanto o treino continua. Caso uma avaliação ainda esteja em andamento 
+    *    quando a próxima cópia for feita, apenas a cópia mais recente será avaliada.
+    * </p>
+    * <p>
+    *    Os resultados ficam disponíveis em {@code obterHistoricoValidacao()} e são entregues 
+    *    aos ouvintes de treino pelo método {@code validacao()}. No final de cada treino a 
+    *    rede espera a avaliação da última cópia.
+    * </p>
+    * @param entradas dados de entrada da validação.
+    * @param saidas dados de saída da validação.
+    * @param intervalo quantidade de épocas entre as avaliações.
+    * @throws IllegalArgumentException se o modelo não foi compilado previamente.
+    * @throws IllegalArgumentException se os dados de validação forem vazios ou incompatíveis 
+    * com a rede.
+    * @throws IllegalArgumentException se o intervalo for menor que um.
+    */
+   public void configurarValidacao(double[][] entradas, double[][] saidas, int intervalo){
+      this.verificarCompilacao();
+
+      if(entradas.length == 0 || entradas.length != saidas.length){
+         throw new IllegalArgumentException(
+            "Os dados de validação devem ter a mesma quantidade de amostras, maior que zero."
+         );
+      }
+      if(entradas[0].length != this.obterTamanhoEntrada() || saidas[0].length != this.obterTamanhoSaida()){
+         throw new IllegalArgumentException(
+            "As dimensões dos dados de validação não correspondem à entrada e saída da rede."
+         );
+      }
+      if(intervalo < 1){
+         throw new IllegalArgumentException(
+            "O intervalo de validação (" + intervalo + ") deve ser maior que zero."
+         );
+      }
+
+      this.treinador.configurarValidacao(this, entradas, saidas, intervalo);
+   }
+
+   /**
+    * Remove a validação em segundo plano configurada.
+    */
+   public void removerValidacao(){
+      this.treinador.removerValidacao();
+   }
+
+   /**
+    * Retorna o histórico das perdas de validação calculadas durante o treino, com um 
+    * valor por avaliação.
+    * @return histórico de validação, ou nulo caso a validação não esteja configurada.
+    */
+   public HistoricoPerda obterHistoricoValidacao(){
+      return this.treinador.obterHistoricoValidacao();
+   }
+
+   /**
+    * Configura a parada antecipada do treino.
+    * <p>
+    *    Durante o treino a perda monitorada é acompanhada e, quando passam {@code paciencia} 
+    *    épocas sem que ela fique abaixo da melhor perda menos {@code deltaMinimo}, o treino 
+    *    é finalizado antes da quantidade de épocas fornecida. Cada chamada de treino começa 
+    *    um novo acompanhamento.
+    * </p>
+    * Métricas disponíveis:
+    * <ul>
+    *    <li>
+    *       {@code "perda"}: perda média de treino de cada época.
+    *    </li>
+    *    <li>
+    *       {@code "validacao"}: perda do conjunto de validação, configurado por 
+    *       {@code configurarValidacao()}. Como a validação é feita em segundo plano, 
+    *       o treino pode avançar algumas épocas além do ponto de parada.
+    *    </li>
+    * </ul>
+    * <p>
+    *    Com {@code restaurarMelhores} os pesos da melhor época são mantidos numa cópia em 
+    *    memória e aplicados na rede no final do treino. O estado do otimizador não é 
+    *    restaurado.
+    * </p>
+    * @param metrica métrica monitorada, {@code "perda"} ou {@code "validacao"}.
+    * @param paciencia quantidade de épocas sem melhora antes da parada.
+    * @param deltaMinimo redução mínima da perda para ser considerada uma melhora.
+    * @param restaurarMelhores aplicar os pesos da melhor época no final do treino.
+    * @throws IllegalArgumentException se o modelo não foi compilado previamente.
+    * @throws IllegalArgumentException se a métrica não for reconhecida.
+    * @throws IllegalArgumentException se a métrica for a validação e ela não estiver configurada.
+    * @throws IllegalArgumentException se a paciência for menor que um ou o delta mínimo 
+    * for negativo.
+    */
+   public void configurarParadaAntecipada(String metrica, int paciencia, double deltaMinimo, boolean restaurarMelhores){
+      this.verificarCompilacao();
+
+      boolean validacao;
+      if(metrica.equalsIgnoreCase("perda")){
+         validacao = false;
+      }else if(metrica.equalsIgnoreCase("validacao")){
+         validacao = true;
+         if(this.treinador.obterHistoricoValidacao() == null){
+            throw new IllegalArgumentException(
+               "A validação deve ser configurada antes de ser usada na parada antecipada."
+            );
+         }
+      }else{
+         throw new IllegalArgumentException(
+            "Métrica de parada antecipada \"" + metrica + "\" não reconhecida."
+         );
+      }
+
+      if(paciencia < 1){
+         throw new IllegalArgumentException(
+            "A paciência (" + paciencia + ") deve ser maior que zero."
+         );
+      }
+      if(deltaMinimo < 0){
+         throw new IllegalArgumentException(
+            "O delta mínimo (" + deltaMinimo + ") não pode ser negativo."
+         );
+      }
+
+      this.treinador.configurarParadaAntecipada(this, validacao, paciencia, deltaMinimo, restaurarMelhores);
+   }
+
+   /**
+    * Remove a parada antecipada configurada.
+    */
+   public void removerParadaAntecipada(){
+      this.treinador.removerParadaAntecipada();
+   }
+
+   /**
+    * Retorna a época com a melhor perda monitorada pela parada antecipada no último treino,
+    * contada a partir da quantidade total de épocas treinadas pela rede.
+    * @return época da melhor perda, ou -1 caso a parada antecipada não esteja configurada.
+    */
+   public long obterMelhorEpoca(){
+      return this.treinador.obterMelhorEpoca();
+   }
+
+   /**
+    * Configura a quantidade máxima de valores mantidos no histórico de perdas.
+    * <p>
+    *    Com capacidade maior que zero o histórico passa a ser circular, mantendo apenas 
+    *    os valores das últimas épocas, o que é útil em treinos muito longos. Os valores 
+    *    já armazenados são descartados.
+    * </p>
+    * <p>
+    *    {@code O valor padrão é 0 (todos os valores são mantidos)}
+    * </p>
+    * @param capacidade quantidade máxima de valores no histórico.
+    * @throws IllegalArgumentException se a capacidade for negativa.
+    */
+   public void configurarCapacidadeHistorico(int capacidade){
+      if(capacidade < 0){
+         throw new IllegalArgumentException(
+            "A capacidade do histórico (" + capacidade + ") não pode ser negativa."
+         );
+      }
+
+      this.treinador.configurarCapacidadeHistorico(capacidade);
+   }
+
+   /**
+    * Configura a quantidade de lotes que terão seus gradientes acumulados antes de cada
+    * atualização do otimizador no treino em lotes.
+    * <p>
+    *    O lote efetivo de cada atualização passa a ser {@code tamLote * acumulacao}, 
+    *    permitindo treinar com lotes grandes sem precisar manter todas as suas amostras 
+    *    em memória ao mesmo tempo.
+    * </p>
+    * <p>
+    *    {@code O valor padrão é 1}
+    * </p>
+    * @param acumulacao quantidade de lotes acumulados por atualização.
+    * @throws IllegalArgumentException se o valor de acumulação for menor que um.
+    */
+   public void configurarAcumulacaoGradientes(int acumulacao){
+      if(acumulacao < 1){
+         throw new IllegalArgumentException(
+            "O valor de acumulação (" + acumulacao + ") deve ser maior que zero."
+         );
+      }
+
+      this.treinador.configurarAcumulacaoGradientes(acumulacao);
+   }
+
+   /**
+    * Configura a amostragem por importância baseada na perda no treino em lotes.
+    * <p>
+    *    A primeira época é feita com a ordem uniforme de sempre, registrando a perda de
+    *    cada amostra. Nas épocas seguintes as amostras de cada lote são sorteadas com
+    *    probabilidade proporcional à última perda registrada delas, misturada com a
+    *    distribuição uniforme, e as perdas são atualizadas a cada lote. Amostras já
+    *    aprendidas aparecem menos, e o treino gasta mais passos nas amostras difíceis.
+    * </p>
+    * <p>
+    *    Cada gradiente é ponderado por {@code 1 / (n * q)}, onde {@code q} é a
+    *    probabilidade de sorteio da amostra, para que o gradiente do lote continue sendo
+    *    uma estimativa sem viés do gradiente médio. A fração de mistura limita esse peso
+    *    a {@code 1 / mistura}, então valores menores concentram mais o treino nas amostras
+    *    difíceis, mas deixam os gradientes mais ruidosos.
+    * </p>
+    * <p>
+    *    Vale apenas para o treino em lotes com os dados em arrays, não para fontes de dados.
+    * </p>
+    * @param mistura fração da distribuição uniforme, entre zero (exclusivo) e um.
+    * @throws IllegalArgumentException se a mistura estiver fora do intervalo permitido.
+    */
+   public void configurarAmostragemImportancia(double mistura){
+      if(!(mistura > 0 && mistura <= 1)){
+         throw new IllegalArgumentException(
+            "A fração de mistura (" + mistura + ") deve estar entre zero (exclusivo) e um."
+         );
+      }
+
+      this.treinador.configurarAmostragemImportancia(mistura);
+   }
+
+   /**
+    * Desativa a amostragem por importância, voltando à ordem uniforme das amostras.
+    */
+   public void removerAmostragemImportancia(){
+      this.treinador.configurarAmostragemImportancia(0);
+   }
+
+   /**
+    * Configura o embaralhamento dos dados de treino em blocos.
+    * <p>
+    *    Com blocos maiores que um, as amostras são agrupadas em blocos contíguos e apenas 
+    *    a ordem dos blocos é embaralhada a cada época, mantendo as amostras de cada bloco 
+    *    em sequência na memória. Isso melhora o uso de cache em conjuntos de dados grandes, 
+    *    ao custo de uma aleatoriedade menor na ordem das amostras.
+    * </p>
+    * <p>
+    *    {@code O valor padrão é 1 (cada amostra embaralhada individualmente)}
+    * </p>
+    * @param tamBloco quantidade de amostras por bloco.
+    * @throws IllegalArgumentException se o tamanho do bloco for menor que um.
+    */
+   public void configurarEmbaralhamentoBlocos(int tamBloco){
+      if(tamBloco < 1){
+         throw new IllegalArgumentException(
+            "O tamanho do bloco (" + tamBloco + ") deve ser maior que zero."
+         );
+      }
+
+      this.treinador.configurarEmbaralhamentoBlocos(tamBloco);
+   }
+
+   /**
+    * Configura a quantidade de threads usadas pelos modos de treino que dividem
+    * o processamento do conjunto de dados, como o treino com o otimizador {@code LBFGS}.
+    * <p>
+    *    O treino paralelo é determinístico: as amostras são divididas em intervalos fixos,
+    *    os resultados parciais são somados em árvore numa ordem que depende apenas da 
+    *    quantidade de threads e os sorteios usam geradores derivados da seed. Assim, com a
+    *    mesma seed e a mesma quantidade de threads os pesos finais são idênticos. Como o 
+    *    valor padrão depende da máquina, a quantidade de threads deve ser fixada para 
+    *    reproduzir um treino em outra máquina.
+    * </p>
+    * <p>
+    *    {@code O valor padrão é a quantidade de processadores disponíveis}
+    * </p>
+    * @param threads quantidade de threads.
+    * @throws IllegalArgumentException se a quantidade de threads for menor que um.
+    */
+   public void configurarThreads(int threads){
+      if(threads < 1){
+         throw new IllegalArgumentException(
+            "A quantidade de threads (" + threads + ") deve ser maior que zero."
+         );
+      }
+
+      this.treinador.configurarThreads(threads);
+   }
+
+   /**
+    * Retorna a quantidade de threads usadas pelos modos de treino que dividem o
+    * processamento do conjunto de dados.
+    * @return quantidade de threads.
+    */
+   public int obterThreads(){
+      return this.treinador.obterThreads();
+   }
+
    /**
     * Compila o modelo de Rede Neural inicializando as camadas, neurônios e pesos respectivos, 
     * baseado nos valores fornecidos.
@@ -833,6 +1168,29 @@ public class RedeNeural implements Cloneable{
       }
    }
 
+   /**
+    * Verifica se as dimensões de uma amostra são compatíveis com a rede.
+    */
+   private void consistenciaAmostra(double[] entrada, double[] saida){
+      int tamEntrada = this.obterTamanhoEntrada();
+      if(entrada.length != tamEntrada){
+         throw new IllegalArgumentException(
+            "Dimensões dos dados de entrada (" + entrada.length +
+            ") e capacidade de entrada da rede (" + tamEntrada + 
+            ") incompatíveis."
+         );
+      }
+
+      int tamSaida = this.obterTamanhoSaida();
+      if(saida.length != tamSaida){
+         throw new IllegalArgumentException(
+            "Dados de saída (" + saida.length +
+            ") e neurônios de saída da rede (" + tamSaida + 
+            ") incompatíveis."
+         );
+      }
+   }
+
    /**
     * Alimenta os dados pela rede neural usando o método de feedforward através do conjunto
     * de dados fornecido. 
@@ -919,12 +1277,71 @@ public class RedeNeural implements Cloneable{
       return resultados;
    }
 
+   /**
+    * Treina a Rede Neural com uma única amostra, fazendo uma propagação, uma 
+    * retropropagação e um passo do otimizador.
+    * <p>
+    *    Pensado para o aprendizado contínuo a partir de um fluxo de dados: apenas as 
+    *    dimensões da amostra são verificadas, os dados não são copiados e nenhuma 
+    *    memória é alocada depois da primeira chamada. A chamada não conta como época 
+    *    de treino e não avisa os ouvintes de treino.
+    * </p>
+    * <p>
+    *    A rede não deve ser usada por outras threads durante o aprendizado, para 
+    *    inferência concorrente veja {@link AprendizadoOnline}.
+    * </p>
+    * @param entrada dados de entrada da amostra.
+    * @param saida dados de saída esperados da amostra.
+    * @return perda da amostra antes da atualização dos pesos.
+    * @throws IllegalArgumentException se o modelo não foi compilado previamente.
+    * @throws IllegalArgumentException se as dimensões da amostra forem incompatíveis com a rede.
+    * @throws UnsupportedOperationException se o otimizador configurado for o {@code LBFGS}.
+    */
+   public double aprender(double[] entrada, double[] saida){
+      this.verificarCompilacao();
+      consistenciaAmostra(entrada, saida);
+
+      return this.treinador.aprender(this, this.perda, this.otimizador, entrada, saida);
+   }
+
+   /**
+    * Treina a Rede Neural com um pequeno lote de amostras, fazendo um único passo do
+    * otimizador com a média dos gradientes das amostras.
+    * <p>
+    *    Assim como em {@code aprender(double[], double[])}, os dados não são copiados,
+    *    nenhuma memória é alocada depois da primeira chamada e a chamada não conta como 
+    *    época de treino.
+    * </p>
+    * @param entradas dados de entrada do lote.
+    * @param saidas dados de saída esperados do lote.
+    * @return perda média do lote antes da atualização dos pesos.
+    * @throws IllegalArgumentException se o modelo não foi compilado previamente.
+    * @throws IllegalArgumentException se o lote for vazio ou houver alguma inconsistência 
+    * dos dados de entrada e saída.
+    * @throws UnsupportedOperationException se o otimizador configurado for o {@code LBFGS}.
+    */
+   public double aprender(double[][] entradas, double[][] saidas){
+      this.verificarCompilacao();
+      if(entradas.length == 0){
+         throw new IllegalArgumentException(
+            "O lote deve ter pelo menos uma amostra."
+         );
+      }
+      consistenciaDados(entradas, saidas);
+
+      return this.treinador.aprender(this, this.perda, this.otimizador, entradas, saidas);
+   }
+
    /**
     * Treina a Rede Neural de acordo com as configurações predefinidas.
     * <p>
     *    Certifique-se de configurar adequadamente o modelo para obter os 
     *    melhores resultados.
     * </p>
+    * <p>
+    *    Caso o otimizador configurado seja o {@code LBFGS}, o treino é feito em lote
+    *    completo e cada época corresponde a uma iteração do otimizador.
+    * </p>
     * @param entradas dados de entrada do treino (features).
     * @param saidas dados de saída correspondente a entrada (class).
     * @param epochs quantidade de épocas de treinamento.
@@ -999,6 +1416,238 @@ public class RedeNeural implements Cloneable{
       );
    }
    
+   /**
+    * Treina a rede de acordo com as configurações predefinidas, podendo ser interrompida
+    * pelo sinal de cancelamento fornecido.
+    * <p>
+    *    O sinal é verificado ao fim de cada amostra (ou de cada iteração, no caso do
+    *    {@code LBFGS}), então o treino termina no máximo uma amostra depois do pedido de
+    *    cancelamento ou do fim do prazo do sinal. A época interrompida não entra no histórico 
+    *    de perdas nem na contagem de épocas treinadas, e continua de onde parou, com a mesma 
+    *    ordem de amostras, na próxima chamada de treino sequencial com os mesmos arrays. 
+    *    Assim chamadas curtas e repetidas percorrem todo o conjunto de dados, mesmo com 
+    *    otimizadores que não embaralham as amostras.
+    * </p>
+    * @param entradas dados de entrada do treino (features).
+    * @param saidas dados de saída correspondente a entrada (class).
+    * @param epochs quantidade máxima de épocas de treinamento.
+    * @param cancelamento sinal de cancelamento do treino.
+    * @throws IllegalArgumentException se o modelo não foi compilado previamente.
+    * @throws IllegalArgumentException se houver alguma inconsistência dos dados de entrada e saída para a operação.
+    * @throws IllegalArgumentException se o valor de épocas for menor que um.
+    * @throws IllegalArgumentException se o sinal de cancelamento for nulo.
+    */
+   public void treinar(double[][] entradas, double[][] saidas, int epochs, Cancelamento cancelamento){
+      if(cancelamento == null){
+         throw new IllegalArgumentException("O sinal de cancelamento não pode ser nulo.");
+      }
+
+      this.treinador.configurarCancelamento(cancelamento);
+      try{
+         this.treinar(entradas, saidas, epochs);
+      }finally{
+         this.treinador.configurarCancelamento(null);
+      }
+   }
+
+   /**
+    * Treina a rede em lotes de acordo com as configurações predefinidas, podendo ser 
+    * interrompida pelo sinal de cancelamento fornecido.
+    * <p>
+    *    O sinal é verificado ao fim de cada lote, então o treino termina no máximo um lote 
+    *    depois do pedido de cancelamento ou do fim do prazo do sinal, e os gradientes já 
+    *    acumulados ainda geram uma atualização. A época interrompida não entra no histórico 
+    *    de perdas nem na contagem de épocas treinadas, e continua de onde parou, com a mesma 
+    *    ordem de amostras, na próxima chamada de treino em lotes com os mesmos arrays. 
+    *    Assim chamadas curtas e repetidas percorrem todo o conjunto de dados, mesmo com 
+    *    otimizadores que não embaralham as amostras.
+    * </p>
+    * @param entradas dados de entrada do treino (features).
+    * @param saidas dados de saída correspondente a entrada (class).
+    * @param epochs quantidade máxima de épocas de treinamento.
+    * @param tamLote tamanho que o lote vai assumir durante o treino.
+    * @param cancelamento sinal de cancelamento do treino.
+    * @throws IllegalArgumentException se o modelo não foi compilado previamente.
+    * @throws IllegalArgumentException se houver alguma inconsistência dos dados de entrada e saída para a operação.
+    * @throws IllegalArgumentException se o valor de épocas for menor que um.
+    * @throws IllegalArgumentException se o sinal de cancelamento for nulo.
+    */
+   public void treinar(double[][] entradas, double[][] saidas, int epochs, int tamLote, Cancelamento cancelamento){
+      if(cancelamento == null){
+         throw new IllegalArgumentException("O sinal de cancelamento não pode ser nulo.");
+      }
+
+      this.treinador.configurarCancelamento(cancelamento);
+      try{
+         this.treinar(entradas, saidas, epochs, tamLote);
+      }finally{
+         this.treinador.configurarCancelamento(null);
+      }
+   }
+
+   /**
+    * Treina a rede pelo tempo fornecido, sem limite de épocas.
+    * <p>
+    *    O tempo é verificado ao fim de cada amostra, então o treino pode passar do tempo 
+    *    limite pela duração de uma amostra. Ao menos uma amostra é sempre treinada.
+    * </p>
+    * @param entradas dados de entrada do treino (features).
+    * @param saidas dados de saída correspondente a entrada (class).
+    * @param ms tempo limite do treino em milissegundos.
+    * @throws IllegalArgumentException se o modelo não foi compilado previamente.
+    * @throws IllegalArgumentException se houver alguma inconsistência dos dados de entrada e saída para a operação.
+    * @throws IllegalArgumentException se o tempo limite for negativo.
+    */
+   public void treinarPorTempo(double[][] entradas, double[][] saidas, long ms){
+      Cancelamento cancelamento = new Cancelamento();
+      cancelamento.configurarPrazo(ms);
+      this.treinar(entradas, saidas, Integer.MAX_VALUE, cancelamento);
+   }
+
+   /**
+    * Treina a rede em lotes pelo tempo fornecido, sem limite de épocas.
+    * <p>
+    *    O tempo é verificado ao fim de cada lote, então o treino pode passar do tempo 
+    *    limite pela duração de um lote. Ao menos um lote é sempre treinado.
+    * </p>
+    * @param entradas dados de entrada do treino (features).
+    * @param saidas dados de saída correspondente a entrada (class).
+    * @param ms tempo limite do treino em milissegundos.
+    * @param tamLote tamanho que o lote vai assumir durante o treino.
+    * @throws IllegalArgumentException se o modelo não foi compilado previamente.
+    * @throws IllegalArgumentException se houver alguma inconsistência dos dados de entrada e saída para a operação.
+    * @throws IllegalArgumentException se o tempo limite for negativo.
+    */
+   public void treinarPorTempo(double[][] entradas, double[][] saidas, long ms, int tamLote){
+      Cancelamento cancelamento = new Cancelamento();
+      cancelamento.configurarPrazo(ms);
+      this.treinar(entradas, saidas, Integer.MAX_VALUE, tamLote, cancelamento);
+   }
+
+   /**
+    * Treina a rede em lotes com as amostras lidas de uma fonte de dados, como um arquivo 
+    * csv ({@code FonteCsv}) ou binário ({@code FonteBinaria}).
+    * <p>
+    *    As amostras são lidas em sequência e passam por um buffer de embaralhamento de 
+    *    tamanho fixo antes de formar os lotes, e cada época abre a fonte novamente. Assim 
+    *    o uso de memória é constante, permitindo treinar com arquivos maiores que a memória 
+    *    disponível.
+    * </p>
+    * <p>
+    *    O embaralhamento é apenas aproximado: uma amostra só pode ser escolhida depois de 
+    *    lida, então amostras do início da fonte tendem a aparecer no início da época. Quanto 
+    *    maior o buffer, mais próximo do embaralhamento completo.
+    * </p>
+    * @param fonte fonte de dados de treino.
+    * @param epochs quantidade de épocas de treinamento.
+    * @param tamLote tamanho que o lote vai assumir durante o treino.
+    * @param tamBuffer quantidade de amostras mantidas no buffer de embaralhamento.
+    * @throws IllegalArgumentException se o modelo não foi compilado previamente.
+    * @throws IllegalArgumentException se os tamanhos de entrada e saída da fonte forem 
+    * incompatíveis com a rede.
+    * @throws IllegalArgumentException se o valor de épocas, tamanho do lote ou do buffer
+    * for menor que um.
+    * @throws IllegalArgumentException se o otimizador configurado for o {@code LBFGS}.
+    */
+   public void treinar(FonteDados fonte, int epochs, int tamLote, int tamBuffer){
+      this.verificarCompilacao();
+
+      if(fonte == null){
+         throw new IllegalArgumentException("A fonte de dados não pode ser nula.");
+      }
+      if(fonte.tamanhoEntrada() != this.obterTamanhoEntrada()){
+         throw new IllegalArgumentException(
+            "Dimensões dos dados de entrada (" + fonte.tamanhoEntrada() +
+            ") e capacidade de entrada da rede (" + this.obterTamanhoEntrada() + 
+            ") incompatíveis."
+         );
+      }
+      if(fonte.tamanhoSaida() != this.obterTamanhoSaida()){
+         throw new IllegalArgumentException(
+            "Dados de saída (" + fonte.tamanhoSaida() +
+            ") e neurônios de saída da rede (" + this.obterTamanhoSaida() + 
+            ") incompatíveis."
+         );
+      }
+      if(epochs < 1){
+         throw new IllegalArgumentException(
+            "O valor de epochs (" + epochs + ") não pode ser menor que um"
+         );
+      }
+      if(tamLote < 1){
+         throw new IllegalArgumentException(
+            "O valor de tamanho do lote (" + tamLote + ") é inválido."
+         );
+      }
+      if(tamBuffer < 1){
+         throw new IllegalArgumentException(
+            "O tamanho do buffer (" + tamBuffer + ") deve ser maior que zero."
+         );
+      }
+
+      this.treinador.treino(this, this.perda, this.otimizador, fonte, epochs, tamLote, tamBuffer);
+   }
+
+   /**
+    * Retorna o tempo que o último treino a partir de uma fonte de dados passou esperando 
+    * pelo carregamento dos lotes.
+    * <p>
+    *    Os lotes são carregados numa thread separada enquanto a rede treina com o lote 
+    *    anterior, então um tempo de espera próximo de zero indica que a leitura dos dados 
+    *    está totalmente escondida pelo treino. Valores altos indicam que o treino está 
+    *    limitado pela leitura da fonte.
+    * </p>
+    * @return tempo de espera, em milissegundos.
+    */
+   public double obterTempoEsperaDados(){
+      return this.treinador.obterTempoEsperaDados() / 1_000_000.0;
+   }
+
+   /**
+    * Treina a rede em lotes com as amostras lidas de uma fonte de dados, usando um 
+    * buffer de embaralhamento de 10000 amostras.
+    * @param fonte fonte de dados de treino.
+    * @param epochs quantidade de épocas de treinamento.
+    * @param tamLote tamanho que o lote vai assumir durante o treino.
+    * @see #treinar(FonteDados, int, int, int)
+    */
+   public void treinar(FonteDados fonte, int epochs, int tamLote){
+      treinar(fonte, epochs, tamLote, 10_000);
+   }
+
+   /**
+    * Treina a rede em lotes com as amostras lidas de uma fonte de dados, podendo ser 
+    * interrompida pelo sinal de cancelamento fornecido.
+    * <p>
+    *    O sinal é verificado ao fim de cada lote, então o treino termina no máximo um lote 
+    *    depois do pedido de cancelamento ou do fim do prazo do sinal, e a leitura da fonte 
+    *    é encerrada. A época interrompida não entra no histórico de perdas nem na contagem 
+    *    de épocas treinadas, e continua na próxima chamada com a mesma fonte, que descarta 
+    *    as amostras já treinadas no início da fonte. Com o buffer de embaralhamento a 
+    *    continuação é aproximada, já que as amostras descartadas não são exatamente as 
+    *    que foram sorteadas do buffer.
+    * </p>
+    * @param fonte fonte de dados de treino.
+    * @param epochs quantidade máxima de épocas de treinamento.
+    * @param tamLote tamanho que o lote vai assumir durante o treino.
+    * @param tamBuffer quantidade de amostras mantidas no buffer de embaralhamento.
+    * @param cancelamento sinal de cancelamento do treino.
+    * @throws IllegalArgumentException se o sinal de cancelamento for nulo.
+    * @see #treinar(FonteDados, int, int, int)
+    */
+   public void treinar(FonteDados fonte, int epochs, int tamLote, int tamBuffer, Cancelamento cancelamento){
+      if(cancelamento == null){
+         throw new IllegalArgumentException("O sinal de cancelamento não pode ser nulo.");
+      }
+
+      this.treinador.configurarCancelamento(cancelamento);
+      try{
+         this.treinar(fonte, epochs, tamLote, tamBuffer);
+      }finally{
+         this.treinador.configurarCancelamento(null);
+      }
+   }
+
    /**
     * Método alternativo no treino da rede neural usando diferenciação finita (finite difference), 
     * que calcula a "derivada" da função de custo levando a rede ao mínimo local dela. É importante 
@@ -1010,6 +1659,10 @@ public class RedeNeural implements Cloneable{
     *    como esperado.
     * </p>
     * <p>
+    *    As perturbações de cada peso são divididas entre as threads configuradas em 
+    *    {@link #configurarThreads(int)}, cada uma com sua própria cópia dos pesos da rede.
+    * </p>
+    * <p>
     *    Ainda sim não deixa de ser uma abordagem válida.
     * </p>
     * @param entradas matriz com os dados de entrada 
@@ -1028,9 +1681,185 @@ public class RedeNeural implements Cloneable{
     * @throws IllegalArgumentException se o valor de custo mínimo for menor que zero.
     */
    public void diferencaFinita(double[][] entradas, double[][] saidas, double eps, double tA, int epochs, double perdaMinima){
+      diferencaFinita(entradas, saidas, eps, tA, epochs, perdaMinima, false);
+   }
+
+   /**
+    * Método alternativo no treino da rede neural usando diferenciação finita (finite difference), 
+    * permitindo escolher entre a diferença progressiva e a diferença central.
+    * <p>
+    *    A diferença central {@code (L(p + eps) - L(p - eps)) / 2eps} precisa do dobro de 
+    *    avaliações da perda, mas tem um erro de aproximação bem menor que a progressiva 
+    *    {@code (L(p + eps) - L(p)) / eps}.
+    * </p>
+    * @param entradas matriz com os dados de entrada 
+    * @param saidas matriz com os dados de saída
+    * @param eps valor de perturbação
+    * @param tA valor de taxa de aprendizagem do método.
+    * @param epochs número de épocas do treinamento
+    * @param perdaMinima valor de perda desejável, o treino será finalizado caso o valor de perda mínima seja
+    * atingido.
+    * @param central usar diferença central ao invés da progressiva.
+    * @throws IllegalArgumentException se o modelo não foi compilado previamente.
+    * @throws IllegalArgumentException se houver alguma inconsistência dos dados de entrada e saída para a operação.
+    * @throws IllegalArgumentException se o valor de perturbação for igual a zero.
+    * @throws IllegalArgumentException se o valor de épocas for menor que um.
+    * @throws IllegalArgumentException se o valor de custo mínimo for menor que zero.
+    */
+   public void diferencaFinita(double[][] entradas, double[][] saidas, double eps, double tA, int epochs, double perdaMinima, boolean central){
       this.verificarCompilacao();
       consistenciaDados(entradas, saidas);
-      
+      verificarDiferencaFinita(eps, epochs, perdaMinima);
+
+      this.treinador.diferencaFinita(this, new ErroMedioQuadrado(), entradas, saidas, eps, tA, epochs, perdaMinima, central);
+   }
+
+   /**
+    * Método alternativo no treino da rede neural que estima o gradiente usando perturbações 
+    * simultâneas aleatórias (SPSA).
+    * <p>
+    *    Ao invés de perturbar cada peso individualmente, todos os pesos são perturbados ao 
+    *    mesmo tempo por um vetor aleatório de {@code ±1}, então cada estimativa custa apenas 
+    *    duas avaliações da perda, independente do tamanho da rede. A estimativa é ruidosa, 
+    *    e usar mais perturbações reduz a variância ao custo de mais avaliações.
+    * </p>
+    * <p>
+    *    As perturbações são divididas entre as threads configuradas e os números aleatórios 
+    *    seguem a seed configurada em {@link #configurarSeed(long)}.
+    * </p>
+    * @param entradas matriz com os dados de entrada 
+    * @param saidas matriz com os dados de saída
+    * @param eps valor de perturbação
+    * @param tA valor de taxa de aprendizagem do método.
+    * @param epochs número de épocas do treinamento
+    * @param perdaMinima valor de perda desejável, o treino será finalizado caso o valor de perda mínima seja
+    * atingido.
+    * @param perturbacoes quantidade de perturbações usadas em cada estimativa do gradiente.
+    * @throws IllegalArgumentException se o modelo não foi compilado previamente.
+    * @throws IllegalArgumentException se houver alguma inconsistência dos dados de entrada e saída para a operação.
+    * @throws IllegalArgumentException se o valor de perturbação for igual a zero.
+    * @throws IllegalArgumentException se o valor de épocas for menor que um.
+    * @throws IllegalArgumentException se o valor de custo mínimo for menor que zero.
+    * @throws IllegalArgumentException se a quantidade de perturbações for menor que um.
+    */
+   public void diferencaFinitaSPSA(double[][] entradas, double[][] saidas, double eps, double tA, int epochs, double perdaMinima, int perturbacoes){
+      this.verificarCompilacao();
+      consistenciaDados(entradas, saidas);
+      verificarDiferencaFinita(eps, epochs, perdaMinima);
+      if(perturbacoes < 1){
+         throw new IllegalArgumentException(
+            "A quantidade de perturbações (" + perturbacoes + ") não pode ser menor que um."
+         );
+      }
+
+      this.treinador.diferencaFinitaSPSA(this, new ErroMedioQuadrado(), entradas, saidas, eps, tA, epochs, perdaMinima, perturbacoes);
+   }
+
+   /**
+    * Verifica os gradientes calculados pelo backpropagation comparando-os com os 
+    * gradientes estimados por diferenças centrais, usando a função de perda configurada.
+    * <p>
+    *    O erro relativo de cada peso é calculado como:
+    * </p>
+    * <pre>
+    *    |a - n| / (|a| + |n|)
+    * </pre>
+    * <p>
+    *    Onde {@code a} é o gradiente analítico e {@code n} o numérico. Valores próximos de 
+    *    {@code 1e-7} indicam gradientes corretos.
+    * </p>
+    * <p>
+    *    Vale lembrar que o backpropagation da rede não aplica a derivada da ativação da 
+    *    camada de saída nem normaliza a derivada da perda pela quantidade de saídas, então 
+    *    para ativações de saída diferentes da linear, ou para mais de uma saída, é esperado 
+    *    um erro relativo alto mesmo sem nenhum problema na implementação.
+    * </p>
+    * @param entradas matriz com os dados de entrada.
+    * @param saidas matriz com os dados de saída.
+    * @param eps valor de perturbação.
+    * @return maior erro relativo encontrado entre os gradientes.
+    * @throws IllegalArgumentException se o modelo não foi compilado previamente.
+    * @throws IllegalArgumentException se houver alguma inconsistência dos dados de entrada e saída para a operação.
+    * @throws IllegalArgumentException se o valor de perturbação for menor ou igual a zero.
+    */
+   public double verificarGradientes(double[][] entradas, double[][] saidas, double eps){
+      this.verificarCompilacao();
+      consistenciaDados(entradas, saidas);
+      if(eps <= 0){
+         throw new IllegalArgumentException(
+            "O valor de perturbação (" + eps + ") deve ser maior que zero."
+         );
+      }
+
+      return this.treinador.verificarGradientes(this, this.perda, entradas, saidas, eps);
+   }
+
+   /**
+    * Calcula a perda média e o gradiente médio da função de perda em relação a todos
+    * os pesos da rede, para as amostras fornecidas, sem atualizar os pesos.
+    * <p>
+    *    O gradiente segue a mesma organização de {@code obterParametros()} e tem o mesmo 
+    *    sinal dos gradientes usados pelos otimizadores, então {@code pesos - tA * gradiente} 
+    *    é um passo de descida do gradiente. As amostras são divididas entre as threads 
+    *    configuradas.
+    * </p>
+    * @param entradas matriz com os dados de entrada.
+    * @param saidas matriz com os dados de saída.
+    * @param gradiente array que receberá o gradiente médio.
+    * @return perda média das amostras.
+    * @throws IllegalArgumentException se o modelo não foi compilado previamente.
+    * @throws IllegalArgumentException se houver alguma inconsistência dos dados de entrada e saída para a operação.
+    * @throws IllegalArgumentException se o tamanho do gradiente for diferente da quantidade de 
+    * parâmetros da rede.
+    */
+   public double calcularGradiente(double[][] entradas, double[][] saidas, double[] gradiente){
+      this.verificarCompilacao();
+      consistenciaDados(entradas, saidas);
+      if(gradiente.length != this.obterQuantidadeParametros()){
+         throw new IllegalArgumentException(
+            "O tamanho do gradiente (" + gradiente.length + 
+            ") é diferente da quantidade de parâmetros da rede (" + this.obterQuantidadeParametros() + ")."
+         );
+      }
+
+      return this.treinador.calcularGradiente(this, this.perda, entradas, saidas, gradiente);
+   }
+
+   /**
+    * Atualiza os pesos da rede usando o otimizador com o gradiente fornecido.
+    * <p>
+    *    O gradiente deve seguir a mesma organização e o mesmo sinal do gradiente 
+    *    calculado por {@code calcularGradiente()}.
+    * </p>
+    * @param gradiente gradiente da função de perda em relação aos pesos da rede.
+    * @throws IllegalArgumentException se o modelo não foi compilado previamente.
+    * @throws IllegalArgumentException se o tamanho do gradiente for diferente da quantidade de 
+    * parâmetros da rede.
+    */
+   public void aplicarGradiente(double[] gradiente){
+      this.verificarCompilacao();
+      if(gradiente.length != this.obterQuantidadeParametros()){
+         throw new IllegalArgumentException(
+            "O tamanho do gradiente (" + gradiente.length + 
+            ") é diferente da quantidade de parâmetros da rede (" + this.obterQuantidadeParametros() + ")."
+         );
+      }
+
+      int id = 0;
+      for(Camada camada : this.camadas){
+         for(Neuronio neuronio : camada.neuronios){
+            System.arraycopy(gradiente, id, neuronio.gradientes, 0, neuronio.gradientes.length);
+            id += neuronio.gradientes.length;
+         }
+      }
+
+      this.otimizador.atualizar(this.camadas);
+   }
+
+   /**
+    * Verifica os parâmetros comuns dos treinos por diferenças finitas.
+    */
+   private void verificarDiferencaFinita(double eps, int epochs, double perdaMinima){
       if(eps == 0){
          throw new IllegalArgumentException(
             "O valor de perturbação (" + eps + ") não pode ser igual a zero."
@@ -1046,33 +1875,48 @@ public class RedeNeural implements Cloneable{
             "O valor de perda mínima (" + perdaMinima + ") não pode ser negativo."
          );
       }
+   }
 
-      for(int epocas = 0; epocas < epochs; epocas++){    
-         double perda = avaliador.erroMedioQuadrado(entradas, saidas);
-         if(perda < perdaMinima) break;
+   /**
+    * Retorna a quantidade total de épocas treinadas pela Rede Neural, somando
+    * todas as chamadas de treino.
+    * @return quantidade de épocas treinadas.
+    */
+   public long obterEpocasTreinadas(){
+      return this.treinador.obterEpocasTreinadas();
+   }
 
-         double valorAnterior = 0;
-         for(Camada camada : this.camadas){
-            for(Neuronio neuronio : camada.neuronios){
-               for(int i = 0; i < neuronio.pesos.length; i++){
-                  valorAnterior = neuronio.pesos[i];
-                  neuronio.pesos[i] += eps;
-                  neuronio.gradientes[i] = ((avaliador.erroMedioQuadrado(entradas, saidas) - perda)/eps);
-                  neuronio.pesos[i] = valorAnterior;
-               }
-            }
-         }
+   /**
+    * Copia o estado do treinador da Rede Neural (épocas treinadas, histórico de
+    * perdas, ordem das amostras e geradores de números aleatórios).
+    * <p>
+    *    Usado junto com o estado do otimizador para continuar um treino salvo
+    *    exatamente de onde ele parou.
+    * </p>
+    * @return estado do treinador em formato binário.
+    */
+   public byte[] obterEstadoTreinador(){
+      return this.treinador.obterEstado();
+   }
 
-         //atualizar pesos
-         for(Camada camada : this.camadas){
-            for(Neuronio neuronio : camada.neuronios){
-               for(int i = 0; i < neuronio.pesos.length; i++){
-                  neuronio.pesos[i] -= tA * neuronio.gradientes[i];
-               }
-            }
-         }
-      }
+   /**
+    * Restaura o estado do treinador copiado por {@code obterEstadoTreinador()}.
+    * @param estado estado do treinador em formato binário.
+    * @throws IllegalArgumentException se o estado fornecido não for válido.
+    */
+   public void configurarEstadoTreinador(byte[] estado){
+      this.treinador.configurarEstado(estado);
+   }
 
+   /**
+    * Restaura o estado do treinador guardado numa versão anterior do formato.
+    * @param estado estado do treinador em formato binário.
+    * @param versao versão do formato em que o estado foi guardado.
+    * @throws IllegalArgumentException se o estado fornecido não for válido ou a versão
+    * não for suportada.
+    */
+   public void configurarEstadoTreinador(byte[] estado, int versao){
+      this.treinador.configurarEstado(estado, versao);
    }
 
    /**
@@ -1196,6 +2040,26 @@ public class RedeNeural implements Cloneable{
       return this.treinador.obterHistorico();
    }
 
+   /**
+    * Disponibiliza o histórico de perdas do último processo de treinamento usado.
+    * <p>
+    *    Diferente de {@link #obterHistoricoCusto()}, o objeto retornado não é uma cópia e 
+    *    pode ser consultado por outra thread enquanto o treino está em andamento, por 
+    *    exemplo para acompanhar a perda da última época com {@code ultimo()}.
+    * </p>
+    * @return histórico de perdas.
+    * @throws IllegalArgumentException se não foi habilitado previamente o cálculo do 
+    * histórico de custos.
+    */
+   public HistoricoPerda obterHistoricoPerda(){
+      if(!this.treinador.calcularHistorico){
+         throw new IllegalArgumentException(
+            "O histórico de custo da rede deve ser habilitado previamente."
+         );
+      }
+      return this.treinador.obterHistoricoPerda();
+   }
+
    /**
     * Retorna a quantidade total de parâmetros da rede.
     * <p>
@@ -1212,6 +2076,83 @@ public class RedeNeural implements Cloneable{
       return parametros;
    }
 
+   /**
+    * Retorna uma cópia de todos os pesos da Rede Neural em um único array.
+    * <p>
+    *    Os pesos são organizados na mesma ordem usada pelos otimizadores: camada
+    *    por camada, neurônio por neurônio, incluindo o peso do bias (se houver).
+    * </p>
+    * @return array contendo os parâmetros da rede.
+    * @throws IllegalArgumentException se o modelo não foi compilado previamente.
+    */
+   public double[] obterParametros(){
+      this.verificarCompilacao();
+
+      double[] parametros = new double[this.obterQuantidadeParametros()];
+      this.obterParametros(parametros);
+      return parametros;
+   }
+
+   /**
+    * Copia todos os pesos da Rede Neural para o array fornecido, evitando
+    * a alocação de um novo array.
+    * <p>
+    *    Os pesos são organizados na mesma ordem usada pelos otimizadores: camada
+    *    por camada, neurônio por neurônio, incluindo o peso do bias (se houver).
+    * </p>
+    * @param destino array que receberá os parâmetros da rede.
+    * @throws IllegalArgumentException se o modelo não foi compilado previamente.
+    * @throws IllegalArgumentException se o tamanho do destino for diferente da
+    * quantidade de parâmetros da rede.
+    */
+   public void obterParametros(double[] destino){
+      this.verificarCompilacao();
+
+      if(destino.length != this.obterQuantidadeParametros()){
+         throw new IllegalArgumentException(
+            "O tamanho do destino (" + destino.length + 
+            ") é diferente da quantidade de parâmetros da rede (" + this.obterQuantidadeParametros() + ")."
+         );
+      }
+
+      int id = 0;
+      for(Camada camada : this.camadas){
+         for(Neuronio neuronio : camada.neuronios){
+            System.arraycopy(neuronio.pesos, 0, destino, id, neuronio.pesos.length);
+            id += neuronio.pesos.length;
+         }
+      }
+   }
+
+   /**
+    * Configura todos os pesos da Rede Neural a partir de um único array.
+    * <p>
+    *    Os pesos devem seguir a mesma organização retornada por {@code obterParametros()}.
+    * </p>
+    * @param parametros novos valores dos parâmetros da rede.
+    * @throws IllegalArgumentException se o modelo não foi compilado previamente.
+    * @throws IllegalArgumentException se o tamanho dos parâmetros for diferente da
+    * quantidade de parâmetros da rede.
+    */
+   public void configurarParametros(double[] parametros){
+      this.verificarCompilacao();
+
+      if(parametros.length != this.obterQuantidadeParametros()){
+         throw new IllegalArgumentException(
+            "A quantidade de parâmetros fornecida (" + parametros.length + 
+            ") é diferente da quantidade de parâmetros da rede (" + this.obterQuantidadeParametros() + ")."
+         );
+      }
+
+      int id = 0;
+      for(Camada camada : this.camadas){
+         for(Neuronio neuronio : camada.neuronios){
+            System.arraycopy(parametros, id, neuronio.pesos, 0, neuronio.pesos.length);
+            id += neuronio.pesos.length;
+         }
+      }
+   }
+
    /**
     * Retorna a quantidade de camadas densas presente na Rede Neural.
     * <p>
@@ -1328,6 +2269,7 @@ public class RedeNeural implements Cloneable{
          clone.compilado = this.compilado;
 
          clone.nome = "Clone de " + this.nome;
+         clone.avaliador = new Avaliador(clone);
 
          clone.camadas = new Camada[this.camadas.length];
          for(int i = 0; i < this.camadas.length; i++){
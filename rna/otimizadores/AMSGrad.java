@@ -182,6 +182,20 @@ public class AMSGrad extends Otimizador{
 		}
   	}
 
+	@Override
+	public double[][] obterEstado(){
+		return new double[][]{momentum.clone(), velocidade.clone(), vCorrigido.clone(), {interacoes}};
+	}
+
+	@Override
+	public void configurarEstado(double[][] estado){
+		verificarEstado(estado, 4);
+		restaurar(momentum, estado[0]);
+		restaurar(velocidade, estado[1]);
+		restaurar(vCorrigido, estado[2]);
+		interacoes = (long) estado[3][0];
+	}
+
 	@Override
 	public String info(){
 		String buffer = "";
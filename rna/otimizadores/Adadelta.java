@@ -47,6 +47,18 @@ public class Adadelta extends Otimizador{
       }
    }
 
+   @Override
+   public double[][] obterEstado(){
+      return new double[][]{acGradQuadrado.clone(), acAttQuadrado.clone()};
+   }
+
+   @Override
+   public void configurarEstado(double[][] estado){
+      verificarEstado(estado, 2);
+      restaurar(acGradQuadrado, estado[0]);
+      restaurar(acAttQuadrado, estado[1]);
+   }
+
    @Override
    public String info(){
       String buffer = "";
@@ -196,6 +196,19 @@ public class Adam extends Otimizador{
       }
    }
 
+   @Override
+   public double[][] obterEstado(){
+      return new double[][]{momentum.clone(), velocidade.clone(), {interacoes}};
+   }
+
+   @Override
+   public void configurarEstado(double[][] estado){
+      verificarEstado(estado, 3);
+      restaurar(momentum, estado[0]);
+      restaurar(velocidade, estado[1]);
+      interacoes = (long) estado[2][0];
+   }
+
    @Override
    public String info(){
       String buffer = "";
@@ -69,6 +69,30 @@ public class GD extends Otimizador{
       } 
    }
 
+   @Override
+   public boolean suportaAtualizacaoFundida(){
+      return true;
+   }
+
+   @Override
+   public void atualizarCamadaFundida(Camada camada, int id, double[] somas){
+      int n = (somas == null) ? 0 : somas.length;
+      for(Neuronio neuronio : camada.neuronios()){
+         double gradiente = neuronio.gradiente;
+         double[] pesos = neuronio.pesos;
+         double[] entradas = neuronio.entradas;
+
+         int i = 0;
+         for(; i < n; i++){
+            somas[i] += pesos[i] * gradiente;
+            pesos[i] -= (-gradiente * entradas[i]) * taxaAprendizagem;
+         }
+         for(; i < pesos.length; i++){
+            pesos[i] -= (-gradiente * entradas[i]) * taxaAprendizagem;
+         }
+      }
+   }
+
    @Override
    public String info(){
       String buffer = "";
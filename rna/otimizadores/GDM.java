@@ -84,16 +84,56 @@ public class GDM extends Otimizador{
     */
     @Override
    public void atualizar(Camada[] redec){
+      int id = 0;//indice de busca na lista de coeficientes
       for(Camada camada : redec){
          for(Neuronio neuronio : camada.neuronios()){   
             for(int i = 0; i < neuronio.pesos.length; i++){
-               momentum[i] = (neuronio.gradientes[i] * taxaAprendizagem) + (taxaMomentum * momentum[i]);
-               neuronio.pesos[i] -= momentum[i];
+               momentum[id] = (neuronio.gradientes[i] * taxaAprendizagem) + (taxaMomentum * momentum[id]);
+               neuronio.pesos[i] -= momentum[id];
+
+               id++;
             }
          }
       } 
    }
 
+   @Override
+   public boolean suportaAtualizacaoFundida(){
+      return true;
+   }
+
+   @Override
+   public void atualizarCamadaFundida(Camada camada, int id, double[] somas){
+      int n = (somas == null) ? 0 : somas.length;
+      for(Neuronio neuronio : camada.neuronios()){
+         double gradiente = neuronio.gradiente;
+         double[] pesos = neuronio.pesos;
+         double[] entradas = neuronio.entradas;
+
+         int i = 0;
+         for(; i < n; i++, id++){
+            somas[i] += pesos[i] * gradiente;
+            momentum[id] = ((-gradiente * entradas[i]) * taxaAprendizagem) + (taxaMomentum * momentum[id]);
+            pesos[i] -= momentum[id];
+         }
+         for(; i < pesos.length; i++, id++){
+            momentum[id] = ((-gradiente * entradas[i]) * taxaAprendizagem) + (taxaMomentum * momentum[id]);
+            pesos[i] -= momentum[id];
+         }
+      }
+   }
+
+   @Override
+   public double[][] obterEstado(){
+      return new double[][]{momentum.clone()};
+   }
+
+   @Override
+   public void configurarEstado(double[][] estado){
+      verificarEstado(estado, 1);
+      restaurar(momentum, estado[0]);
+   }
+
    @Override
    public String info(){
       String buffer = "";
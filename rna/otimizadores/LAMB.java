@@ -0,0 +1,229 @@
+package rna.otimizadores;
+
+import rna.estrutura.Camada;
+import rna.estrutura.Neuronio;
+
+/**
+ * Implementação do otimizador LAMB (Layer-wise Adaptive Moments for Batch training).
+ * <p>
+ *    O LAMB aplica a mesma ideia de razão de confiança por camada do {@code LARS},
+ *    mas sobre a atualização calculada pelo Adam. Isso permite usar lotes muito
+ *    grandes mantendo a adaptação individual de cada peso.
+ * </p>
+ * <p>
+ *    A atualização de cada camada é reescalada para que sua norma seja proporcional
+ *    à norma dos pesos da própria camada.
+ * </p>
+ * @see https://arxiv.org/abs/1904.00962
+ */
+public class LAMB extends Otimizador{
+
+   /**
+    * Valor de taxa de aprendizagem do otimizador.
+    */
+   private double taxaAprendizagem;
+
+   /**
+    * Decaimento do momentum.
+    */
+   private double beta1;
+
+   /**
+    * Decaimento do momentum de segunda ordem.
+    */
+   private double beta2;
+
+   /**
+    * Usado para evitar divisão por zero.
+    */
+   private double epsilon;
+
+   /**
+    * Valor de decaimento dos pesos (regularização L2).
+    */
+   private double decaimento;
+
+   /**
+    * Coeficientes de momentum.
+    */
+   private double[] momentum;
+
+   /**
+    * Coeficientes de momentum de segunda ordem.
+    */
+   private double[] velocidade;
+
+   /**
+    * Contador de iterações.
+    */
+   long interacoes = 0;
+
+   /**
+    * Inicializa uma nova instância de otimizador <strong> LAMB </strong>
+    * usando os valores de hiperparâmetros fornecidos.
+    * @param tA valor de taxa de aprendizagem.
+    * @param beta1 decaimento do momento de primeira ordem.
+    * @param beta2 decaimento do momento de segunda ordem.
+    * @param epsilon usado para evitar a divisão por zero.
+    * @param decaimento valor de decaimento dos pesos.
+    */
+   public LAMB(double tA, double beta1, double beta2, double epsilon, double decaimento){
+      this.taxaAprendizagem = tA;
+      this.beta1 = beta1;
+      this.beta2 = beta2;
+      this.epsilon = epsilon;
+      this.decaimento = decaimento;
+   }
+
+   /**
+    * Inicializa uma nova instância de otimizador <strong> LAMB </strong>.
+    * <p>
+    *    Os hiperparâmetros do LAMB serão inicializados com os valores
+    *    padrão, que são:
+    * </p>
+    * <p>
+    *    {@code taxaAprendizagem = 0.01}
+    * </p>
+    * <p>
+    *    {@code beta1 = 0.9}
+    * </p>
+    * <p>
+    *    {@code beta2 = 0.999}
+    * </p>
+    * <p>
+    *    {@code epsilon = 1e-6}
+    * </p>
+    * <p>
+    *    {@code decaimento = 0}
+    * </p>
+    */
+   public LAMB(){
+      this(0.01, 0.9, 0.999, 1e-6, 0);
+   }
+
+   @Override
+   public void inicializar(int parametros){
+      this.momentum = new double[parametros];
+      this.velocidade = new double[parametros];
+   }
+
+   /**
+    * Aplica o algoritmo do LAMB para cada peso da rede neural.
+    * <p>
+    *    Primeiro os momentums são atualizados da mesma forma que no Adam e
+    *    é calculada a atualização de cada peso:
+    * </p>
+    * <pre>
+    *    r[i] = mChapeu / (√ vChapeu + eps) + d * p[i]
+    * </pre>
+    * Depois, para cada camada, a atualização é reescalada pela razão de confiança:
+    * <pre>
+    *    p[i] -= tA * (||p|| / ||r||) * r[i]
+    * </pre>
+    * Onde:
+    * <p>
+    *    {@code p} - peso que será atualizado.
+    * </p>
+    * <p>
+    *    {@code mChapeu e vChapeu} - momentums corrigidos de primeira e segunda
+    *    ordem.
+    * </p>
+    * <p>
+    *    {@code d} - valor de decaimento dos pesos.
+    * </p>
+    * <p>
+    *    {@code ||p|| e ||r||} - normas dos pesos e das atualizações de toda a camada.
+    * </p>
+    * <p>
+    *    {@code tA} - taxa de aprendizagem do otimizador.
+    * </p>
+    */
+   @Override
+   public void atualizar(Camada[] redec){
+      interacoes++;
+      double correcaoB1 = 1 - Math.pow(beta1, interacoes);
+      double correcaoB2 = 1 - Math.pow(beta2, interacoes);
+
+      int id = 0;//indice de busca na lista de coeficientes
+      for(Camada camada : redec){
+         int inicioCamada = id;
+
+         //atualizar momentums e calcular as normas da camada
+         double normaPesos = 0;
+         double normaAtualizacao = 0;
+         for(Neuronio neuronio : camada.neuronios()){
+            for(int i = 0; i < neuronio.pesos.length; i++){
+               double g = neuronio.gradientes[i];
+               momentum[id]   += (1 - beta1) * (g - momentum[id]);
+               velocidade[id] += (1 - beta2) * ((g*g) - velocidade[id]);
+
+               double r = calcularAtualizacao(id, neuronio.pesos[i], correcaoB1, correcaoB2);
+               normaPesos += neuronio.pesos[i] * neuronio.pesos[i];
+               normaAtualizacao += r * r;
+
+               id++;
+            }
+         }
+         normaPesos = Math.sqrt(normaPesos);
+         normaAtualizacao = Math.sqrt(normaAtualizacao);
+
+         double confianca = 1;
+         if(normaPesos > 0 && normaAtualizacao > 0){
+            confianca = normaPesos / normaAtualizacao;
+         }
+
+         //aplicar atualização reescalada
+         id = inicioCamada;
+         for(Neuronio neuronio : camada.neuronios()){
+            for(int i = 0; i < neuronio.pesos.length; i++){
+               double r = calcularAtualizacao(id, neuronio.pesos[i], correcaoB1, correcaoB2);
+               neuronio.pesos[i] -= taxaAprendizagem * confianca * r;
+
+               id++;
+            }
+         }
+      }
+   }
+
+   /**
+    * Calcula a atualização estilo Adam para o peso, incluindo o decaimento.
+    * @param id índice do peso na lista de coeficientes.
+    * @param peso valor atual do peso.
+    * @param correcaoB1 correção do momentum de primeira ordem.
+    * @param correcaoB2 correção do momentum de segunda ordem.
+    * @return atualização do peso antes da razão de confiança.
+    */
+   private double calcularAtualizacao(int id, double peso, double correcaoB1, double correcaoB2){
+      double mChapeu = momentum[id] / correcaoB1;
+      double vChapeu = velocidade[id] / correcaoB2;
+      return (mChapeu / (Math.sqrt(vChapeu) + epsilon)) + (decaimento * peso);
+   }
+
+   @Override
+   public double[][] obterEstado(){
+      return new double[][]{momentum.clone(), velocidade.clone(), {interacoes}};
+   }
+
+   @Override
+   public void configurarEstado(double[][] estado){
+      verificarEstado(estado, 3);
+      restaurar(momentum, estado[0]);
+      restaurar(velocidade, estado[1]);
+      interacoes = (long) estado[2][0];
+   }
+
+   @Override
+   public String info(){
+      String buffer = "";
+
+      String espacamento = "    ";
+      buffer += espacamento + "TaxaAprendizagem: " + this.taxaAprendizagem + "\n";
+      buffer += espacamento + "Beta1: " + this.beta1 + "\n";
+      buffer += espacamento + "Beta2: " + this.beta2 + "\n";
+      buffer += espacamento + "Epsilon: " + this.epsilon + "\n";
+      buffer += espacamento + "Decaimento: " + this.decaimento + "\n";
+
+      return buffer;
+   }
+
+}
@@ -0,0 +1,186 @@
+package rna.otimizadores;
+
+import rna.estrutura.Camada;
+import rna.estrutura.Neuronio;
+
+/**
+ * Implementação do otimizador LARS (Layer-wise Adaptive Rate Scaling).
+ * <p>
+ *    O LARS é uma variação do SGD com momentum pensada para o treino com lotes
+ *    muito grandes. Cada camada recebe sua própria taxa de aprendizagem local,
+ *    proporcional à razão entre a norma dos seus pesos e a norma dos seus gradientes
+ *    (razão de confiança).
+ * </p>
+ * <p>
+ *    Dessa forma camadas em que o gradiente é grande em relação aos pesos não
+ *    divergem quando a taxa de aprendizagem global é aumentada junto com o
+ *    tamanho do lote.
+ * </p>
+ * @see https://arxiv.org/abs/1708.03888
+ */
+public class LARS extends Otimizador{
+
+   /**
+    * Valor de taxa de aprendizagem global do otimizador.
+    */
+   private double taxaAprendizagem;
+
+   /**
+    * Valor de taxa de momentum do otimizador.
+    */
+   private double momentum;
+
+   /**
+    * Coeficiente de confiança usado no cálculo da taxa local de cada camada.
+    */
+   private double eta;
+
+   /**
+    * Valor de decaimento dos pesos (regularização L2).
+    */
+   private double decaimento;
+
+   /**
+    * Usado para evitar divisão por zero.
+    */
+   private double epsilon = 1e-9;
+
+   /**
+    * Coeficientes de momentum.
+    */
+   private double[] m;
+
+   /**
+    * Inicializa uma nova instância de otimizador <strong> LARS </strong>
+    * usando os valores de hiperparâmetros fornecidos.
+    * @param tA valor de taxa de aprendizagem global.
+    * @param momentum valor de taxa de momentum.
+    * @param eta coeficiente de confiança das camadas.
+    * @param decaimento valor de decaimento dos pesos.
+    */
+   public LARS(double tA, double momentum, double eta, double decaimento){
+      this.taxaAprendizagem = tA;
+      this.momentum = momentum;
+      this.eta = eta;
+      this.decaimento = decaimento;
+   }
+
+   /**
+    * Inicializa uma nova instância de otimizador <strong> LARS </strong>.
+    * <p>
+    *    Os hiperparâmetros do LARS serão inicializados com os valores padrão, que são:
+    * </p>
+    * <p>
+    *    {@code taxaAprendizagem = 1.0}
+    * </p>
+    * <p>
+    *    {@code momentum = 0.9}
+    * </p>
+    * <p>
+    *    {@code eta = 0.01}
+    * </p>
+    * <p>
+    *    {@code decaimento = 0}
+    * </p>
+    */
+   public LARS(){
+      this(1.0, 0.9, 0.01, 0);
+   }
+
+   @Override
+   public void inicializar(int parametros){
+      this.m = new double[parametros];
+   }
+
+   /**
+    * Aplica o algoritmo do LARS para cada peso da rede neural.
+    * <p>
+    *    Para cada camada é calculada a taxa local:
+    * </p>
+    * <pre>
+    *    tL = eta * ||p|| / (||g|| + d * ||p||)
+    * </pre>
+    * E então os pesos são atualizados:
+    * <pre>
+    *    m[i] = (M * m[i]) + tA * tL * (g[i] + d * p[i])
+    *    p[i] -= m[i]
+    * </pre>
+    * Onde:
+    * <p>
+    *    {@code p} - peso que será atualizado.
+    * </p>
+    * <p>
+    *    {@code g} - gradiente correspondente a conexão do peso que será
+    *    atualizado.
+    * </p>
+    * <p>
+    *    {@code ||p|| e ||g||} - normas dos pesos e gradientes de toda a camada.
+    * </p>
+    * <p>
+    *    {@code d} - valor de decaimento dos pesos.
+    * </p>
+    * <p>
+    *    {@code M} - valor de taxa de momentum do otimizador.
+    * </p>
+    * <p>
+    *    {@code tA} - taxa de aprendizagem global do otimizador.
+    * </p>
+    */
+   @Override
+   public void atualizar(Camada[] redec){
+      int id = 0;//indice de busca na lista de coeficientes
+      for(Camada camada : redec){
+         double normaPesos = 0;
+         double normaGrads = 0;
+         for(Neuronio neuronio : camada.neuronios()){
+            for(int i = 0; i < neuronio.pesos.length; i++){
+               normaPesos += neuronio.pesos[i] * neuronio.pesos[i];
+               normaGrads += neuronio.gradientes[i] * neuronio.gradientes[i];
+            }
+         }
+         normaPesos = Math.sqrt(normaPesos);
+         normaGrads = Math.sqrt(normaGrads);
+
+         //camadas zeradas usam apenas a taxa global
+         double taxaLocal = 1;
+         if(normaPesos > 0 && normaGrads > 0){
+            taxaLocal = eta * normaPesos / (normaGrads + (decaimento * normaPesos) + epsilon);
+         }
+
+         for(Neuronio neuronio : camada.neuronios()){
+            for(int i = 0; i < neuronio.pesos.length; i++){
+               double g = neuronio.gradientes[i] + (decaimento * neuronio.pesos[i]);
+               m[id] = (momentum * m[id]) + (taxaAprendizagem * taxaLocal * g);
+               neuronio.pesos[i] -= m[id];
+
+               id++;
+            }
+         }
+      }
+   }
+
+   @Override
+   public double[][] obterEstado(){
+      return new double[][]{m.clone()};
+   }
+
+   @Override
+   public void configurarEstado(double[][] estado){
+      verificarEstado(estado, 1);
+      restaurar(m, estado[0]);
+   }
+
+   @Override
+   public String info(){
+      String buffer = "";
+
+      String espacamento = "    ";
+      buffer += espacamento + "TaxaAprendizagem: " + this.taxaAprendizagem + "\n";
+      buffer += espacamento + "Momentum: " + this.momentum + "\n";
+      buffer += espacamento + "Eta: " + this.eta + "\n";
+      buffer += espacamento + "Decaimento: " + this.decaimento + "\n";
+
+      return buffer;
+   }
+
+}
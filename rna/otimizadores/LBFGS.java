@@ -0,0 +1,305 @@
+package rna.otimizadores;
+
+import rna.estrutura.Camada;
+
+/**
+ * Implementação do otimizador L-BFGS (Limited-memory Broyden–Fletcher–Goldfarb–Shanno).
+ * <p>
+ *    O L-BFGS é um método quasi-Newton que aproxima a inversa da matriz hessiana da
+ *    função de perda usando apenas os últimos {@code m} pares de variação dos parâmetros
+ *    e dos gradientes. Com isso ele consegue passos bem melhores que os métodos de
+ *    primeira ordem, sem precisar armazenar a hessiana completa.
+ * </p>
+ * <p>
+ *    Diferente dos demais otimizadores, o L-BFGS trabalha sobre o vetor completo de
+ *    parâmetros da rede e usa todo o conjunto de dados em cada iteração (treino em lote
+ *    completo), com uma busca linear para escolher o tamanho do passo. Por isso ele é
+ *    indicado para conjuntos de dados pequenos, como o iris, onde costuma convergir em
+ *    dezenas de iterações ao invés de milhares de épocas.
+ * </p>
+ * <p>
+ *    Quando a Rede Neural é compilada com o L-BFGS, o treino é feito automaticamente no
+ *    modo de lote completo e cada época corresponde a uma iteração do método.
+ * </p>
+ * @see https://en.wikipedia.org/wiki/Limited-memory_BFGS
+ */
+public class LBFGS extends Otimizador{
+
+   /**
+    * Quantidade de pares de correção armazenados.
+    */
+   private int tamHistorico;
+
+   /**
+    * Valor mínimo da norma do gradiente, abaixo dele o treino é finalizado.
+    */
+   private double tolerancia;
+
+   /**
+    * Quantidade máxima de reduções do passo durante a busca linear.
+    */
+   private int maxBuscas;
+
+   /**
+    * Variações dos parâmetros das últimas iterações.
+    */
+   private double[][] s;
+
+   /**
+    * Variações dos gradientes das últimas iterações.
+    */
+   private double[][] y;
+
+   /**
+    * Valores de {@code 1 / (y · s)} de cada par armazenado.
+    */
+   private double[] rho;
+
+   /**
+    * Auxiliar do laço de duas etapas.
+    */
+   private double[] alfa;
+
+   /**
+    * Índice do par mais recente dentro do histórico circular.
+    */
+   private int ultimo = -1;
+
+   /**
+    * Quantidade de pares válidos no histórico.
+    */
+   private int quantidade = 0;
+
+   /**
+    * Inicializa uma nova instância de otimizador <strong> L-BFGS </strong>
+    * usando os valores de hiperparâmetros fornecidos.
+    * @param tamHistorico quantidade de pares de correção armazenados.
+    * @param tolerancia norma mínima do gradiente para continuar o treino.
+    * @param maxBuscas quantidade máxima de reduções do passo na busca linear.
+    * @throws IllegalArgumentException se o tamanho do histórico ou a quantidade
+    * de buscas forem menores que um.
+    */
+   public LBFGS(int tamHistorico, double tolerancia, int maxBuscas){
+      if(tamHistorico < 1){
+         throw new IllegalArgumentException(
+            "O tamanho do histórico (" + tamHistorico + ") deve ser maior que zero."
+         );
+      }
+      if(maxBuscas < 1){
+         throw new IllegalArgumentException(
+            "A quantidade de buscas (" + maxBuscas + ") deve ser maior que zero."
+         );
+      }
+
+      this.tamHistorico = tamHistorico;
+      this.tolerancia = tolerancia;
+      this.maxBuscas = maxBuscas;
+   }
+
+   /**
+    * Inicializa uma nova instância de otimizador <strong> L-BFGS </strong>
+    * usando o tamanho de histórico fornecido.
+    * @param tamHistorico quantidade de pares de correção armazenados.
+    */
+   public LBFGS(int tamHistorico){
+      this(tamHistorico, 1e-8, 30);
+   }
+
+   /**
+    * Inicializa uma nova instância de otimizador <strong> L-BFGS </strong>.
+    * <p>
+    *    Os hiperparâmetros do L-BFGS serão inicializados com os valores padrão, que são:
+    * </p>
+    * <p>
+    *    {@code tamHistorico = 10}
+    * </p>
+    * <p>
+    *    {@code tolerancia = 1e-8}
+    * </p>
+    * <p>
+    *    {@code maxBuscas = 30}
+    * </p>
+    */
+   public LBFGS(){
+      this(10, 1e-8, 30);
+   }
+
+   @Override
+   public void inicializar(int parametros){
+      this.s = new double[tamHistorico][parametros];
+      this.y = new double[tamHistorico][parametros];
+      this.rho = new double[tamHistorico];
+      this.alfa = new double[tamHistorico];
+      reiniciarHistorico();
+   }
+
+   /**
+    * O L-BFGS não atualiza os pesos a partir dos gradientes de uma única amostra
+    * ou lote, ele é usado diretamente pelo treino em lote completo.
+    * @throws UnsupportedOperationException sempre.
+    */
+   @Override
+   public void atualizar(Camada[] redec){
+      throw new UnsupportedOperationException(
+         "O LBFGS só pode ser usado pelo treino em lote completo da Rede Neural."
+      );
+   }
+
+   /**
+    * Calcula a direção de busca {@code d = -H * g} usando o laço de duas etapas,
+    * onde {@code H} é a aproximação da inversa da hessiana construída pelo histórico.
+    * <p>
+    *    Com o histórico vazio a direção é a mesma da descida do gradiente.
+    * </p>
+    * @param gradiente gradiente atual da função de perda.
+    * @param direcao array que receberá a direção de busca.
+    */
+   public void calcularDirecao(double[] gradiente, double[] direcao){
+      int n = gradiente.length;
+      for(int i = 0; i < n; i++){
+         direcao[i] = -gradiente[i];
+      }
+
+      //do mais recente para o mais antigo
+      int id = ultimo;
+      for(int k = 0; k < quantidade; k++){
+         alfa[id] = rho[id] * produto(s[id], direcao);
+         double a = alfa[id];
+         double[] yi = y[id];
+         for(int i = 0; i < n; i++){
+            direcao[i] -= a * yi[i];
+         }
+         id = (id - 1 + tamHistorico) % tamHistorico;
+      }
+
+      //escala inicial da hessiana usando o par mais recente
+      if(quantidade > 0){
+         double gamma = produto(s[ultimo], y[ultimo]) / produto(y[ultimo], y[ultimo]);
+         for(int i = 0; i < n; i++){
+            direcao[i] *= gamma;
+         }
+      }
+
+      //do mais antigo para o mais recente
+      id = (ultimo - quantidade + 1 + tamHistorico) % tamHistorico;
+      for(int k = 0; k < quantidade; k++){
+         double b = rho[id] * produto(y[id], direcao);
+         double c = alfa[id] - b;
+         double[] si = s[id];
+         for(int i = 0; i < n; i++){
+            direcao[i] += c * si[i];
+         }
+         id = (id + 1) % tamHistorico;
+      }
+   }
+
+   /**
+    * Adiciona um novo par de correção ao histórico.
+    * <p>
+    *    O par só é aceito quando satisfaz a condição de curvatura {@code y · s > 0},
+    *    garantindo que a aproximação da hessiana continue positiva definida.
+    * </p>
+    * @param passo variação dos parâmetros ({@code s}).
+    * @param variacaoGradiente variação dos gradientes ({@code y}).
+    * @return verdadeiro caso o par tenha sido adicionado, falso caso contrário.
+    */
+   public boolean adicionarHistorico(double[] passo, double[] variacaoGradiente){
+      double ys = produto(variacaoGradiente, passo);
+      if(ys <= 1e-10 * Math.sqrt(produto(variacaoGradiente, variacaoGradiente) * produto(passo, passo))){
+         return false;
+      }
+
+      ultimo = (ultimo + 1) % tamHistorico;
+      System.arraycopy(passo, 0, s[ultimo], 0, passo.length);
+      System.arraycopy(variacaoGradiente, 0, y[ultimo], 0, variacaoGradiente.length);
+      rho[ultimo] = 1 / ys;
+      if(quantidade < tamHistorico) quantidade++;
+
+      return true;
+   }
+
+   /**
+    * Descarta todos os pares de correção armazenados.
+    */
+   public void reiniciarHistorico(){
+      this.ultimo = -1;
+      this.quantidade = 0;
+   }
+
+   /**
+    * Verifica se o histórico de correções está vazio.
+    * @return verdadeiro caso não haja pares armazenados.
+    */
+   public boolean historicoVazio(){
+      return this.quantidade == 0;
+   }
+
+   /**
+    * Retorna a norma mínima do gradiente usada como critério de parada.
+    * @return tolerância do otimizador.
+    */
+   public double tolerancia(){
+      return this.tolerancia;
+   }
+
+   /**
+    * Retorna a quantidade máxima de reduções do passo durante a busca linear.
+    * @return quantidade máxima de buscas.
+    */
+   public int maxBuscas(){
+      return this.maxBuscas;
+   }
+
+   /**
+    * Produto escalar entre dois arrays.
+    */
+   private double produto(double[] a, double[] b){
+      double r = 0;
+      for(int i = 0; i < a.length; i++){
+         r += a[i] * b[i];
+      }
+      return r;
+   }
+
+   /**
+    * O estado do L-BFGS é formado pelos pares de correção armazenados, na ordem
+    * {@code s[0..m-1], y[0..m-1], rho, {ultimo, quantidade}}.
+    */
+   @Override
+   public double[][] obterEstado(){
+      double[][] estado = new double[2 * tamHistorico + 2][];
+      for(int i = 0; i < tamHistorico; i++){
+         estado[i] = s[i].clone();
+         estado[tamHistorico + i] = y[i].clone();
+      }
+      estado[2 * tamHistorico] = rho.clone();
+      estado[2 * tamHistorico + 1] = new double[]{ultimo, quantidade};
+
+      return estado;
+   }
+
+   @Override
+   public void configurarEstado(double[][] estado){
+      verificarEstado(estado, 2 * tamHistorico + 2);
+      for(int i = 0; i < tamHistorico; i++){
+         restaurar(s[i], estado[i]);
+         restaurar(y[i], estado[tamHistorico + i]);
+      }
+      restaurar(rho, estado[2 * tamHistorico]);
+      ultimo = (int) estado[2 * tamHistorico + 1][0];
+      quantidade = (int) estado[2 * tamHistorico + 1][1];
+   }
+
+   @Override
+   public String info(){
+      String buffer = "";
+
+      String espacamento = "    ";
+      buffer += espacamento + "TamanhoHistorico: " + this.tamHistorico + "\n";
+      buffer += espacamento + "Tolerancia: " + this.tolerancia + "\n";
+      buffer += espacamento + "MaxBuscas: " + this.maxBuscas + "\n";
+
+      return buffer;
+   }
+
+}
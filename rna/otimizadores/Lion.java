@@ -49,6 +49,17 @@ public class Lion extends Otimizador{
       }
    }
 
+   @Override
+   public double[][] obterEstado(){
+      return new double[][]{momentum.clone()};
+   }
+
+   @Override
+   public void configurarEstado(double[][] estado){
+      verificarEstado(estado, 1);
+      restaurar(momentum, estado[0]);
+   }
+
    @Override
    public String info(){
       String espacamento = "    ";
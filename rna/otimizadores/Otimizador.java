@@ -59,6 +59,104 @@ public abstract class Otimizador{
 		);
 	}
 
+	/**
+	 * Indica se o otimizador suporta a atualização fundida com a retropropagação,
+	 * usada pelo treino sequencial.
+	 * <p>
+	 *		Otimizadores que suportam esse modo devem implementar o método 
+	 *		{@code atualizarCamadaFundida()}.
+	 * </p>
+	 * @return verdadeiro caso o otimizador suporte a atualização fundida.
+	 */
+	public boolean suportaAtualizacaoFundida(){
+		return false;
+	}
+
+	/**
+	 * Atualiza os pesos de uma camada ao mesmo tempo em que propaga o erro dela para
+	 * a camada anterior, percorrendo os pesos uma única vez.
+	 * <p>
+	 *		O gradiente local ({@code neuronio.gradiente}) de todos os neurônios da camada
+	 *		já deve estar calculado. O gradiente de cada conexão é calculado no momento da
+	 *		atualização, sem usar o vetor {@code neuronio.gradientes}:
+	 * </p>
+	 * <pre>
+	 *	g[i] = -gradiente * entradas[i]
+	 * </pre>
+	 * Antes de atualizar cada peso, seu valor antigo deve ser usado para acumular a 
+	 * soma dos gradientes da camada anterior:
+	 * <pre>
+	 *	somas[i] += pesos[i] * gradiente
+	 * </pre>
+	 * @param camada camada que será atualizada.
+	 * @param id índice do primeiro peso da camada na lista de coeficientes do otimizador.
+	 * @param somas soma dos gradientes para a camada anterior, ou {@code null} caso a camada
+	 * seja a primeira da rede. O tamanho deve ser igual a quantidade de neurônios da camada 
+	 * anterior.
+	 */
+	public void atualizarCamadaFundida(Camada camada, int id, double[] somas){
+		throw new UnsupportedOperationException(
+			"Atualização fundida não suportada pelo otimizador."
+		);
+	}
+
+	/**
+	 * Retorna uma cópia do estado interno do otimizador, como os coeficientes de
+	 * momentum e contadores de iterações.
+	 * <p>
+	 *		O estado é usado para salvar e retomar o treinamento sem perder o progresso
+	 *		do otimizador. Contadores são armazenados como arrays de um elemento.
+	 * </p>
+	 * <p>
+	 *		Otimizadores sem estado interno não precisam sobrescrever esse método.
+	 * </p>
+	 * @return cópia dos arrays de estado do otimizador.
+	 */
+	public double[][] obterEstado(){
+		return new double[0][];
+	}
+
+	/**
+	 * Configura o estado interno do otimizador a partir de um estado obtido
+	 * previamente por {@code obterEstado()}.
+	 * <p>
+	 *		O otimizador já deve estar inicializado com a mesma quantidade de parâmetros
+	 *		usada quando o estado foi obtido.
+	 * </p>
+	 * @param estado arrays de estado do otimizador.
+	 * @throws IllegalArgumentException se o estado for incompatível com o otimizador.
+	 */
+	public void configurarEstado(double[][] estado){
+		verificarEstado(estado, 0);
+	}
+
+	/**
+	 * Verifica se o estado fornecido possui a quantidade esperada de arrays.
+	 * @param estado arrays de estado.
+	 * @param quantidade quantidade de arrays esperada.
+	 */
+	protected void verificarEstado(double[][] estado, int quantidade){
+		if(estado == null || estado.length != quantidade){
+			throw new IllegalArgumentException(
+				"Estado incompatível com o otimizador " + getClass().getSimpleName() + "."
+			);
+		}
+	}
+
+	/**
+	 * Copia os valores do estado salvo para o array do otimizador.
+	 * @param destino array de estado do otimizador.
+	 * @param origem valores salvos.
+	 */
+	protected void restaurar(double[] destino, double[] origem){
+		if(destino.length != origem.length){
+			throw new IllegalArgumentException(
+				"Tamanho do estado (" + origem.length + ") diferente do esperado (" + destino.length + ")."
+			);
+		}
+		System.arraycopy(origem, 0, destino, 0, destino.length);
+	}
+
 /**
  * Mostra as opções de configurações do otimizador.
 	* @return buffer formatado.
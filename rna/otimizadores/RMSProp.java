@@ -119,6 +119,17 @@ public class RMSProp extends Otimizador{
       }
    }
 
+   @Override
+   public double[][] obterEstado(){
+      return new double[][]{acumulador.clone()};
+   }
+
+   @Override
+   public void configurarEstado(double[][] estado){
+      verificarEstado(estado, 1);
+      restaurar(acumulador, estado[0]);
+   }
+
    @Override
    public String info(){
       String buffer = "";
@@ -130,6 +130,56 @@ public class SGD extends Otimizador{
       }
    }
 
+   @Override
+   public boolean suportaAtualizacaoFundida(){
+      return true;
+   }
+
+   @Override
+   public void atualizarCamadaFundida(Camada camada, int id, double[] somas){
+      int n = (somas == null) ? 0 : somas.length;
+      for(Neuronio neuronio : camada.neuronios()){
+         double gradiente = neuronio.gradiente;
+         double[] pesos = neuronio.pesos;
+         double[] entradas = neuronio.entradas;
+
+         int i = 0;
+         for(; i < n; i++, id++){
+            somas[i] += pesos[i] * gradiente;
+            pesos[i] -= passo(-gradiente * entradas[i], id);
+         }
+         for(; i < pesos.length; i++, id++){
+            pesos[i] -= passo(-gradiente * entradas[i], id);
+         }
+      }
+   }
+
+   /**
+    * Atualiza o momentum do peso e calcula o valor que será subtraído dele.
+    * @param g gradiente do peso.
+    * @param id índice do peso na lista de coeficientes.
+    * @return passo de atualização do peso.
+    */
+   private double passo(double g, int id){
+      m[id] = (momentum * m[id]) + (g * taxaAprendizagem);
+
+      if(nesterov){
+         return (g * taxaAprendizagem) + (momentum * m[id]);
+      }
+      return m[id];
+   }
+
+   @Override
+   public double[][] obterEstado(){
+      return new double[][]{m.clone()};
+   }
+
+   @Override
+   public void configurarEstado(double[][] estado){
+      verificarEstado(estado, 1);
+      restaurar(m, estado[0]);
+   }
+
    @Override
    public String info(){
       String buffer = "";
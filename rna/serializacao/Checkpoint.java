@@ -0,0 +1,316 @@
+package rna.serializacao;
+
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+import rna.estrutura.RedeNeural;
+import rna.treinamento.MetricasTreino;
+import rna.treinamento.OuvinteTreino;
+
+/**
+ * Ouvinte de treino que salva periodicamente o estado de treino da rede.
+ * <p>
+ *    No final das épocas escolhidas é feita uma cópia em memória dos parâmetros e
+ *    do estado do otimizador e do treinador ({@link EstadoTreino}), que é rápida e
+ *    feita na própria thread de treino. A escrita em disco acontece numa thread
+ *    separada, então o treino não precisa esperar pela escrita dos arquivos.
+ * </p>
+ * <p>
+ *    Se uma nova cópia ficar pronta enquanto a anterior ainda está sendo escrita,
+ *    apenas a mais recente é mantida na espera. Cada arquivo é escrito de forma
+ *    atômica (ver {@link SerializadorTreino#escrever(EstadoTreino, File)}) e apenas
+ *    os últimos {@code K} arquivos com o prefixo configurado são mantidos no diretório.
+ * </p>
+ * Exemplo:
+ * <pre>{@code
+ * Checkpoint checkpoint = new Checkpoint(rede, "checkpoints", "modelo", 500, 60, 3);
+ * rede.adicionarOuvinte(checkpoint);
+ * rede.treinar(entradas, saidas, 15_000);
+ * checkpoint.fechar();
+ * }</pre>
+ * Para continuar o treino depois de uma interrupção, o arquivo mais recente é
+ * carregado numa rede compilada com a mesma configuração:
+ * <pre>{@code
+ * File ultimo = Checkpoint.ultimoArquivo("checkpoints", "modelo");
+ * if(ultimo != null) SerializadorTreino.carregar(rede, ultimo.getPath());
+ * rede.treinar(entradas, saidas, 15_000 - (int) rede.obterEpocasTreinadas());
+ * }</pre>
+ */
+public class Checkpoint implements OuvinteTreino{
+
+   /**
+    * Extensão dos arquivos de estado de treino.
+    */
+   public static final String EXTENSAO = ".treino";
+
+   /**
+    * Rede neural monitorada.
+    */
+   private final RedeNeural rede;
+
+   /**
+    * Diretório onde os arquivos são salvos.
+    */
+   private final File diretorio;
+
+   /**
+    * Prefixo do nome dos arquivos.
+    */
+   private final String prefixo;
+
+   /**
+    * Quantidade de épocas entre os salvamentos (zero desativa).
+    */
+   private final int intervaloEpocas;
+
+   /**
+    * Tempo mínimo entre os salvamentos, em nanosegundos (zero desativa).
+    */
+   private final long intervaloTempo;
+
+   /**
+    * Quantidade de arquivos mantidos no diretório.
+    */
+   private final int manter;
+
+   /**
+    * Momento do último salvamento.
+    */
+   private long ultimoSalvamento;
+
+   /**
+    * Arquivos salvos, do mais antigo para o mais recente.
+    */
+   private final ArrayDeque<File> arquivos = new ArrayDeque<>();
+
+   /**
+    * Cópia aguardando para ser escrita.
+    */
+   private EstadoTreino pendente = null;
+
+   /**
+    * Indica se a thread de escrita está salvando um arquivo.
+    */
+   private boolean escrevendo = false;
+
+   /**
+    * Indica que a thread de escrita deve ser finalizada.
+    */
+   private boolean encerrado = false;
+
+   /**
+    * Erro ocorrido durante a última escrita.
+    */
+   private volatile RuntimeException erro = null;
+
+   /**
+    * Thread responsável pela escrita dos arquivos.
+    */
+   private Thread escritor = null;
+
+   /**
+    * Inicializa um novo checkpoint para a rede.
+    * <p>
+    *    Os arquivos já existentes no diretório com o mesmo prefixo são considerados
+    *    na contagem dos arquivos mantidos.
+    * </p>
+    * @param rede instância da rede neural.
+    * @param diretorio diretório onde os arquivos serão salvos.
+    * @param prefixo prefixo do nome dos arquivos.
+    * @param intervaloEpocas quantidade de épocas entre os salvamentos, zero desativa.
+    * @param intervaloSegundos tempo mínimo em segundos entre os salvamentos, zero desativa.
+    * @param manter quantidade de arquivos mantidos.
+    * @throws IllegalArgumentException se algum intervalo for negativo ou se os dois
+    * forem iguais a zero.
+    * @throws IllegalArgumentException se a quantidade de arquivos mantidos for menor que um.
+    */
+   public Checkpoint(RedeNeural rede, String diretorio, String prefixo, int intervaloEpocas, long intervaloSegundos, int manter){
+      if(intervaloEpocas < 0 || intervaloSegundos < 0){
+         throw new IllegalArgumentException(
+            "Os intervalos de salvamento não podem ser negativos."
+         );
+      }
+      if(intervaloEpocas == 0 && intervaloSegundos == 0){
+         throw new IllegalArgumentException(
+            "Pelo menos um dos intervalos de salvamento deve ser maior que zero."
+         );
+      }
+      if(manter < 1){
+         throw new IllegalArgumentException(
+            "A quantidade de arquivos mantidos (" + manter + ") deve ser maior que zero."
+         );
+      }
+
+      this.rede = rede;
+      this.diretorio = new File(diretorio);
+      this.prefixo = prefixo;
+      this.intervaloEpocas = intervaloEpocas;
+      this.intervaloTempo = intervaloSegundos * 1_000_000_000L;
+      this.manter = manter;
+      this.ultimoSalvamento = System.nanoTime();
+
+      this.diretorio.mkdirs();
+      arquivos.addAll(Arrays.asList(listar(this.diretorio, prefixo)));
+   }
+
+   @Override
+   public void fimEpoca(MetricasTreino metricas){
+      RuntimeException e = erro;
+      if(e != null){
+         erro = null;
+         throw e;
+      }
+
+      //a contagem de épocas não avança numa época interrompida
+      if(metricas.interrompida()) return;
+
+      //épocas de todas as chamadas de treino, incluindo as restauradas de um estado salvo
+      long epocas = rede.obterEpocasTreinadas();
+      boolean salvar = (intervaloEpocas > 0 && epocas % intervaloEpocas == 0);
+      if(!salvar && intervaloTempo > 0){
+         salvar = (System.nanoTime() - ultimoSalvamento) >= intervaloTempo;
+      }
+
+      if(salvar){
+         salvar();
+      }
+   }
+
+   /**
+    * Copia o estado atual da rede e envia a cópia para ser escrita em segundo plano.
+    */
+   public void salvar(){
+      EstadoTreino estado = EstadoTreino.capturar(rede);
+      ultimoSalvamento = System.nanoTime();
+
+      synchronized(this){
+         if(encerrado){
+            throw new IllegalStateException("O checkpoint já foi fechado.");
+         }
+
+         pendente = estado;
+         if(escritor == null){
+            escritor = new Thread(this::escrever, "checkpoint-" + prefixo);
+            escritor.setDaemon(true);
+            escritor.start();
+         }
+         notifyAll();
+      }
+   }
+
+   /**
+    * Laço da thread de escrita.
+    */
+   private void escrever(){
+      while(true){
+         EstadoTreino estado;
+         synchronized(this){
+            while(pendente == null && !encerrado){
+               try{
+                  wait();
+               }catch(InterruptedException e){
+                  return;
+               }
+            }
+            if(pendente == null) return;
+
+            estado = pendente;
+            pendente = null;
+            escrevendo = true;
+         }
+
+         try{
+            File arquivo = new File(diretorio, String.format("%s-%010d%s", prefixo, estado.epoca, EXTENSAO));
+            SerializadorTreino.escrever(estado, arquivo);
+
+            synchronized(this){
+               arquivos.remove(arquivo);
+               arquivos.addLast(arquivo);
+               while(arquivos.size() > manter){
+                  arquivos.removeFirst().delete();
+               }
+            }
+         }catch(RuntimeException e){
+            erro = e;
+         }finally{
+            synchronized(this){
+               escrevendo = false;
+               notifyAll();
+            }
+         }
+      }
+   }
+
+   /**
+    * Espera até que todas as cópias pendentes tenham sido escritas.
+    * @throws RuntimeException se ocorreu algum erro durante a escrita.
+    */
+   public synchronized void aguardar(){
+      while(pendente != null || escrevendo){
+         try{
+            wait();
+         }catch(InterruptedException e){
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+         }
+      }
+
+      RuntimeException e = erro;
+      if(e != null){
+         erro = null;
+         throw e;
+      }
+   }
+
+   /**
+    * Espera as escritas pendentes e finaliza a thread de escrita.
+    * <p>
+    *    Como a thread de escrita não impede o encerramento do programa, este método
+    *    deve ser chamado no final do treino para garantir que o último arquivo seja salvo.
+    * </p>
+    */
+   public void fechar(){
+      try{
+         aguardar();
+      }finally{
+         synchronized(this){
+            encerrado = true;
+            notifyAll();
+         }
+      }
+   }
+
+   /**
+    * Retorna o arquivo salvo mais recente.
+    * @return arquivo mais recente, ou {@code null} caso nenhum tenha sido salvo.
+    */
+   public synchronized File ultimoArquivo(){
+      return arquivos.peekLast();
+   }
+
+   /**
+    * Busca o arquivo de estado de treino mais recente no diretório.
+    * @param diretorio diretório dos arquivos.
+    * @param prefixo prefixo do nome dos arquivos.
+    * @return arquivo mais recente, ou {@code null} caso não exista nenhum.
+    */
+   public static File ultimoArquivo(String diretorio, String prefixo){
+      File[] encontrados = listar(new File(diretorio), prefixo);
+      return (encontrados.length == 0) ? null : encontrados[encontrados.length - 1];
+   }
+
+   /**
+    * Lista os arquivos de estado com o prefixo, ordenados pela época.
+    */
+   private static File[] listar(File diretorio, String prefixo){
+      File[] encontrados = diretorio.listFiles((dir, nome) -> {
+         return nome.startsWith(prefixo + "-") && nome.endsWith(EXTENSAO);
+      });
+      if(encontrados == null) return new File[0];
+
+      //a época tem tamanho fixo no nome, então a ordem alfabética é a mesma das épocas
+      Arrays.sort(encontrados);
+      return encontrados;
+   }
+}
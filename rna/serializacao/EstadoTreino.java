@@ -0,0 +1,119 @@
+package rna.serializacao;
+
+import rna.estrutura.RedeNeural;
+import rna.otimizadores.Otimizador;
+import rna.treinamento.Treinador;
+
+/**
+ * Cópia em memória do estado de treino de uma {@code Rede Neural}.
+ * <p>
+ *    Guarda os parâmetros da rede, o estado interno do otimizador (momentos,
+ *    acumuladores e contadores de iterações) e o estado do treinador (épocas
+ *    treinadas, histórico de perdas, ordem das amostras e geradores de números
+ *    aleatórios), permitindo que o treino seja retomado exatamente do ponto em
+ *    que a cópia foi feita.
+ * </p>
+ * <p>
+ *    Todos os valores são copiados no momento da captura, então a cópia não é
+ *    afetada pelo treino que continuar depois dela.
+ * </p>
+ */
+public class EstadoTreino{
+
+   /**
+    * Parâmetros da rede, no formato de {@code RedeNeural.obterParametros()}.
+    */
+   double[] parametros;
+
+   /**
+    * Nome da classe do otimizador usado pela rede.
+    */
+   String otimizador;
+
+   /**
+    * Estado interno do otimizador.
+    */
+   double[][] estadoOtimizador;
+
+   /**
+    * Estado do treinador da rede, nulo em arquivos da primeira versão.
+    */
+   byte[] estadoTreinador;
+
+   /**
+    * Época em que a cópia foi feita.
+    */
+   long epoca;
+
+   /**
+    * Versão do formato do estado do treinador.
+    */
+   int versao = Treinador.VERSAO_ESTADO;
+
+   /**
+    * Estado de treino vazio, preenchido pela leitura de um arquivo.
+    */
+   EstadoTreino(){}
+
+   /**
+    * Copia o estado de treino atual da rede.
+    * <p>
+    *    A rede precisa estar compilada.
+    * </p>
+    * @param rede instância da rede neural.
+    * @return cópia do estado de treino da rede.
+    */
+   public static EstadoTreino capturar(RedeNeural rede){
+      EstadoTreino estado = new EstadoTreino();
+      Otimizador otimizador = rede.obterOtimizador();
+
+      estado.parametros = rede.obterParametros();
+      estado.otimizador = otimizador.getClass().getSimpleName();
+      estado.estadoOtimizador = otimizador.obterEstado();
+      estado.estadoTreinador = rede.obterEstadoTreinador();
+      estado.epoca = rede.obterEpocasTreinadas();
+
+      return estado;
+   }
+
+   /**
+    * Restaura o estado de treino na rede fornecida.
+    * <p>
+    *    A rede precisa estar compilada com a mesma arquitetura e o mesmo tipo de
+    *    otimizador da rede que originou o estado.
+    * </p>
+    * @param rede instância da rede neural.
+    * @throws IllegalArgumentException se a rede ou o otimizador forem incompatíveis
+    * com o estado.
+    */
+   public void aplicar(RedeNeural rede){
+      if(rede.obterQuantidadeParametros() != parametros.length){
+         throw new IllegalArgumentException(
+            "A quantidade de parâmetros da rede (" + rede.obterQuantidadeParametros() +
+            ") é diferente da quantidade salva (" + parametros.length + ")."
+         );
+      }
+
+      Otimizador otm = rede.obterOtimizador();
+      String nome = otm.getClass().getSimpleName();
+      if(!nome.equals(otimizador)){
+         throw new IllegalArgumentException(
+            "O otimizador da rede (" + nome + ") é diferente do otimizador salvo (" + otimizador + ")."
+         );
+      }
+
+      otm.configurarEstado(estadoOtimizador);
+      rede.configurarParametros(parametros);
+      if(estadoTreinador != null){
+         rede.configurarEstadoTreinador(estadoTreinador, versao);
+      }
+   }
+
+   /**
+    * Retorna a época de treino em que o estado foi capturado.
+    * @return época do estado.
+    */
+   public long epoca(){
+      return epoca;
+   }
+}
@@ -0,0 +1,200 @@
+package rna.serializacao;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+import rna.estrutura.RedeNeural;
+import rna.treinamento.Treinador;
+
+/**
+ * Serialização do estado de treino da {@code Rede Neural} em formato binário.
+ * <p>
+ *    Diferente do {@code Serializador}, que guarda apenas a arquitetura e os pesos,
+ *    os arquivos de estado de treino também guardam o estado interno do otimizador
+ *    e do treinador, permitindo continuar um treino interrompido sem reiniciar os
+ *    momentos do otimizador, os contadores de épocas e iterações, o histórico de
+ *    perdas e a sequência dos geradores de números aleatórios.
+ * </p>
+ * O formato do arquivo é:
+ * <pre>
+ *    int    identificador ("RNAT")
+ *    int    versão
+ *    long   época
+ *    int    quantidade de parâmetros
+ *    double parâmetros...
+ *    utf    nome do otimizador
+ *    int    quantidade de arrays de estado
+ *    (int tamanho, double valores...) para cada array de estado
+ *    int    tamanho do estado do treinador (-1 quando ausente)
+ *    byte   estado do treinador...
+ * </pre>
+ * Arquivos da versão 1, sem o estado do treinador, e da versão 2, sem as estimativas
+ * da amostragem por importância no estado do treinador, ainda podem ser lidos.
+ * A arquitetura da rede não é salva, o estado deve ser carregado numa rede
+ * compilada com a mesma configuração da rede original.
+ */
+public class SerializadorTreino{
+
+   /**
+    * Identificador dos arquivos de estado de treino.
+    */
+   private static final int IDENTIFICADOR = 0x524E4154;
+
+   /**
+    * Versão atual do formato, a mesma do estado do treinador guardado.
+    */
+   private static final int VERSAO = Treinador.VERSAO_ESTADO;
+
+   /**
+    * Salva o estado de treino atual da rede no caminho especificado.
+    * @param rede instância da rede neural.
+    * @param caminho caminho do arquivo de estado.
+    */
+   public static void salvar(RedeNeural rede, String caminho){
+      escrever(EstadoTreino.capturar(rede), new File(caminho));
+   }
+
+   /**
+    * Carrega o estado de treino salvo no caminho especificado para a rede.
+    * @param rede instância da rede neural, compilada com a mesma arquitetura
+    * e otimizador da rede salva.
+    * @param caminho caminho do arquivo de estado.
+    * @return época em que o estado foi salvo.
+    */
+   public static long carregar(RedeNeural rede, String caminho){
+      EstadoTreino estado = ler(new File(caminho));
+      estado.aplicar(rede);
+      return estado.epoca;
+   }
+
+   /**
+    * Escreve o estado de treino no arquivo fornecido.
+    * <p>
+    *    Os dados são escritos primeiro num arquivo temporário no mesmo diretório,
+    *    que é sincronizado com o disco antes de substituir o destino de forma atômica. 
+    *    Assim nem uma interrupção durante a escrita nem uma queda do sistema logo depois 
+    *    dela deixam um arquivo de estado incompleto.
+    * </p>
+    * @param estado estado de treino.
+    * @param arquivo arquivo de destino.
+    */
+   public static void escrever(EstadoTreino estado, File arquivo){
+      File temp = new File(arquivo.getPath() + ".tmp");
+
+      try(FileOutputStream arq = new FileOutputStream(temp); DataOutputStream out = new DataOutputStream(new BufferedOutputStream(arq))){
+         out.writeInt(IDENTIFICADOR);
+         out.writeInt(VERSAO);
+         out.writeLong(estado.epoca);
+
+         escreverArray(out, estado.parametros);
+
+         out.writeUTF(estado.otimizador);
+         out.writeInt(estado.estadoOtimizador.length);
+         for(double[] arr : estado.estadoOtimizador){
+            escreverArray(out, arr);
+         }
+
+         if(estado.estadoTreinador == null){
+            out.writeInt(-1);
+         }else{
+            out.writeInt(estado.estadoTreinador.length);
+            out.write(estado.estadoTreinador);
+         }
+
+         //o conteúdo precisa estar no disco antes da troca, senão uma queda pode deixar
+         //o destino apontando para um arquivo vazio
+         out.flush();
+         arq.getFD().sync();
+
+      }catch(IOException e){
+         temp.delete();
+         throw new RuntimeException("Erro ao escrever o estado de treino em " + arquivo, e);
+      }
+
+      try{
+         Files.move(
+            temp.toPath(),
+            arquivo.toPath(),
+            StandardCopyOption.ATOMIC_MOVE,
+            StandardCopyOption.REPLACE_EXISTING
+         );
+      }catch(IOException e){
+         temp.delete();
+         throw new RuntimeException("Erro ao substituir o arquivo de estado de treino " + arquivo, e);
+      }
+   }
+
+   /**
+    * Lê um estado de treino do arquivo fornecido.
+    * @param arquivo arquivo de estado.
+    * @return estado de treino lido.
+    * @throws IllegalArgumentException se o arquivo não for um estado de treino válido.
+    */
+   public static EstadoTreino ler(File arquivo){
+      try(DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(arquivo)))){
+         if(in.readInt() != IDENTIFICADOR){
+            throw new IllegalArgumentException(
+               "O arquivo " + arquivo + " não é um estado de treino válido."
+            );
+         }
+         int versao = in.readInt();
+         if(versao < 1 || versao > VERSAO){
+            throw new IllegalArgumentException(
+               "Versão do estado de treino (" + versao + ") não suportada."
+            );
+         }
+
+         EstadoTreino estado = new EstadoTreino();
+         estado.versao = versao;
+         estado.epoca = in.readLong();
+         estado.parametros = lerArray(in);
+         estado.otimizador = in.readUTF();
+         estado.estadoOtimizador = new double[in.readInt()][];
+         for(int i = 0; i < estado.estadoOtimizador.length; i++){
+            estado.estadoOtimizador[i] = lerArray(in);
+         }
+
+         if(versao >= 2){
+            int tamanho = in.readInt();
+            if(tamanho >= 0){
+               estado.estadoTreinador = new byte[tamanho];
+               in.readFully(estado.estadoTreinador);
+            }
+         }
+
+         return estado;
+
+      }catch(IOException e){
+         throw new RuntimeException("Erro ao ler o estado de treino de " + arquivo, e);
+      }
+   }
+
+   /**
+    * Escreve o tamanho e os valores do array.
+    */
+   private static void escreverArray(DataOutputStream out, double[] arr) throws IOException{
+      out.writeInt(arr.length);
+      for(double valor : arr){
+         out.writeDouble(valor);
+      }
+   }
+
+   /**
+    * Lê um array escrito por {@link #escreverArray(DataOutputStream, double[])}.
+    */
+   private static double[] lerArray(DataInputStream in) throws IOException{
+      double[] arr = new double[in.readInt()];
+      for(int i = 0; i < arr.length; i++){
+         arr[i] = in.readDouble();
+      }
+      return arr;
+   }
+}
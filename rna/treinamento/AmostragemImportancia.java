@@ -0,0 +1,174 @@
+package rna.treinamento;
+
+import java.util.Random;
+
+/**
+ * Amostragem por importância das amostras de treino, baseada na perda.
+ * <p>
+ *    Cada amostra possui uma estimativa da sua perda, atualizada sempre que a amostra
+ *    passa pela rede durante o treino. As amostras são sorteadas com probabilidade
+ *    proporcional a essa estimativa misturada com a distribuição uniforme:
+ * </p>
+ * <pre>
+ *    q[i] = (1 - u) * l[i] / soma(l) + u / n
+ * </pre>
+ * <p>
+ *    Onde {@code u} é a fração de mistura. A mistura garante que amostras com perda
+ *    estimada baixa (ou desatualizada) continuem sendo revisitadas e limita o peso de
+ *    correção de cada amostra, {@code w[i] = 1 / (n * q[i])}, a no máximo {@code 1/u}.
+ *    Com esses pesos a média ponderada dos gradientes do lote continua sendo uma
+ *    estimativa sem viés do gradiente médio de todo o conjunto.
+ * </p>
+ * <p>
+ *    As estimativas ficam numa árvore de Fenwick, então tanto o sorteio quanto a
+ *    atualização de uma estimativa custam {@code O(log n)}.
+ * </p>
+ */
+class AmostragemImportancia{
+
+   /**
+    * Árvore de Fenwick com as estimativas de perda, indexada a partir de 1.
+    */
+   private double[] arvore;
+
+   /**
+    * Estimativa de perda de cada amostra.
+    */
+   private double[] perdas;
+
+   /**
+    * Soma das estimativas de perda.
+    */
+   private double total = 0;
+
+   /**
+    * Fração da distribuição uniforme na mistura.
+    */
+   private double mistura;
+
+   /**
+    * Maior potência de dois menor ou igual à quantidade de amostras, usada na busca.
+    */
+   private int passoInicial;
+
+   /**
+    * Indica se todas as amostras já possuem uma estimativa de perda.
+    */
+   boolean aquecida = false;
+
+   /**
+    * Inicializa a amostragem com todas as estimativas zeradas.
+    * @param amostras quantidade de amostras.
+    * @param mistura fração da distribuição uniforme, entre zero (exclusivo) e um.
+    */
+   AmostragemImportancia(int amostras, double mistura){
+      this.perdas = new double[amostras];
+      this.arvore = new double[amostras + 1];
+      this.mistura = mistura;
+      this.passoInicial = Integer.highestOneBit(amostras);
+   }
+
+   /**
+    * Retorna a quantidade de amostras.
+    * @return quantidade de amostras.
+    */
+   int tamanho(){
+      return perdas.length;
+   }
+
+   /**
+    * Atualiza a estimativa de perda de uma amostra.
+    * @param amostra índice da amostra.
+    * @param perda perda calculada para a amostra.
+    */
+   void atualizar(int amostra, double perda){
+      //perdas inválidas não podem contaminar a árvore
+      if(!(perda >= 0) || Double.isInfinite(perda)) perda = 0;
+
+      double delta = perda - perdas[amostra];
+      perdas[amostra] = perda;
+      total += delta;
+
+      for(int i = amostra + 1; i < arvore.length; i += i & -i){
+         arvore[i] += delta;
+      }
+   }
+
+   /**
+    * Reconstrói a árvore a partir das estimativas em {@code O(n)}, descartando o
+    * erro de arredondamento acumulado pelas atualizações.
+    */
+   void reconstruir(){
+      int n = perdas.length;
+      total = 0;
+      for(int i = 0; i < n; i++){
+         arvore[i+1] = perdas[i];
+         total += perdas[i];
+      }
+      for(int i = 1; i <= n; i++){
+         int pai = i + (i & -i);
+         if(pai <= n) arvore[pai] += arvore[i];
+      }
+   }
+
+   /**
+    * Sorteia uma amostra de acordo com a distribuição de importância.
+    * @param random gerador de números aleatórios.
+    * @return índice da amostra sorteada.
+    */
+   int sortear(Random random){
+      int n = perdas.length;
+      if(total <= 0 || random.nextDouble() < mistura){
+         return random.nextInt(n);
+      }
+
+      //menor índice cuja soma acumulada ultrapassa o valor sorteado
+      double alvo = random.nextDouble() * total;
+      int pos = 0;
+      for(int passo = passoInicial; passo > 0; passo >>= 1){
+         int prox = pos + passo;
+         if(prox <= n && arvore[prox] <= alvo){
+            pos = prox;
+            alvo -= arvore[prox];
+         }
+      }
+
+      //arredondamentos podem levar a busca além da última amostra
+      return Math.min(pos, n-1);
+   }
+
+   /**
+    * Retorna o peso de correção do viés da amostra, {@code 1 / (n * q[i])}.
+    * @param amostra índice da amostra.
+    * @return peso da amostra.
+    */
+   double peso(int amostra){
+      int n = perdas.length;
+      double q = mistura / n;
+      if(total > 0){
+         q += (1 - mistura) * perdas[amostra] / total;
+      }else{
+         q = 1.0 / n;
+      }
+
+      return 1 / (n * q);
+   }
+
+   /**
+    * Retorna uma cópia das estimativas de perda.
+    * @return estimativas de perda de cada amostra.
+    */
+   double[] estimativas(){
+      return perdas.clone();
+   }
+
+   /**
+    * Restaura as estimativas de perda e marca a amostragem como aquecida.
+    * @param estimativas estimativas de perda de cada amostra.
+    */
+   void restaurar(double[] estimativas){
+      System.arraycopy(estimativas, 0, perdas, 0, perdas.length);
+      reconstruir();
+      aquecida = true;
+   }
+}
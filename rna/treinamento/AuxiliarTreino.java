@@ -8,10 +8,20 @@ import rna.estrutura.Neuronio;
 
 /**
  * Operadores auxiliares para o treino da rede neural;
+ * <p>
+ *    Os buffers internos são reaproveitados entre as chamadas, então cada thread 
+ *    deve usar a sua própria instância.
+ * </p>
  */
 class AuxiliarTreino{
    Random random = new Random();
 
+   /**
+    * Derivadas da função de perda em relação às saídas da rede, reaproveitadas
+    * entre as amostras.
+    */
+   private double[] derivadas = new double[0];
+
    public AuxiliarTreino(){
 
    }
@@ -58,8 +68,7 @@ class AuxiliarTreino{
    void calcularGradientes(Camada[] redec, Perda perda, double[] real){
       //saída
       Camada saida = redec[redec.length-1];
-      double[] previsto = saida.obterSaida();
-      double[] gradientes = perda.derivada(previsto, real);
+      double[] gradientes = derivadaPerda(perda, saida.obterSaida(), real);
 
       for(int i = 0; i < saida.quantidadeNeuronios(); i++){
          saida.neuronio(i).gradiente = gradientes[i];
@@ -88,56 +97,75 @@ class AuxiliarTreino{
    }
 
    /**
-    * Embaralha os dados da matriz usando o algoritmo Fisher-Yates.
-    * @param entradas matriz com os dados de entrada.
-    * @param saidas matriz com os dados de saída.
+    * Calcula a derivada da função de perda usando o buffer interno, sem alocar
+    * memória depois da primeira chamada.
+    * @param perda função de perda.
+    * @param previsto saídas da rede.
+    * @param real saídas esperadas.
+    * @return buffer com as derivadas, válido até a próxima chamada.
     */
-   void embaralharDados(double[][] entradas, double[][] saidas){
-      int linhas = entradas.length;
-      int colEntrada = entradas[0].length;
-      int colSaida = saidas[0].length;
-  
-      //evitar muitas inicializações
-      double tempEntradas[] = new double[colEntrada];
-      double tempSaidas[] = new double[colSaida];
-      int i, idAleatorio;
-
-      for(i = linhas - 1; i > 0; i--){
-         idAleatorio = random.nextInt(i+1);
-
-         //trocar entradas
-         System.arraycopy(entradas[i], 0, tempEntradas, 0, colEntrada);
-         System.arraycopy(entradas[idAleatorio], 0, entradas[i], 0, colEntrada);
-         System.arraycopy(tempEntradas, 0, entradas[idAleatorio], 0, colEntrada);
-
-         //trocar saídas
-         System.arraycopy(saidas[i], 0, tempSaidas, 0, colSaida);
-         System.arraycopy(saidas[idAleatorio], 0, saidas[i], 0, colSaida);
-         System.arraycopy(tempSaidas, 0, saidas[idAleatorio], 0, colSaida); 
+   double[] derivadaPerda(Perda perda, double[] previsto, double[] real){
+      if(derivadas.length != previsto.length){
+         derivadas = new double[previsto.length];
       }
+      perda.derivada(previsto, real, derivadas);
+      return derivadas;
    }
 
    /**
-    * Dedicado para treino em lote e multithread em implementações futuras.
-    * @param dados conjunto de dados completo.
-    * @param inicio índice de inicio do lote.
-    * @param fim índice final do lote.
-    * @return lote contendo os dados de acordo com os índices fornecidos.
+    * Embaralha a ordem das amostras do conjunto de dados.
+    * <p>
+    *    Apenas a permutação de índices é modificada, os dados em si não são copiados 
+    *    nem reorganizados, então o custo não depende da quantidade de colunas das amostras.
+    * </p>
+    * <p>
+    *    Com {@code tamBloco > 1} as amostras são agrupadas em blocos contíguos e apenas a 
+    *    ordem dos blocos é embaralhada, mantendo as amostras de cada bloco em sequência.
+    * </p>
+    * @param dados conjunto de dados de treino.
+    * @param tamBloco quantidade de amostras por bloco.
     */
-   double[][] obterSubMatriz(double[][] dados, int inicio, int fim){
-      if(inicio < 0 || fim > dados.length || inicio >= fim){
-         throw new IllegalArgumentException("Índices de início ou fim inválidos.");
+   void embaralharDados(DadosTreino dados, int tamBloco){
+      if(tamBloco > 1){
+         embaralharBlocos(dados.indices, dados.blocos(tamBloco), tamBloco);
+      }else{
+         embaralharIndices(dados.indices);
       }
+   }
 
-      int linhas = fim - inicio;
-      int colunas = dados[0].length;
-      double[][] subMatriz = new double[linhas][colunas];
+   /**
+    * Embaralha os índices usando o algoritmo Fisher-Yates.
+    * @param indices array de índices.
+    */
+   void embaralharIndices(int[] indices){
+      int temp, idAleatorio;
 
-      for(int i = 0; i < linhas; i++){
-         System.arraycopy(dados[inicio+i], 0, subMatriz[i], 0, colunas);
+      for(int i = indices.length - 1; i > 0; i--){
+         idAleatorio = random.nextInt(i+1);
+         temp = indices[i];
+         indices[i] = indices[idAleatorio];
+         indices[idAleatorio] = temp;
       }
+   }
 
-      return subMatriz;
+   /**
+    * Embaralha a ordem dos blocos e reescreve os índices das amostras seguindo
+    * a nova ordem, com os índices de cada bloco em sequência.
+    * @param indices array de índices das amostras.
+    * @param blocos array com a ordem dos blocos.
+    * @param tamBloco quantidade de amostras por bloco.
+    */
+   void embaralharBlocos(int[] indices, int[] blocos, int tamBloco){
+      embaralharIndices(blocos);
+
+      int id = 0;
+      for(int bloco : blocos){
+         int inicio = bloco * tamBloco;
+         int fim = Math.min(inicio + tamBloco, indices.length);
+         for(int i = inicio; i < fim; i++){
+            indices[id++] = i;
+         }
+      }
    }
 
    /**
@@ -158,21 +186,4 @@ class AuxiliarTreino{
 
       return indiceMaiorValor;
    }
-
-   /**
-    * Adiciona o novo valor de perda no final do histórico.
-    * @param historico histórico com os valores de perda da rede.
-    * @param valor novo valor que será adicionado.
-    */
-   double[] adicionarPerda(double[] historico, double valor){
-      double[] aux = historico;
-      historico = new double[historico.length + 1];
-      
-      for(int i = 0; i < aux.length; i++){
-         historico[i] = aux[i];
-      }
-      historico[historico.length-1] = valor;
-
-      return historico;
-   }
 }
@@ -0,0 +1,100 @@
+package rna.treinamento;
+
+import java.util.Random;
+
+import rna.dados.FonteDados;
+
+/**
+ * Buffer de tamanho fixo usado para embaralhar as amostras lidas de uma fonte de dados.
+ * <p>
+ *    O buffer é preenchido com as primeiras amostras da fonte, e a cada amostra pedida
+ *    uma posição aleatória do buffer é entregue e substituída pela próxima amostra lida.
+ *    O resultado é uma aproximação do embaralhamento completo que só precisa manter
+ *    {@code capacidade} amostras em memória, quanto maior o buffer, mais próximo do
+ *    embaralhamento completo.
+ * </p>
+ */
+class BufferEmbaralhamento{
+
+   /**
+    * Entradas armazenadas no buffer.
+    */
+   private double[][] entradas;
+
+   /**
+    * Saídas armazenadas no buffer.
+    */
+   private double[][] saidas;
+
+   /**
+    * Quantidade de amostras armazenadas.
+    */
+   private int tamanho;
+
+   /**
+    * Indica se a fonte de dados chegou ao fim.
+    */
+   private boolean fimFonte;
+
+   /**
+    * Gerador de números aleatórios.
+    */
+   private Random random;
+
+   /**
+    * Inicializa o buffer de embaralhamento.
+    * @param capacidade quantidade máxima de amostras armazenadas.
+    * @param tamEntrada tamanho da entrada de cada amostra.
+    * @param tamSaida tamanho da saída de cada amostra.
+    * @param random gerador de números aleatórios.
+    */
+   BufferEmbaralhamento(int capacidade, int tamEntrada, int tamSaida, Random random){
+      this.entradas = new double[capacidade][tamEntrada];
+      this.saidas = new double[capacidade][tamSaida];
+      this.random = random;
+   }
+
+   /**
+    * Descarta as amostras armazenadas para começar uma nova leitura da fonte.
+    */
+   void reiniciar(){
+      this.tamanho = 0;
+      this.fimFonte = false;
+   }
+
+   /**
+    * Copia a próxima amostra embaralhada para os arrays fornecidos.
+    * @param fonte fonte de dados aberta.
+    * @param entrada array que receberá a entrada da amostra.
+    * @param saida array que receberá a saída da amostra.
+    * @return verdadeiro caso uma amostra tenha sido copiada, falso caso a fonte
+    * e o buffer estejam vazios.
+    */
+   boolean proxima(FonteDados fonte, double[] entrada, double[] saida){
+      //completar o buffer com as próximas amostras da fonte
+      while(!fimFonte && tamanho < entradas.length){
+         if(fonte.proxima(entradas[tamanho], saidas[tamanho])){
+            tamanho++;
+         }else{
+            fimFonte = true;
+         }
+      }
+
+      if(tamanho == 0) return false;
+
+      int id = random.nextInt(tamanho);
+      System.arraycopy(entradas[id], 0, entrada, 0, entrada.length);
+      System.arraycopy(saidas[id], 0, saida, 0, saida.length);
+
+      //a última amostra ocupa a posição liberada
+      tamanho--;
+      double[] temp = entradas[id];
+      entradas[id] = entradas[tamanho];
+      entradas[tamanho] = temp;
+      temp = saidas[id];
+      saidas[id] = saidas[tamanho];
+      saidas[tamanho] = temp;
+
+      return true;
+   }
+}
@@ -0,0 +1,105 @@
+package rna.treinamento;
+
+/**
+ * Sinal de cancelamento do treino, verificado pelos modos de treino ao fim de cada lote.
+ * <p>
+ *    O treino é interrompido quando {@link #cancelar()} é chamado (de qualquer thread) ou
+ *    quando o prazo configurado por {@link #configurarPrazo(long)} termina. O lote em
+ *    andamento sempre é concluído, então o treino para no máximo um lote depois do sinal,
+ *    e cada chamada de treino processa ao menos um lote.
+ * </p>
+ * <p>
+ *    O mesmo sinal pode ser reaproveitado entre chamadas, por exemplo configurando um
+ *    novo prazo a cada quadro de uma interface e cancelando quando a janela é fechada.
+ *    A época interrompida continua na próxima chamada com os mesmos dados, então os 
+ *    prazos curtos percorrem todas as amostras, sem recomeçar a época a cada chamada.
+ * </p>
+ * Exemplo:
+ * <pre>{@code
+ * Cancelamento cancelamento = new Cancelamento();
+ * while(!cancelamento.foiCancelado()){
+ *    cancelamento.configurarPrazo(16);
+ *    rede.treinar(entradas, saidas, Integer.MAX_VALUE, 32, cancelamento);
+ *    desenhar(rede);
+ * }
+ * }</pre>
+ */
+public class Cancelamento{
+
+   /**
+    * Indica que o cancelamento foi pedido.
+    */
+   private volatile boolean cancelado = false;
+
+   /**
+    * Indica se existe um prazo configurado.
+    */
+   private volatile boolean temPrazo = false;
+
+   /**
+    * Fim do prazo, no relógio de {@code System.nanoTime()}.
+    */
+   private volatile long prazo = 0;
+
+   /**
+    * Inicializa um novo sinal de cancelamento, sem prazo.
+    */
+   public Cancelamento(){}
+
+   /**
+    * Pede a interrupção do treino. Pode ser chamado de qualquer thread e o pedido
+    * continua valendo até {@link #reiniciar()}.
+    */
+   public void cancelar(){
+      cancelado = true;
+   }
+
+   /**
+    * Configura um prazo a partir de agora, depois do qual o treino é interrompido.
+    * Substitui o prazo anterior, mas não desfaz um pedido de {@code cancelar()}.
+    * @param ms duração do prazo em milissegundos.
+    * @throws IllegalArgumentException se a duração for negativa.
+    */
+   public void configurarPrazo(long ms){
+      if(ms < 0){
+         throw new IllegalArgumentException(
+            "A duração do prazo (" + ms + ") não pode ser negativa."
+         );
+      }
+
+      prazo = System.nanoTime() + ms * 1_000_000;
+      temPrazo = true;
+   }
+
+   /**
+    * Remove o prazo configurado.
+    */
+   public void removerPrazo(){
+      temPrazo = false;
+   }
+
+   /**
+    * Desfaz o pedido de cancelamento e remove o prazo configurado.
+    */
+   public void reiniciar(){
+      cancelado = false;
+      temPrazo = false;
+   }
+
+   /**
+    * Verifica se o cancelamento foi pedido.
+    * @return verdadeiro caso o cancelamento tenha sido pedido.
+    */
+   public boolean foiCancelado(){
+      return cancelado;
+   }
+
+   /**
+    * Verifica se o treino deve ser interrompido, seja por um pedido de cancelamento
+    * ou pelo fim do prazo.
+    * @return verdadeiro caso o treino deva ser interrompido.
+    */
+   public boolean cancelado(){
+      return cancelado || (temPrazo && System.nanoTime() - prazo >= 0);
+   }
+}
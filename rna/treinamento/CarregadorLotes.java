@@ -0,0 +1,248 @@
+package rna.treinamento;
+
+import java.util.Random;
+import java.util.concurrent.Semaphore;
+
+import rna.dados.FonteDados;
+
+/**
+ * Carregador de lotes que prepara o próximo lote numa thread separada enquanto a
+ * rede treina com o lote atual.
+ * <p>
+ *    São usados dois buffers de lote pré-alocados que se alternam: enquanto o treino
+ *    usa um deles, a thread de carregamento lê (e embaralha) as próximas amostras da
+ *    fonte de dados no outro. Quando a leitura da fonte é mais rápida que o treino do
+ *    lote, o custo de leitura fica totalmente escondido.
+ * </p>
+ * <p>
+ *    O tempo que o treino passa esperando por lotes é acumulado em {@link #tempoEspera()},
+ *    e valores altos indicam que o treino está limitado pela leitura dos dados.
+ * </p>
+ */
+class CarregadorLotes{
+
+   /**
+    * Fonte de dados lida.
+    */
+   private FonteDados fonte;
+
+   /**
+    * Buffer de embaralhamento, nulo quando as amostras são lidas em ordem.
+    */
+   private BufferEmbaralhamento buffer;
+
+   /**
+    * Entradas dos dois buffers de lote.
+    */
+   private double[][][] entradas;
+
+   /**
+    * Saídas dos dois buffers de lote.
+    */
+   private double[][][] saidas;
+
+   /**
+    * Visões de lote de cada buffer.
+    */
+   private Lote[] lotes;
+
+   /**
+    * Quantidade de amostras carregadas em cada buffer.
+    */
+   private int[] tamanhos = new int[2];
+
+   /**
+    * Quantidade de buffers livres para o carregamento.
+    */
+   private Semaphore livres;
+
+   /**
+    * Quantidade de buffers prontos para o treino.
+    */
+   private Semaphore prontos;
+
+   /**
+    * Buffer usado atualmente pelo treino, -1 antes do primeiro lote.
+    */
+   private int atual;
+
+   /**
+    * Thread de carregamento.
+    */
+   private Thread carregador;
+
+   /**
+    * Erro ocorrido durante o carregamento.
+    */
+   private volatile RuntimeException erro;
+
+   /**
+    * Tempo total de espera por lotes, em nanossegundos.
+    */
+   private long tempoEspera = 0;
+
+   /**
+    * Quantidade de amostras do início da fonte descartadas na época atual.
+    */
+   private long pular = 0;
+
+   /**
+    * Inicializa o carregador de lotes.
+    * @param fonte fonte de dados de treino.
+    * @param tamLote tamanho de cada lote.
+    * @param tamBuffer tamanho do buffer de embaralhamento, caso seja menor que um
+    * as amostras são lidas na ordem da fonte.
+    * @param random gerador de números aleatórios do embaralhamento.
+    */
+   CarregadorLotes(FonteDados fonte, int tamLote, int tamBuffer, Random random){
+      this.fonte = fonte;
+
+      int tamEntrada = fonte.tamanhoEntrada();
+      int tamSaida = fonte.tamanhoSaida();
+      if(tamBuffer > 0){
+         this.buffer = new BufferEmbaralhamento(tamBuffer, tamEntrada, tamSaida, random);
+      }
+
+      this.entradas = new double[2][tamLote][tamEntrada];
+      this.saidas = new double[2][tamLote][tamSaida];
+      this.lotes = new Lote[]{
+         new Lote(entradas[0], saidas[0], null),
+         new Lote(entradas[1], saidas[1], null)
+      };
+   }
+
+   /**
+    * Abre a fonte de dados e começa o carregamento dos lotes de uma nova época.
+    */
+   void iniciar(){
+      iniciar(0);
+   }
+
+   /**
+    * Abre a fonte de dados e começa o carregamento dos lotes de uma época, descartando
+    * as primeiras amostras da fonte, usado para continuar uma época interrompida.
+    * @param pular quantidade de amostras descartadas no início da fonte.
+    */
+   void iniciar(long pular){
+      this.pular = pular;
+      fonte.abrir();
+      if(buffer != null) buffer.reiniciar();
+
+      livres = new Semaphore(2);
+      prontos = new Semaphore(0);
+      atual = -1;
+      erro = null;
+
+      carregador = new Thread(this::carregar);
+      carregador.setDaemon(true);
+      carregador.start();
+   }
+
+   /**
+    * Laço da thread de carregamento, preenchendo os buffers alternadamente até
+    * o fim da fonte de dados.
+    */
+   private void carregar(){
+      int id = 0;
+      try{
+         //amostras já treinadas da época interrompida, lidas no primeiro buffer,
+         //que ainda não foi entregue ao treino
+         try{
+            for(long i = 0; i < pular && !Thread.currentThread().isInterrupted(); i++){
+               if(!fonte.proxima(entradas[0][0], saidas[0][0])) break;
+            }
+         }catch(RuntimeException e){
+            erro = e;
+            prontos.release();
+            return;
+         }
+
+         while(true){
+            livres.acquire();
+
+            int n = 0;
+            try{
+               n = preencher(entradas[id], saidas[id]);
+            }catch(RuntimeException e){
+               erro = e;
+            }
+
+            tamanhos[id] = n;
+            prontos.release();
+            if(n == 0) break;
+
+            id = 1 - id;
+         }
+      }catch(InterruptedException e){
+         //treino encerrado antes do fim da fonte
+      }
+   }
+
+   /**
+    * Lê as próximas amostras da fonte nos arrays fornecidos.
+    * @return quantidade de amostras lidas.
+    */
+   private int preencher(double[][] entradasLote, double[][] saidasLote){
+      int n = 0;
+      while(n < entradasLote.length){
+         boolean lida = (buffer != null) ? 
+            buffer.proxima(fonte, entradasLote[n], saidasLote[n]) : 
+            fonte.proxima(entradasLote[n], saidasLote[n]);
+         if(!lida) break;
+         n++;
+      }
+
+      return n;
+   }
+
+   /**
+    * Libera o lote anterior para o carregamento e retorna o próximo lote pronto,
+    * esperando caso ele ainda esteja sendo carregado.
+    * @return próximo lote, ou nulo caso a fonte tenha chegado ao fim.
+    */
+   Lote proximo(){
+      if(atual >= 0) livres.release();
+
+      long inicio = System.nanoTime();
+      try{
+         prontos.acquire();
+      }catch(InterruptedException e){
+         Thread.currentThread().interrupt();
+         throw new RuntimeException(e);
+      }
+      tempoEspera += System.nanoTime() - inicio;
+
+      if(erro != null){
+         throw erro;
+      }
+
+      atual = (atual + 1) % 2;
+      if(tamanhos[atual] == 0) return null;
+
+      Lote lote = lotes[atual];
+      lote.configurar(0, tamanhos[atual]);
+      return lote;
+   }
+
+   /**
+    * Encerra o carregamento da época atual e fecha a fonte de dados.
+    */
+   void encerrar(){
+      carregador.interrupt();
+      try{
+         carregador.join();
+      }catch(InterruptedException e){
+         Thread.currentThread().interrupt();
+      }finally{
+         fonte.fechar();
+      }
+   }
+
+   /**
+    * Retorna o tempo total que o treino passou esperando por lotes.
+    * @return tempo de espera em nanossegundos.
+    */
+   long tempoEspera(){
+      return this.tempoEspera;
+   }
+}
@@ -0,0 +1,147 @@
+package rna.treinamento;
+
+/**
+ * Conjunto de dados registrado para o treino da rede neural.
+ * <p>
+ *    Os valores das amostras não são copiados: o conjunto guarda as referências dos
+ *    arrays fornecidos e uma permutação dos índices das amostras, que é reorganizada
+ *    pelos treinos (embaralhamento) sem modificar os arrays de quem chamou o treino.
+ *    As amostras são lidas sempre através da permutação, {@code entradas[indices[i]]}.
+ * </p>
+ * <p>
+ *    Como os dados são identificados pelas referências dos arrays originais, chamadas
+ *    seguidas de treino com os mesmos arrays reaproveitam o conjunto já registrado,
+ *    voltando apenas a permutação para a ordem original.
+ * </p>
+ * <p>
+ *    Quando uma época é interrompida por um cancelamento, o conjunto também guarda a 
+ *    posição e a perda parcial da época, para que a próxima chamada do mesmo modo de 
+ *    treino continue a época com a mesma permutação.
+ * </p>
+ */
+class DadosTreino{
+
+   /**
+    * Dados de entrada.
+    */
+   double[][] entradas;
+
+   /**
+    * Dados de saída.
+    */
+   double[][] saidas;
+
+   /**
+    * Ordem em que as amostras são percorridas pelo treino.
+    */
+   int[] indices;
+
+   /**
+    * Ordem dos blocos de amostras usada pelo embaralhamento em blocos.
+    */
+   int[] blocos;
+
+   /**
+    * Modo de treino da chamada interrompida por um cancelamento (0 sequencial, 1 em
+    * lotes), cuja ordem é mantida para a próxima chamada do mesmo modo, -1 quando
+    * não há chamada interrompida.
+    */
+   int modoInterrompido = -1;
+
+   /**
+    * Quantidade de amostras já percorridas na época interrompida, zero quando a
+    * interrupção aconteceu no fim de uma época.
+    */
+   int posicaoInterrompida = 0;
+
+   /**
+    * Soma das perdas das amostras já percorridas na época interrompida.
+    */
+   double perdaInterrompida = 0;
+
+   /**
+    * Registra um novo conjunto de dados de treino.
+    * @param entradas dados de entrada.
+    * @param saidas dados de saída correspondentes as entradas.
+    */
+   DadosTreino(double[][] entradas, double[][] saidas){
+      this.entradas = entradas;
+      this.saidas = saidas;
+
+      this.indices = new int[entradas.length];
+      reiniciarOrdem();
+   }
+
+   /**
+    * Volta as amostras e os blocos para a ordem original, descartando a época
+    * interrompida.
+    */
+   void reiniciarOrdem(){
+      for(int i = 0; i < indices.length; i++){
+         indices[i] = i;
+      }
+      blocos = null;
+      descartarInterrupcao();
+   }
+
+   /**
+    * Guarda a posição e a perda parcial de uma época interrompida, mantendo a ordem
+    * atual para a próxima chamada do mesmo modo.
+    * @param modo modo de treino da época (0 sequencial, 1 em lotes).
+    * @param posicao quantidade de amostras já percorridas na época.
+    * @param perda soma das perdas das amostras já percorridas.
+    */
+   void interromper(int modo, int posicao, double perda){
+      this.modoInterrompido = modo;
+      this.posicaoInterrompida = posicao;
+      this.perdaInterrompida = perda;
+   }
+
+   /**
+    * Descarta a época interrompida, fazendo a próxima época começar do início.
+    */
+   void descartarInterrupcao(){
+      this.modoInterrompido = -1;
+      this.posicaoInterrompida = 0;
+      this.perdaInterrompida = 0;
+   }
+
+   /**
+    * Verifica se o conjunto foi registrado a partir dos arrays fornecidos.
+    * @param entradas dados de entrada.
+    * @param saidas dados de saída.
+    * @return verdadeiro caso os arrays sejam os mesmos usados no registro.
+    */
+   boolean mesmosDados(double[][] entradas, double[][] saidas){
+      return entradas == this.entradas &&
+             saidas == this.saidas &&
+             entradas.length == this.indices.length &&
+             saidas.length == this.indices.length;
+   }
+
+   /**
+    * Retorna a quantidade de amostras do conjunto.
+    * @return quantidade de amostras.
+    */
+   int tamanho(){
+      return this.indices.length;
+   }
+
+   /**
+    * Retorna o array de ordem dos blocos para o tamanho de bloco fornecido,
+    * criando um novo apenas quando a quantidade de blocos mudar.
+    * @param tamBloco quantidade de amostras por bloco.
+    * @return array com os índices dos blocos.
+    */
+   int[] blocos(int tamBloco){
+      int quantidade = (indices.length + tamBloco - 1) / tamBloco;
+      if(blocos == null || blocos.length != quantidade){
+         blocos = new int[quantidade];
+         for(int i = 0; i < quantidade; i++){
+            blocos[i] = i;
+         }
+      }
+
+      return blocos;
+   }
+}
@@ -0,0 +1,307 @@
+package rna.treinamento;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.SplittableRandom;
+
+import rna.avaliacao.perda.Perda;
+import rna.estrutura.Camada;
+import rna.estrutura.Neuronio;
+import rna.estrutura.RedeNeural;
+
+/**
+ * Estimador paralelo do gradiente da função de perda usando diferenças finitas.
+ * <p>
+ *    Cada thread possui um clone da rede com uma cópia própria dos pesos, e os
+ *    parâmetros perturbados são divididos entre as threads. Assim cada perturbação
+ *    só afeta o clone da thread responsável por ela.
+ * </p>
+ * Estão disponíveis as estimativas:
+ * <ul>
+ *    <li>
+ *       <strong>Progressiva</strong>: {@code g[i] = (L(p + eps) - L(p)) / eps}.
+ *    </li>
+ *    <li>
+ *       <strong>Central</strong>: {@code g[i] = (L(p + eps) - L(p - eps)) / 2eps}, com o
+ *       dobro de avaliações mas erro bem menor.
+ *    </li>
+ *    <li>
+ *       <strong>SPSA</strong>: todos os pesos são perturbados ao mesmo tempo por um vetor
+ *       aleatório de {@code ±1}, precisando de apenas duas avaliações da perda por
+ *       perturbação, independente da quantidade de parâmetros.
+ *    </li>
+ * </ul>
+ * Os gradientes seguem a mesma organização de {@code RedeNeural.obterParametros()}.
+ */
+class DiferencaFinita{
+
+   /**
+    * Rede neural de referência.
+    */
+   private RedeNeural rede;
+
+   /**
+    * Clones da rede usados por cada thread.
+    */
+   private RedeNeural[] clones;
+
+   /**
+    * Referência direta aos pesos de cada neurônio dos clones, na
+    * mesma ordem dos parâmetros da rede.
+    */
+   private double[][][] pesosClones;
+
+   /**
+    * Gradientes parciais de cada thread (usados pelo SPSA).
+    */
+   private double[][] parciais;
+
+   /**
+    * Cópia dos parâmetros atuais da rede de referência.
+    */
+   private double[] pesos;
+
+   /**
+    * Quantidade de threads usadas.
+    */
+   private int nThreads;
+
+   /**
+    * Inicializa o estimador para a rede fornecida.
+    * @param rede rede neural de referência.
+    * @param nThreads quantidade de threads.
+    */
+   DiferencaFinita(RedeNeural rede, int nThreads){
+      this.rede = rede;
+      this.nThreads = nThreads;
+
+      int parametros = rede.obterQuantidadeParametros();
+      this.pesos = new double[parametros];
+      this.parciais = new double[nThreads][parametros];
+      this.clones = new RedeNeural[nThreads];
+      this.pesosClones = new double[nThreads][][];
+
+      for(int t = 0; t < nThreads; t++){
+         clones[t] = rede.clone();
+
+         int neuronios = 0;
+         for(Camada camada : clones[t].obterCamadas()){
+            neuronios += camada.quantidadeNeuronios();
+         }
+
+         pesosClones[t] = new double[neuronios][];
+         int id = 0;
+         for(Camada camada : clones[t].obterCamadas()){
+            for(Neuronio neuronio : camada.neuronios()){
+               pesosClones[t][id++] = neuronio.pesos;
+            }
+         }
+      }
+   }
+
+   /**
+    * Sincroniza os pesos de todos os clones com a rede de referência.
+    */
+   private void sincronizar(){
+      rede.obterParametros(pesos);
+      for(RedeNeural clone : clones){
+         clone.configurarParametros(pesos);
+      }
+   }
+
+   /**
+    * Calcula a perda média da rede usando os pesos atuais da rede de referência.
+    * @param perda função de perda.
+    * @param entradas dados de entrada.
+    * @param saidas dados de saída.
+    * @return perda média.
+    */
+   double perda(Perda perda, double[][] entradas, double[][] saidas){
+      sincronizar();
+      return perda(clones[0], perda, entradas, saidas);
+   }
+
+   /**
+    * Calcula a perda média do clone em relação a todo o conjunto de dados.
+    */
+   private double perda(RedeNeural clone, Perda perda, double[][] entradas, double[][] saidas){
+      double soma = 0;
+      for(int i = 0; i < entradas.length; i++){
+         clone.calcularSaida(entradas[i]);
+         soma += perda.calcular(clone.obterSaidas(), saidas[i]);
+      }
+      return soma / entradas.length;
+   }
+
+   /**
+    * Estima o gradiente perturbando cada parâmetro individualmente.
+    * @param perda função de perda.
+    * @param entradas dados de entrada.
+    * @param saidas dados de saída.
+    * @param eps valor de perturbação.
+    * @param central usar diferença central ao invés da progressiva.
+    * @param gradiente array que receberá o gradiente estimado.
+    * @return perda média sem perturbação.
+    */
+   double gradiente(Perda perda, double[][] entradas, double[][] saidas, double eps, boolean central, double[] gradiente){
+      sincronizar();
+      final double perdaBase = central ? 0 : perda(clones[0], perda, entradas, saidas);
+
+      int parametros = pesos.length;
+      int porThread = parametros / nThreads;
+      int resto = parametros % nThreads;
+
+      Thread[] threads = new Thread[nThreads];
+      RuntimeException[] erros = new RuntimeException[nThreads];
+      int inicio = 0;
+      for(int t = 0; t < nThreads; t++){
+         final int id = t;
+         final int ini = inicio;
+         final int fim = inicio + porThread + ((t < resto) ? 1 : 0);
+         inicio = fim;
+
+         threads[t] = new Thread(() -> {
+            try{
+               RedeNeural clone = clones[id];
+               int p = 0;
+               for(double[] pesosNeuronio : pesosClones[id]){
+                  for(int i = 0; i < pesosNeuronio.length; i++, p++){
+                     if(p < ini || p >= fim) continue;
+
+                     double original = pesosNeuronio[i];
+                     pesosNeuronio[i] = original + eps;
+                     double mais = perda(clone, perda, entradas, saidas);
+
+                     if(central){
+                        pesosNeuronio[i] = original - eps;
+                        double menos = perda(clone, perda, entradas, saidas);
+                        gradiente[p] = (mais - menos) / (2 * eps);
+                     }else{
+                        gradiente[p] = (mais - perdaBase) / eps;
+                     }
+
+                     pesosNeuronio[i] = original;
+                  }
+               }
+            }catch(RuntimeException e){
+               erros[id] = e;
+            }
+         });
+         threads[t].start();
+      }
+
+      esperar(threads, erros);
+
+      return perdaBase;
+   }
+
+   /**
+    * Estima o gradiente usando perturbações simultâneas (SPSA).
+    * <p>
+    *    Para cada perturbação é sorteado um vetor {@code d} de valores {@code ±1} e
+    *    o gradiente é estimado por:
+    * </p>
+    * <pre>
+    *    g[i] = (L(p + eps*d) - L(p - eps*d)) / (2 * eps * d[i])
+    * </pre>
+    * O resultado é a média das estimativas de todas as perturbações, que são
+    * divididas entre as threads. Cada thread sorteia os sinais com o seu próprio 
+    * {@code SplittableRandom}, derivado do gerador fornecido na ordem das threads, e 
+    * as estimativas parciais são somadas em árvore, então o resultado depende apenas 
+    * da seed e da quantidade de threads.
+    * @param perda função de perda.
+    * @param entradas dados de entrada.
+    * @param saidas dados de saída.
+    * @param eps valor de perturbação.
+    * @param perturbacoes quantidade de perturbações sorteadas.
+    * @param random gerador usado para criar os geradores de cada thread.
+    * @param gradiente array que receberá o gradiente estimado.
+    */
+   void gradienteSPSA(Perda perda, double[][] entradas, double[][] saidas, double eps, int perturbacoes, Random random, double[] gradiente){
+      sincronizar();
+
+      int porThread = perturbacoes / nThreads;
+      int resto = perturbacoes % nThreads;
+
+      SplittableRandom base = new SplittableRandom(random.nextLong());
+
+      Thread[] threads = new Thread[nThreads];
+      RuntimeException[] erros = new RuntimeException[nThreads];
+      for(int t = 0; t < nThreads; t++){
+         final int id = t;
+         final int quantidade = porThread + ((t < resto) ? 1 : 0);
+         final SplittableRandom rand = base.split();
+
+         threads[t] = new Thread(() -> {
+            try{
+               RedeNeural clone = clones[id];
+               double[][] pesosNeuronios = pesosClones[id];
+               double[] parcial = parciais[id];
+               Arrays.fill(parcial, 0);
+
+               double[] sinais = new double[pesos.length];
+
+               for(int k = 0; k < quantidade; k++){
+                  for(int i = 0; i < sinais.length; i++){
+                     sinais[i] = rand.nextBoolean() ? 1 : -1;
+                  }
+
+                  perturbar(pesosNeuronios, sinais, eps);
+                  double mais = perda(clone, perda, entradas, saidas);
+                  perturbar(pesosNeuronios, sinais, -2 * eps);
+                  double menos = perda(clone, perda, entradas, saidas);
+                  clone.configurarParametros(pesos);
+
+                  double diferenca = (mais - menos) / (2 * eps);
+                  for(int i = 0; i < sinais.length; i++){
+                     parcial[i] += diferenca / sinais[i];
+                  }
+               }
+
+               ReducaoArvore.reduzir(id, threads, erros, parciais, null);
+            }catch(RuntimeException e){
+               erros[id] = e;
+            }
+         });
+      }
+      ReducaoArvore.iniciar(threads);
+
+      esperar(threads, erros);
+
+      double[] soma = parciais[0];
+      for(int i = 0; i < gradiente.length; i++){
+         gradiente[i] = soma[i] / perturbacoes;
+      }
+   }
+
+   /**
+    * Soma {@code escala * sinais[i]} a cada peso do clone.
+    */
+   private void perturbar(double[][] pesosNeuronios, double[] sinais, double escala){
+      int p = 0;
+      for(double[] pesosNeuronio : pesosNeuronios){
+         for(int i = 0; i < pesosNeuronio.length; i++){
+            pesosNeuronio[i] += escala * sinais[p++];
+         }
+      }
+   }
+
+   /**
+    * Espera todas as threads terminarem e lança novamente o primeiro erro ocorrido
+    * nelas, já que os resultados ficam incompletos.
+    */
+   private void esperar(Thread[] threads, RuntimeException[] erros){
+      try{
+         for(Thread thread : threads){
+            thread.join();
+         }
+      }catch(InterruptedException e){
+         Thread.currentThread().interrupt();
+         throw new RuntimeException(e);
+      }
+
+      for(RuntimeException erro : erros){
+         if(erro != null) throw erro;
+      }
+   }
+}
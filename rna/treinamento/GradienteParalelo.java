@@ -0,0 +1,331 @@
+package rna.treinamento;
+
+import java.util.Arrays;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import rna.avaliacao.perda.Perda;
+import rna.estrutura.Camada;
+import rna.estrutura.Neuronio;
+import rna.estrutura.RedeNeural;
+
+/**
+ * Calcula a perda e o gradiente médio da Rede Neural sobre um conjunto de dados,
+ * dividindo as amostras entre várias threads.
+ * <p>
+ *    Cada thread trabalha com um clone próprio da rede, que tem seus pesos
+ *    sincronizados com a rede original antes de cada cálculo, e acumula os
+ *    gradientes da sua parte dos dados num array próprio. No final os resultados
+ *    parciais são somados sempre na mesma ordem.
+ * </p>
+ * <p>
+ *    As threads auxiliares são persistentes: são criadas no primeiro cálculo e cada 
+ *    cálculo seguinte é entregue a elas por semáforos, sem o custo de criar threads a 
+ *    cada avaliação (como em cada passo da busca linear do {@code LBFGS}). A thread que 
+ *    chama o cálculo processa a primeira parte dos dados. Uma thread auxiliar sem 
+ *    trabalho por {@link #OCIOSIDADE_MS} termina e é recriada no próximo cálculo, e 
+ *    {@link #encerrar()} termina todas imediatamente.
+ * </p>
+ * <p>
+ *    Os gradientes são organizados no mesmo formato de {@code RedeNeural.obterParametros()}.
+ * </p>
+ */
+class GradienteParalelo{
+
+   /**
+    * Tempo sem trabalho, em milissegundos, depois do qual uma thread auxiliar termina.
+    */
+   static final long OCIOSIDADE_MS = 1000;
+
+   /**
+    * Rede neural de referência.
+    */
+   private RedeNeural rede;
+
+   /**
+    * Clones da rede usados por cada thread.
+    */
+   private RedeNeural[] clones;
+
+   /**
+    * Gradientes parciais calculados por cada thread.
+    */
+   private double[][] parciais;
+
+   /**
+    * Perdas parciais calculadas por cada thread.
+    */
+   private double[] perdas;
+
+   /**
+    * Auxiliar para sincronizar os pesos dos clones.
+    */
+   private double[] pesos;
+
+   /**
+    * Quantidade de threads usadas.
+    */
+   private int nThreads;
+
+   /**
+    * Auxiliares de treino de cada thread.
+    */
+   private AuxiliarTreino[] auxiliares;
+
+   /**
+    * Threads auxiliares, o índice zero é a thread que chama o cálculo e as posições
+    * ficam nulas enquanto a thread não está ativa.
+    */
+   private Thread[] trabalhadores;
+
+   /**
+    * Semáforos que entregam um cálculo a cada thread auxiliar.
+    */
+   private Semaphore[] tarefas;
+
+   /**
+    * Semáforos liberados por cada thread ao terminar a sua parte da redução.
+    */
+   private Semaphore[] concluidos;
+
+   /**
+    * Liberado por cada thread auxiliar ao terminar o cálculo atual.
+    */
+   private Semaphore terminados = new Semaphore(0);
+
+   /**
+    * Erros de cada thread no cálculo atual.
+    */
+   private RuntimeException[] erros;
+
+   /**
+    * Primeira amostra de cada thread no cálculo atual, com o fim na posição seguinte.
+    */
+   private int[] limites;
+
+   /**
+    * Dados do cálculo atual, lidos pelas threads auxiliares depois de receberem a tarefa.
+    */
+   private Perda perdaAtual;
+   private double[][] entradasAtuais;
+   private double[][] saidasAtuais;
+   private boolean gradientesAtuais;
+
+   /**
+    * Inicializa o calculador de gradientes para a rede fornecida.
+    * @param rede rede neural de referência.
+    * @param nThreads quantidade de threads.
+    */
+   GradienteParalelo(RedeNeural rede, int nThreads){
+      this.rede = rede;
+      this.nThreads = nThreads;
+
+      int parametros = rede.obterQuantidadeParametros();
+      this.pesos = new double[parametros];
+      this.parciais = new double[nThreads][parametros];
+      this.perdas = new double[nThreads];
+      this.clones = new RedeNeural[nThreads];
+      this.auxiliares = new AuxiliarTreino[nThreads];
+      for(int i = 0; i < nThreads; i++){
+         this.clones[i] = rede.clone();
+         this.auxiliares[i] = new AuxiliarTreino();
+      }
+
+      this.trabalhadores = new Thread[nThreads];
+      this.tarefas = new Semaphore[nThreads];
+      this.concluidos = new Semaphore[nThreads];
+      for(int i = 0; i < nThreads; i++){
+         this.tarefas[i] = new Semaphore(0);
+         this.concluidos[i] = new Semaphore(0);
+      }
+      this.erros = new RuntimeException[nThreads];
+      this.limites = new int[nThreads + 1];
+   }
+
+   /**
+    * Calcula a perda média e o gradiente médio da rede em relação a todas as
+    * amostras fornecidas, usando os pesos atuais da rede de referência.
+    * @param perda função de perda.
+    * @param entradas dados de entrada.
+    * @param saidas dados de saída.
+    * @param gradiente array que receberá o gradiente médio.
+    * @return valor da perda média.
+    */
+   double calcular(Perda perda, double[][] entradas, double[][] saidas, double[] gradiente){
+      executar(perda, entradas, saidas, true);
+
+      double[] soma = parciais[0];
+      double amostras = entradas.length;
+      for(int i = 0; i < gradiente.length; i++){
+         gradiente[i] = soma[i] / amostras;
+      }
+
+      return perdas[0] / amostras;
+   }
+
+   /**
+    * Calcula apenas a perda média da rede em relação a todas as amostras
+    * fornecidas, usando os pesos atuais da rede de referência.
+    * @param perda função de perda.
+    * @param entradas dados de entrada.
+    * @param saidas dados de saída.
+    * @return valor da perda média.
+    */
+   double calcularPerda(Perda perda, double[][] entradas, double[][] saidas){
+      executar(perda, entradas, saidas, false);
+      return perdas[0] / entradas.length;
+   }
+
+   /**
+    * Divide as amostras entre as threads em intervalos contíguos fixos e espera todas 
+    * terminarem. Os parciais são somados em árvore pelas próprias threads, deixando o 
+    * total em {@code parciais[0]} e {@code perdas[0]}. Um erro em qualquer thread é 
+    * lançado novamente depois que todas terminarem, já que os parciais ficam incompletos.
+    */
+   private void executar(Perda perda, double[][] entradas, double[][] saidas, boolean calcularGradientes){
+      rede.obterParametros(pesos);
+
+      int amostras = entradas.length;
+      if(nThreads == 1){
+         processar(0, perda, entradas, saidas, 0, amostras, calcularGradientes);
+         return;
+      }
+
+      int amostrasPorThread = amostras / nThreads;
+      int resto = amostras % nThreads;
+      for(int t = 0; t < nThreads; t++){
+         limites[t+1] = limites[t] + amostrasPorThread + ((t < resto) ? 1 : 0);
+         erros[t] = null;
+      }
+
+      perdaAtual = perda;
+      entradasAtuais = entradas;
+      saidasAtuais = saidas;
+      gradientesAtuais = calcularGradientes;
+
+      synchronized(this){
+         for(int t = 1; t < nThreads; t++){
+            if(trabalhadores[t] == null){
+               final int id = t;
+               trabalhadores[t] = new Thread(() -> trabalhar(id));
+               trabalhadores[t].setDaemon(true);
+               trabalhadores[t].start();
+            }
+            tarefas[t].release();
+         }
+      }
+
+      calcularParte(0);
+
+      try{
+         terminados.acquire(nThreads - 1);
+      }catch(InterruptedException e){
+         Thread.currentThread().interrupt();
+         throw new RuntimeException(e);
+      }finally{
+         //liberações que sobraram da thread zero ou de reduções interrompidas por erros
+         for(Semaphore concluido : concluidos){
+            concluido.drainPermits();
+         }
+         perdaAtual = null;
+         entradasAtuais = null;
+         saidasAtuais = null;
+      }
+
+      for(RuntimeException erro : erros){
+         if(erro != null) throw erro;
+      }
+   }
+
+   /**
+    * Processa e reduz a parte dos dados da thread {@code id} no cálculo atual.
+    */
+   private void calcularParte(int id){
+      try{
+         processar(id, perdaAtual, entradasAtuais, saidasAtuais, limites[id], limites[id+1], gradientesAtuais);
+         ReducaoArvore.reduzir(id, concluidos, erros, gradientesAtuais ? parciais : null, perdas);
+      }catch(RuntimeException e){
+         erros[id] = e;
+      }finally{
+         concluidos[id].release();
+      }
+   }
+
+   /**
+    * Laço de uma thread auxiliar, esperando e processando os cálculos entregues até
+    * ficar ociosa ou ser encerrada.
+    */
+   private void trabalhar(int id){
+      while(true){
+         try{
+            if(!tarefas[id].tryAcquire(OCIOSIDADE_MS, TimeUnit.MILLISECONDS)){
+               //a tarefa pode ter sido entregue depois do fim da espera
+               synchronized(this){
+                  if(!tarefas[id].tryAcquire()){
+                     if(trabalhadores[id] == Thread.currentThread()) trabalhadores[id] = null;
+                     return;
+                  }
+               }
+            }
+         }catch(InterruptedException e){
+            return;
+         }
+
+         try{
+            calcularParte(id);
+         }finally{
+            terminados.release();
+         }
+      }
+   }
+
+   /**
+    * Encerra as threads auxiliares, que são recriadas caso um novo cálculo seja feito.
+    * Não deve ser chamado durante um cálculo.
+    */
+   synchronized void encerrar(){
+      for(int i = 0; i < trabalhadores.length; i++){
+         if(trabalhadores[i] != null){
+            trabalhadores[i].interrupt();
+            trabalhadores[i] = null;
+         }
+      }
+   }
+
+   /**
+    * Processa as amostras do intervalo {@code [inicio, fim)} com o clone da thread.
+    */
+   private void processar(int id, Perda perda, double[][] entradas, double[][] saidas, int inicio, int fim, boolean calcularGradientes){
+      RedeNeural clone = clones[id];
+      clone.configurarParametros(pesos);
+      Camada[] redec = clone.obterCamadas();
+
+      double[] parcial = parciais[id];
+      if(calcularGradientes){
+         Arrays.fill(parcial, 0);
+      }
+
+      double perdaParcial = 0;
+      for(int i = inicio; i < fim; i++){
+         clone.calcularSaida(entradas[i]);
+         perdaParcial += perda.calcular(clone.obterSaidas(), saidas[i]);
+
+         if(calcularGradientes){
+            auxiliares[id].calcularGradientes(redec, perda, saidas[i]);
+
+            int g = 0;
+            for(Camada camada : redec){
+               for(Neuronio neuronio : camada.neuronios()){
+                  double grad = neuronio.gradiente;
+                  double[] ent = neuronio.entradas;
+                  for(int j = 0; j < ent.length; j++){
+                     parcial[g++] -= grad * ent[j];
+                  }
+               }
+            }
+         }
+      }
+
+      perdas[id] = perdaParcial;
+   }
+}
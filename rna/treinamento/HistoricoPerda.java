@@ -0,0 +1,178 @@
+package rna.treinamento;
+
+/**
+ * Histórico dos valores de perda da rede neural durante o treinamento.
+ * <p>
+ *    Os valores são armazenados num buffer de tipo primitivo, que pode funcionar
+ *    de duas formas:
+ * </p>
+ * <ul>
+ *    <li>
+ *       <strong>Crescente</strong>: todos os valores são mantidos e o buffer dobra de
+ *       capacidade quando fica cheio, então adicionar um valor tem custo constante amortizado.
+ *    </li>
+ *    <li>
+ *       <strong>Circular</strong>: o buffer tem capacidade fixa e apenas os valores mais
+ *       recentes são mantidos, sobrescrevendo os mais antigos.
+ *    </li>
+ * </ul>
+ * <p>
+ *    Todos os métodos são sincronizados, permitindo que o histórico seja lido por
+ *    outra thread enquanto o treino ainda está em andamento.
+ * </p>
+ */
+public class HistoricoPerda{
+
+   /**
+    * Buffer com os valores armazenados.
+    */
+   private double[] valores;
+
+   /**
+    * Posição do valor mais antigo dentro do buffer.
+    */
+   private int inicio = 0;
+
+   /**
+    * Quantidade de valores armazenados.
+    */
+   private int tamanho = 0;
+
+   /**
+    * Quantidade total de valores adicionados desde a criação do histórico.
+    */
+   private long total = 0;
+
+   /**
+    * Indica se o buffer tem capacidade fixa.
+    */
+   private boolean circular;
+
+   /**
+    * Inicializa um histórico crescente, que mantém todos os valores adicionados.
+    */
+   public HistoricoPerda(){
+      this.valores = new double[16];
+      this.circular = false;
+   }
+
+   /**
+    * Inicializa um histórico circular, que mantém apenas os últimos valores adicionados.
+    * @param capacidade quantidade máxima de valores armazenados.
+    * @throws IllegalArgumentException se a capacidade for menor que um.
+    */
+   public HistoricoPerda(int capacidade){
+      if(capacidade < 1){
+         throw new IllegalArgumentException(
+            "A capacidade do histórico (" + capacidade + ") deve ser maior que zero."
+         );
+      }
+
+      this.valores = new double[capacidade];
+      this.circular = true;
+   }
+
+   /**
+    * Adiciona um novo valor de perda no final do histórico.
+    * @param valor novo valor de perda.
+    */
+   public synchronized void adicionar(double valor){
+      if(tamanho == valores.length){
+         if(circular){
+            valores[inicio] = valor;
+            inicio = (inicio + 1) % valores.length;
+            total++;
+            return;
+         }
+
+         double[] novo = new double[valores.length * 2];
+         System.arraycopy(valores, 0, novo, 0, tamanho);
+         valores = novo;
+      }
+
+      valores[(inicio + tamanho) % valores.length] = valor;
+      tamanho++;
+      total++;
+   }
+
+   /**
+    * Retorna a quantidade de valores armazenados.
+    * @return quantidade de valores no histórico.
+    */
+   public synchronized int tamanho(){
+      return this.tamanho;
+   }
+
+   /**
+    * Retorna a quantidade total de valores adicionados, incluindo os que já
+    * foram descartados pelo histórico circular.
+    * @return quantidade de valores adicionados.
+    */
+   public synchronized long total(){
+      return this.total;
+   }
+
+   /**
+    * Retorna o valor armazenado no índice fornecido, onde o índice zero
+    * corresponde ao valor mais antigo mantido.
+    * @param indice índice do valor.
+    * @return valor de perda.
+    * @throws IndexOutOfBoundsException se o índice for inválido.
+    */
+   public synchronized double obter(int indice){
+      if(indice < 0 || indice >= tamanho){
+         throw new IndexOutOfBoundsException(
+            "Índice (" + indice + ") inválido para histórico com " + tamanho + " valores."
+         );
+      }
+
+      return valores[(inicio + indice) % valores.length];
+   }
+
+   /**
+    * Retorna o último valor adicionado.
+    * @return último valor de perda, ou {@code NaN} caso o histórico esteja vazio.
+    */
+   public synchronized double ultimo(){
+      if(tamanho == 0) return Double.NaN;
+      return valores[(inicio + tamanho - 1) % valores.length];
+   }
+
+   /**
+    * Retorna uma cópia dos valores armazenados, do mais antigo para o mais recente.
+    * @return array com os valores do histórico.
+    */
+   public synchronized double[] valores(){
+      double[] copia = new double[tamanho];
+
+      int primeiro = Math.min(tamanho, valores.length - inicio);
+      System.arraycopy(valores, inicio, copia, 0, primeiro);
+      System.arraycopy(valores, 0, copia, primeiro, tamanho - primeiro);
+
+      return copia;
+   }
+
+   /**
+    * Substitui o conteúdo do histórico pelos valores fornecidos, usado ao continuar
+    * um treino salvo. No histórico circular apenas os valores mais recentes que
+    * couberem são mantidos.
+    * @param valores valores de perda, do mais antigo para o mais recente.
+    * @param total quantidade total de valores adicionados ao histórico original.
+    */
+   public synchronized void restaurar(double[] valores, long total){
+      limpar();
+      for(double valor : valores){
+         adicionar(valor);
+      }
+      this.total = Math.max(total, this.total);
+   }
+
+   /**
+    * Remove todos os valores do histórico.
+    */
+   public synchronized void limpar(){
+      this.inicio = 0;
+      this.tamanho = 0;
+      this.total = 0;
+   }
+}
@@ -0,0 +1,111 @@
+package rna.treinamento;
+
+/**
+ * Visão de um lote de amostras dentro de um conjunto de dados de treino.
+ * <p>
+ *    O lote não copia nenhuma amostra, ele apenas guarda o intervalo
+ *    {@code [inicio, inicio + tamanho)} e, opcionalmente, uma permutação de índices
+ *    usada para ler as linhas dos dados. Assim a mesma instância pode ser reposicionada
+ *    para cada lote da época sem criar novos objetos.
+ * </p>
+ */
+class Lote{
+
+   /**
+    * Dados de entrada completos.
+    */
+   private double[][] entradas;
+
+   /**
+    * Dados de saída completos.
+    */
+   private double[][] saidas;
+
+   /**
+    * Permutação usada para ler as linhas, pode ser nula.
+    */
+   private int[] indices;
+
+   /**
+    * Posição da primeira amostra do lote.
+    */
+   private int inicio;
+
+   /**
+    * Quantidade de amostras do lote.
+    */
+   private int tamanho;
+
+   /**
+    * Cria uma visão de lote sobre os dados fornecidos.
+    * @param entradas dados de entrada.
+    * @param saidas dados de saída.
+    * @param indices permutação usada para ler as linhas, caso seja nula as
+    * linhas são lidas na ordem dos dados.
+    */
+   Lote(double[][] entradas, double[][] saidas, int[] indices){
+      this.entradas = entradas;
+      this.saidas = saidas;
+      this.indices = indices;
+   }
+
+   /**
+    * Cria uma visão de lote sobre o conjunto de dados de treino, seguindo
+    * a permutação de índices dele.
+    * @param dados conjunto de dados de treino.
+    */
+   Lote(DadosTreino dados){
+      this(dados.entradas, dados.saidas, dados.indices);
+   }
+
+   /**
+    * Reposiciona o lote no intervalo {@code [inicio, fim)}.
+    * @param inicio posição da primeira amostra.
+    * @param fim posição final (exclusiva).
+    */
+   void configurar(int inicio, int fim){
+      int total = (indices == null) ? entradas.length : indices.length;
+      if(inicio < 0 || fim > total || inicio >= fim){
+         throw new IllegalArgumentException("Índices de início ou fim inválidos.");
+      }
+
+      this.inicio = inicio;
+      this.tamanho = fim - inicio;
+   }
+
+   /**
+    * Retorna a quantidade de amostras do lote.
+    * @return tamanho do lote.
+    */
+   int tamanho(){
+      return this.tamanho;
+   }
+
+   /**
+    * Retorna a linha de entrada da amostra do lote.
+    * @param i índice da amostra dentro do lote.
+    * @return dados de entrada da amostra.
+    */
+   double[] entrada(int i){
+      return entradas[linha(i)];
+   }
+
+   /**
+    * Retorna a linha de saída da amostra do lote.
+    * @param i índice da amostra dentro do lote.
+    * @return dados de saída da amostra.
+    */
+   double[] saida(int i){
+      return saidas[linha(i)];
+   }
+
+   /**
+    * Converte o índice da amostra no lote para a linha dos dados.
+    * @param i índice da amostra dentro do lote.
+    * @return linha da amostra nos dados completos.
+    */
+   int linha(int i){
+      int id = inicio + i;
+      return (indices == null) ? id : indices[id];
+   }
+}
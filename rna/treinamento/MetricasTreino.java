@@ -0,0 +1,128 @@
+package rna.treinamento;
+
+/**
+ * Métricas da época atual de treino da Rede Neural, entregues aos
+ * ouvintes de treino.
+ * <p>
+ *    Os tempos são separados entre propagação (calcular a saída da rede),
+ *    retropropagação (calcular os gradientes) e otimizador (atualizar os pesos).
+ *    Quando o otimizador atualiza os pesos durante a retropropagação, o tempo dele
+ *    é contabilizado como retropropagação.
+ * </p>
+ */
+public class MetricasTreino{
+   int epoca;
+   long lotes;
+   long amostras;
+   double somaPerda;
+   long inicioEpoca;
+   long fimEpoca;
+   long tempoPropagacao;
+   long tempoRetropropagacao;
+   long tempoOtimizador;
+   boolean emAndamento;
+   boolean interrompida;
+
+   MetricasTreino(){}
+
+   /**
+    * Zera os valores para o início de uma nova época.
+    */
+   void reiniciar(int epoca){
+      this.epoca = epoca;
+      this.lotes = 0;
+      this.amostras = 0;
+      this.somaPerda = 0;
+      this.tempoPropagacao = 0;
+      this.tempoRetropropagacao = 0;
+      this.tempoOtimizador = 0;
+      this.inicioEpoca = System.nanoTime();
+      this.emAndamento = true;
+      this.interrompida = false;
+   }
+
+   /**
+    * Retorna o índice da época atual dentro do treino, começando em zero.
+    * @return época atual.
+    */
+   public int epoca(){
+      return this.epoca;
+   }
+
+   /**
+    * Indica se a época terminou antes de percorrer todas as amostras, interrompida por
+    * um sinal de cancelamento, ou se a iteração do {@code LBFGS} terminou sem um passo
+    * aceito pela busca linear. Épocas interrompidas não entram no histórico de perdas 
+    * nem na contagem de épocas treinadas da rede.
+    * @return verdadeiro caso a época tenha sido interrompida.
+    */
+   public boolean interrompida(){
+      return this.interrompida;
+   }
+
+   /**
+    * Retorna a quantidade de lotes processados na época.
+    * @return quantidade de lotes.
+    */
+   public long lotes(){
+      return this.lotes;
+   }
+
+   /**
+    * Retorna a quantidade de amostras processadas na época.
+    * @return quantidade de amostras.
+    */
+   public long amostras(){
+      return this.amostras;
+   }
+
+   /**
+    * Retorna a perda média das amostras processadas na época.
+    * @return perda média, ou {@code NaN} caso nenhuma amostra tenha sido processada.
+    */
+   public double perda(){
+      return (amostras == 0) ? Double.NaN : somaPerda / amostras;
+   }
+
+   /**
+    * Retorna o tempo decorrido da época, até o momento ou até o seu final.
+    * @return tempo da época em milissegundos.
+    */
+   public double tempoEpoca(){
+      long fim = emAndamento ? System.nanoTime() : fimEpoca;
+      return (fim - inicioEpoca) / 1_000_000.0;
+   }
+
+   /**
+    * Retorna a quantidade de amostras processadas por segundo na época.
+    * @return amostras por segundo.
+    */
+   public double amostrasPorSegundo(){
+      double tempo = tempoEpoca();
+      return (tempo > 0) ? amostras / (tempo / 1000) : 0;
+   }
+
+   /**
+    * Retorna o tempo gasto calculando a saída da rede na época.
+    * @return tempo de propagação em milissegundos.
+    */
+   public double tempoPropagacao(){
+      return tempoPropagacao / 1_000_000.0;
+   }
+
+   /**
+    * Retorna o tempo gasto calculando os gradientes na época.
+    * @return tempo de retropropagação em milissegundos.
+    */
+   public double tempoRetropropagacao(){
+      return tempoRetropropagacao / 1_000_000.0;
+   }
+
+   /**
+    * Retorna o tempo gasto pelo otimizador atualizando os pesos na época.
+    * @return tempo do otimizador em milissegundos.
+    */
+   public double tempoOtimizador(){
+      return tempoOtimizador / 1_000_000.0;
+   }
+}
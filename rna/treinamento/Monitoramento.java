@@ -0,0 +1,229 @@
+package rna.treinamento;
+
+/**
+ * Gerencia os ouvintes de treino e as métricas entregues a eles.
+ * <p>
+ *    Os treinos só usam o monitoramento quando existe algum ouvinte registrado,
+ *    caso contrário nenhuma medição de tempo é feita.
+ * </p>
+ */
+class Monitoramento{
+
+   /**
+    * Ouvintes registrados.
+    */
+   private volatile OuvinteTreino[] ouvintes = new OuvinteTreino[0];
+
+   /**
+    * Métricas da época atual.
+    */
+   MetricasTreino metricas = new MetricasTreino();
+
+   /**
+    * Quantidade total de épocas concluídas por todos os modos de treino, contada
+    * mesmo quando não há ouvintes.
+    */
+   volatile long epocas = 0;
+
+   /**
+    * Validação em segundo plano, nula quando não configurada.
+    */
+   volatile Validacao validacao = null;
+
+   /**
+    * Critério de parada antecipada, nulo quando não configurado.
+    */
+   volatile ParadaAntecipada parada = null;
+
+   /**
+    * Sinal de cancelamento do treino atual, nulo quando não configurado.
+    */
+   volatile Cancelamento cancelamento = null;
+
+   /**
+    * Registra um novo ouvinte.
+    * <p>
+    *    As alterações copiam o array de ouvintes e são sincronizadas entre si, enquanto
+    *    os treinos apenas leem o array atual, sem travas.
+    * </p>
+    * @param ouvinte ouvinte de treino.
+    */
+   synchronized void adicionar(OuvinteTreino ouvinte){
+      OuvinteTreino[] atuais = ouvintes;
+      OuvinteTreino[] novos = new OuvinteTreino[atuais.length + 1];
+      System.arraycopy(atuais, 0, novos, 0, atuais.length);
+      novos[atuais.length] = ouvinte;
+      ouvintes = novos;
+   }
+
+   /**
+    * Remove um ouvinte registrado.
+    * @param ouvinte ouvinte de treino.
+    */
+   synchronized void remover(OuvinteTreino ouvinte){
+      OuvinteTreino[] atuais = ouvintes;
+      for(int i = 0; i < atuais.length; i++){
+         if(atuais[i] == ouvinte){
+            OuvinteTreino[] novos = new OuvinteTreino[atuais.length - 1];
+            System.arraycopy(atuais, 0, novos, 0, i);
+            System.arraycopy(atuais, i+1, novos, i, atuais.length - i - 1);
+            ouvintes = novos;
+            return;
+         }
+      }
+   }
+
+   /**
+    * Retorna o monitoramento caso exista algum ouvinte registrado.
+    * @return o próprio monitoramento, ou nulo caso não haja ouvintes.
+    */
+   Monitoramento ativo(){
+      return (ouvintes.length > 0) ? this : null;
+   }
+
+   /**
+    * Inicia as métricas de uma nova época e avisa os ouvintes.
+    * @param epoca índice da época.
+    */
+   void inicioEpoca(int epoca){
+      metricas.reiniciar(epoca);
+      for(OuvinteTreino ouvinte : ouvintes){
+         ouvinte.inicioEpoca(metricas);
+      }
+   }
+
+   /**
+    * Registra o fim de um lote e avisa os ouvintes de acordo com o intervalo
+    * de cada um.
+    * @param amostras quantidade de amostras do lote.
+    * @param somaPerda soma das perdas das amostras do lote.
+    */
+   void fimLote(int amostras, double somaPerda){
+      metricas.lotes++;
+      metricas.amostras += amostras;
+      metricas.somaPerda += somaPerda;
+
+      for(OuvinteTreino ouvinte : ouvintes){
+         int intervalo = ouvinte.intervaloLotes();
+         if(intervalo > 0 && metricas.lotes % intervalo == 0){
+            ouvinte.lote(metricas);
+         }
+      }
+   }
+
+   /**
+    * Contabiliza uma época concluída, chamado por todos os modos de treino mesmo
+    * quando não há ouvintes.
+    * @param perda perda média de treino da época, usada apenas quando a parada
+    * antecipada monitora a perda de treino.
+    * @return verdadeiro caso o treino deva ser interrompido.
+    */
+   boolean concluirEpoca(double perda){
+      boolean parar = concluirEpoca();
+
+      ParadaAntecipada p = parada;
+      if(p == null || p.validacao) return parar;
+
+      p.fimEpoca(epocas, perda);
+      return p.parar;
+   }
+
+   /**
+    * Contabiliza uma época concluída sem perda de treino, como a de uma fonte de
+    * dados vazia, que não é registrada na parada antecipada.
+    * @return verdadeiro caso o treino deva ser interrompido.
+    */
+   boolean concluirEpoca(){
+      epocas++;
+
+      Validacao v = validacao;
+      if(v != null) v.fimEpoca(epocas);
+
+      ParadaAntecipada p = parada;
+      return p != null && p.parar;
+   }
+
+   /**
+    * Verifica se o treino atual deve ser interrompido, chamado pelos modos de treino
+    * ao fim de cada lote.
+    * @return verdadeiro caso o cancelamento tenha sido pedido ou o prazo tenha terminado.
+    */
+   boolean cancelado(){
+      Cancelamento c = cancelamento;
+      return c != null && c.cancelado();
+   }
+
+   /**
+    * Verifica se os treinos precisam calcular a perda de treino de cada época
+    * mesmo sem histórico ou ouvintes.
+    * @return verdadeiro caso a parada antecipada monitore a perda de treino.
+    */
+   boolean precisaPerda(){
+      ParadaAntecipada p = parada;
+      return p != null && !p.validacao;
+   }
+
+   /**
+    * Avisa os ouvintes sobre o resultado de uma validação.
+    * @param epoca época em que os pesos avaliados foram copiados.
+    * @param perda perda média no conjunto de validação.
+    */
+   void validacao(long epoca, double perda){
+      for(OuvinteTreino ouvinte : ouvintes){
+         ouvinte.validacao(epoca, perda);
+      }
+   }
+
+   /**
+    * Finaliza as métricas de uma época concluída e avisa os ouvintes.
+    */
+   void fimEpoca(){
+      fimEpoca(false);
+   }
+
+   /**
+    * Finaliza as métricas da época e avisa os ouvintes.
+    * @param interrompida verdadeiro caso a época tenha sido interrompida por um cancelamento.
+    */
+   void fimEpoca(boolean interrompida){
+      metricas.fimEpoca = System.nanoTime();
+      metricas.emAndamento = false;
+      metricas.interrompida = interrompida;
+      for(OuvinteTreino ouvinte : ouvintes){
+         ouvinte.fimEpoca(metricas);
+      }
+   }
+
+   /**
+    * Contabiliza o tempo de propagação desde a marca fornecida.
+    * @param marca tempo inicial, em nanossegundos.
+    * @return tempo atual, usado como a próxima marca.
+    */
+   long propagacao(long marca){
+      long agora = System.nanoTime();
+      metricas.tempoPropagacao += agora - marca;
+      return agora;
+   }
+
+   /**
+    * Contabiliza o tempo de retropropagação desde a marca fornecida.
+    * @param marca tempo inicial, em nanossegundos.
+    * @return tempo atual, usado como a próxima marca.
+    */
+   long retropropagacao(long marca){
+      long agora = System.nanoTime();
+      metricas.tempoRetropropagacao += agora - marca;
+      return agora;
+   }
+
+   /**
+    * Contabiliza o tempo do otimizador desde a marca fornecida.
+    * @param marca tempo inicial, em nanossegundos.
+    * @return tempo atual, usado como a próxima marca.
+    */
+   long otimizador(long marca){
+      long agora = System.nanoTime();
+      metricas.tempoOtimizador += agora - marca;
+      return agora;
+   }
+}
@@ -0,0 +1,64 @@
+package rna.treinamento;
+
+/**
+ * Interface para acompanhar o andamento do treino da Rede Neural.
+ * <p>
+ *    Os métodos são chamados pela própria thread de treino, então devem ser rápidos
+ *    para não atrasar o treinamento. Todos possuem implementação vazia, bastando
+ *    sobrescrever os que forem necessários.
+ * </p>
+ * <p>
+ *    O objeto de métricas recebido é reaproveitado entre as chamadas, caso seja preciso
+ *    guardar algum valor ele deve ser copiado.
+ * </p>
+ * Exemplo:
+ * <pre>{@code
+ * rede.adicionarOuvinte(new OuvinteTreino(){
+ *    public void fimEpoca(MetricasTreino m){
+ *       System.out.println(m.epoca() + " perda: " + m.perda());
+ *    }
+ * });
+ * }</pre>
+ */
+public interface OuvinteTreino{
+
+   /**
+    * Chamado antes do início de cada época de treino.
+    * @param metricas métricas do treino, com os valores da época zerados.
+    */
+   default void inicioEpoca(MetricasTreino metricas){}
+
+   /**
+    * Chamado no final de cada época de treino, inclusive das épocas interrompidas,
+    * indicadas por {@link MetricasTreino#interrompida()}.
+    * @param metricas métricas da época finalizada.
+    */
+   default void fimEpoca(MetricasTreino metricas){}
+
+   /**
+    * Chamado a cada {@link #intervaloLotes()} lotes processados. No treino
+    * sequencial cada amostra conta como um lote.
+    * @param metricas métricas da época até o lote atual.
+    */
+   default void lote(MetricasTreino metricas){}
+
+   /**
+    * Chamado quando uma avaliação do conjunto de validação termina.
+    * <p>
+    *    Diferente dos demais métodos, este é chamado pela thread de validação,
+    *    enquanto o treino continua em andamento.
+    * </p>
+    * @param epoca quantidade de épocas treinadas quando os pesos avaliados foram copiados.
+    * @param perda perda média no conjunto de validação.
+    */
+   default void validacao(long epoca, double perda){}
+
+   /**
+    * Quantidade de lotes entre as chamadas de {@link #lote(MetricasTreino)}, valores
+    * menores que um desativam as chamadas por lote.
+    * @return intervalo de lotes.
+    */
+   default int intervaloLotes(){
+      return 0;
+   }
+}
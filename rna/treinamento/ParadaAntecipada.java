@@ -0,0 +1,154 @@
+package rna.treinamento;
+
+import rna.estrutura.RedeNeural;
+
+/**
+ * Critério de parada antecipada do treino da rede neural.
+ * <p>
+ *    A perda monitorada (de treino ou de validação) é considerada uma melhora quando
+ *    fica abaixo da melhor perda registrada menos o delta mínimo. Quando passam
+ *    {@code paciencia} épocas desde a última melhora, o treino é interrompido no
+ *    final da época atual.
+ * </p>
+ * <p>
+ *    Com a restauração habilitada, os pesos de cada melhora são copiados para um buffer
+ *    em memória e aplicados na rede no final do treino. Ao monitorar a validação, os
+ *    pesos copiados são os mesmos que foram avaliados pela thread de validação.
+ * </p>
+ */
+class ParadaAntecipada{
+
+   /**
+    * Rede neural em treino.
+    */
+   private RedeNeural rede;
+
+   /**
+    * Monitorar a perda de validação ao invés da perda de treino.
+    */
+   final boolean validacao;
+
+   /**
+    * Quantidade de épocas sem melhora antes da parada.
+    */
+   private int paciencia;
+
+   /**
+    * Redução mínima da perda para ser considerada uma melhora.
+    */
+   private double deltaMinimo;
+
+   /**
+    * Restaurar os pesos da melhor época no final do treino.
+    */
+   private boolean restaurar;
+
+   /**
+    * Melhor perda registrada.
+    */
+   private double melhor;
+
+   /**
+    * Época da melhor perda registrada.
+    */
+   private long melhorEpoca;
+
+   /**
+    * Pesos da melhor época.
+    */
+   private double[] melhores;
+
+   /**
+    * Indica se o buffer de melhores pesos possui valores do treino atual.
+    */
+   private boolean temMelhores = false;
+
+   /**
+    * Indica que o treino deve ser interrompido.
+    */
+   volatile boolean parar = false;
+
+   /**
+    * Inicializa o critério de parada antecipada.
+    * @param rede rede neural em treino.
+    * @param validacao monitorar a perda de validação ao invés da perda de treino.
+    * @param paciencia quantidade de épocas sem melhora antes da parada.
+    * @param deltaMinimo redução mínima da perda para ser considerada uma melhora.
+    * @param restaurar restaurar os pesos da melhor época no final do treino.
+    */
+   ParadaAntecipada(RedeNeural rede, boolean validacao, int paciencia, double deltaMinimo, boolean restaurar){
+      this.rede = rede;
+      this.validacao = validacao;
+      this.paciencia = paciencia;
+      this.deltaMinimo = deltaMinimo;
+      this.restaurar = restaurar;
+      if(restaurar){
+         this.melhores = new double[rede.obterQuantidadeParametros()];
+      }
+   }
+
+   /**
+    * Reinicia o critério no início de um novo treino.
+    * @param epoca quantidade de épocas já treinadas pela rede.
+    */
+   synchronized void reiniciar(long epoca){
+      melhor = Double.POSITIVE_INFINITY;
+      melhorEpoca = epoca;
+      temMelhores = false;
+      parar = false;
+   }
+
+   /**
+    * Registra a perda de treino de uma época, usando os pesos atuais da rede.
+    * @param epoca quantidade total de épocas treinadas.
+    * @param perda perda média de treino da época.
+    */
+   void fimEpoca(long epoca, double perda){
+      registrar(epoca, perda, rede);
+   }
+
+   /**
+    * Registra uma perda monitorada.
+    * @param epoca época correspondente aos pesos avaliados.
+    * @param perda perda monitorada.
+    * @param origem rede que possui os pesos avaliados.
+    */
+   synchronized void registrar(long epoca, double perda, RedeNeural origem){
+      if(perda < melhor - deltaMinimo){
+         melhor = perda;
+         melhorEpoca = epoca;
+         if(restaurar){
+            origem.obterParametros(melhores);
+            temMelhores = true;
+         }
+
+      }else if(epoca - melhorEpoca >= paciencia){
+         parar = true;
+      }
+   }
+
+   /**
+    * Aplica os pesos da melhor época na rede, caso a restauração esteja habilitada.
+    */
+   synchronized void restaurarMelhores(){
+      if(restaurar && temMelhores){
+         rede.configurarParametros(melhores);
+      }
+   }
+
+   /**
+    * Retorna a melhor perda registrada no último treino.
+    * @return melhor perda.
+    */
+   synchronized double melhor(){
+      return melhor;
+   }
+
+   /**
+    * Retorna a época da melhor perda registrada no último treino.
+    * @return época da melhor perda.
+    */
+   synchronized long melhorEpoca(){
+      return melhorEpoca;
+   }
+}
@@ -0,0 +1,141 @@
+package rna.treinamento;
+
+import java.util.concurrent.Semaphore;
+
+/**
+ * Redução em árvore dos resultados parciais de um grupo de threads.
+ * <p>
+ *    Cada thread chama {@code reduzir()} com o seu índice depois de terminar o seu
+ *    trabalho. Em cada nível {@code s = 1, 2, 4, ...}, a thread {@code i} (com {@code i}
+ *    múltiplo de {@code 2s}) espera a thread {@code i + s} terminar e soma os parciais
+ *    dela aos seus. No final a thread {@code 0} possui a soma de todos os parciais.
+ * </p>
+ * <p>
+ *    Os pares e a ordem das somas dependem apenas da quantidade de threads, nunca de
+ *    qual thread terminou primeiro, então o resultado é idêntico bit a bit entre
+ *    execuções com a mesma quantidade de threads. Os níveis da árvore também são
+ *    executados em paralelo e o erro de arredondamento cresce com {@code log(n)} ao
+ *    invés de {@code n}.
+ * </p>
+ * <p>
+ *    As threads devem ser iniciadas por {@link #iniciar(Thread[])}, já que esperar uma 
+ *    thread que ainda não foi iniciada retorna imediatamente.
+ * </p>
+ * <p>
+ *    Cada thread deve registrar o seu erro no array {@code erros}. Uma thread cuja parceira 
+ *    terminou com um erro para de somar, já que os parciais da parceira estão incompletos, 
+ *    e quem iniciou as threads deve lançar o erro depois de esperar todas elas.
+ * </p>
+ * Exemplo:
+ * <pre>{@code
+ * threads[t] = new Thread(() -> {
+ *    try{
+ *       processar(id);
+ *       ReducaoArvore.reduzir(id, threads, erros, parciais, perdas);
+ *    }catch(RuntimeException e){
+ *       erros[id] = e;
+ *    }
+ * });
+ * ...
+ * ReducaoArvore.iniciar(threads);
+ * }</pre>
+ * Threads persistentes, que não terminam entre um cálculo e outro, usam a versão com
+ * semáforos: cada thread libera o seu semáforo depois de reduzir (ou de falhar), e a
+ * parceira espera por ele ao invés de esperar o fim da thread.
+ */
+public class ReducaoArvore{
+
+   /**
+    * Inicia as threads da última para a primeira, garantindo que cada thread só
+    * espere por parceiras já iniciadas.
+    * @param threads threads do grupo.
+    */
+   public static void iniciar(Thread[] threads){
+      for(int i = threads.length-1; i >= 0; i--){
+         threads[i].start();
+      }
+   }
+
+   /**
+    * Soma os parciais das threads parceiras aos parciais da thread {@code id},
+    * seguindo a árvore de redução.
+    * @param id índice da thread atual.
+    * @param threads todas as threads do grupo, iniciadas por {@code iniciar()}.
+    * @param erros erros registrados por cada thread, nulo para as que não falharam.
+    * @param vetores parciais vetoriais de cada thread, pode ser nulo.
+    * @param escalares parciais escalares de cada thread, pode ser nulo.
+    */
+   public static void reduzir(int id, Thread[] threads, RuntimeException[] erros, double[][] vetores, double[] escalares){
+      int n = threads.length;
+      for(int passo = 1; passo < n; passo *= 2){
+         if(id % (2 * passo) != 0) return;
+
+         int par = id + passo;
+         if(par >= n) continue;
+
+         try{
+            threads[par].join();
+         }catch(InterruptedException e){
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+         }
+
+         //o resultado será descartado, o erro da parceira é lançado por quem iniciou as threads
+         if(erros[par] != null) return;
+
+         somar(id, par, vetores, escalares);
+      }
+   }
+
+   /**
+    * Soma os parciais das threads parceiras aos parciais da thread {@code id},
+    * seguindo a mesma árvore de redução, para threads persistentes.
+    * <p>
+    *    Cada thread deve liberar {@code concluidos[id]} uma única vez por cálculo, depois 
+    *    de reduzir ou de falhar. Como uma thread que encontra um erro para de esperar as 
+    *    parceiras seguintes, quem distribui o cálculo deve descartar as liberações que 
+    *    sobrarem depois que todas as threads terminarem.
+    * </p>
+    * @param id índice da thread atual.
+    * @param concluidos semáforos liberados por cada thread ao terminar a sua redução.
+    * @param erros erros registrados por cada thread, nulo para as que não falharam.
+    * @param vetores parciais vetoriais de cada thread, pode ser nulo.
+    * @param escalares parciais escalares de cada thread, pode ser nulo.
+    */
+   public static void reduzir(int id, Semaphore[] concluidos, RuntimeException[] erros, double[][] vetores, double[] escalares){
+      int n = concluidos.length;
+      for(int passo = 1; passo < n; passo *= 2){
+         if(id % (2 * passo) != 0) return;
+
+         int par = id + passo;
+         if(par >= n) continue;
+
+         try{
+            concluidos[par].acquire();
+         }catch(InterruptedException e){
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+         }
+
+         if(erros[par] != null) return;
+
+         somar(id, par, vetores, escalares);
+      }
+   }
+
+   /**
+    * Soma os parciais da thread {@code par} aos da thread {@code id}.
+    */
+   private static void somar(int id, int par, double[][] vetores, double[] escalares){
+      if(vetores != null){
+         double[] destino = vetores[id];
+         double[] origem = vetores[par];
+         for(int i = 0; i < destino.length; i++){
+            destino[i] += origem[i];
+         }
+      }
+      if(escalares != null){
+         escalares[id] += escalares[par];
+      }
+   }
+}
@@ -1,7 +1,16 @@
 package rna.treinamento;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Random;
+
 import rna.avaliacao.perda.Perda;
+import rna.dados.FonteDados;
 import rna.estrutura.RedeNeural;
+import rna.otimizadores.LBFGS;
 import rna.otimizadores.Otimizador;
 
 /**
@@ -10,6 +19,12 @@ import rna.otimizadores.Otimizador;
  */
 public class Treinador{
 
+   /**
+    * Versão atual do formato do estado do treinador, a mesma dos arquivos de
+    * estado de treino que o guardam.
+    */
+   public static final int VERSAO_ESTADO = 3;
+
    /**
     * Auxiliar na verificação do cálculo do histórico de custos.
     */
@@ -17,6 +32,51 @@ public class Treinador{
 
    Treino treino;
    TreinoLote treinoLote;
+   TreinoLBFGS treinoLBFGS;
+
+   /**
+    * Quantidade de threads usadas pelos modos de treino que dividem o
+    * processamento do conjunto de dados.
+    */
+   int threads = Runtime.getRuntime().availableProcessors();
+
+   /**
+    * Gerador de números aleatórios usado pelas estimativas do gradiente
+    * por perturbações aleatórias.
+    */
+   Random random = new Random();
+
+   /**
+    * Conjunto de dados usado no último treino, reaproveitado enquanto os
+    * mesmos arrays forem fornecidos.
+    */
+   private DadosTreino dados;
+
+   /**
+    * Ouvintes de treino compartilhados por todos os modos de treino.
+    */
+   private Monitoramento monitoramento = new Monitoramento();
+
+   /**
+    * Ordem das amostras restaurada de um estado salvo, aplicada no próximo
+    * registro de dados.
+    */
+   private int[][] ordemPendente = null;
+
+   /**
+    * Indica que existe uma chamada de treino em andamento.
+    */
+   private volatile boolean emTreino = false;
+
+   /**
+    * Calculador de gradientes reaproveitado entre as chamadas de {@code calcularGradiente}.
+    */
+   private GradienteParalelo gradienteParalelo = null;
+
+   /**
+    * Quantidade de threads do calculador de gradientes atual.
+    */
+   private int threadsGradiente = 0;
 
    /**
     * Responsável por organizar os tipos de treino da rede neural.
@@ -24,6 +84,27 @@ public class Treinador{
    public Treinador(){
       treino =     new Treino(calcularHistorico);
       treinoLote = new TreinoLote(calcularHistorico);
+      treinoLBFGS = new TreinoLBFGS(calcularHistorico);
+
+      treino.monitoramento = monitoramento;
+      treinoLote.monitoramento = monitoramento;
+      treinoLBFGS.monitoramento = monitoramento;
+   }
+
+   /**
+    * Registra um ouvinte que será avisado do andamento de todos os modos de treino.
+    * @param ouvinte ouvinte de treino.
+    */
+   public void adicionarOuvinte(OuvinteTreino ouvinte){
+      monitoramento.adicionar(ouvinte);
+   }
+
+   /**
+    * Remove um ouvinte registrado.
+    * @param ouvinte ouvinte de treino.
+    */
+   public void removerOuvinte(OuvinteTreino ouvinte){
+      monitoramento.remover(ouvinte);
    }
 
    /**
@@ -33,6 +114,7 @@ public class Treinador{
    public void configurarSeed(long seed){
       this.treino.configurarSeed(seed);
       this.treinoLote.configurarSeed(seed);
+      this.random.setSeed(seed);
    }
 
    /**
@@ -44,6 +126,174 @@ public class Treinador{
       this.calcularHistorico = calcularHistorico;
       treino.configurarHistorico(calcularHistorico);
       treinoLote.configurarHistorico(calcularHistorico);
+      treinoLBFGS.configurarHistorico(calcularHistorico);
+   }
+
+   /**
+    * Configura a capacidade do histórico de perdas, descartando os valores já
+    * armazenados.
+    * @param capacidade quantidade máxima de valores mantidos, ou zero para manter
+    * todos os valores.
+    */
+   public void configurarCapacidadeHistorico(int capacidade){
+      treino.historico = novoHistorico(capacidade);
+      treinoLote.historico = novoHistorico(capacidade);
+      treinoLBFGS.historico = novoHistorico(capacidade);
+   }
+
+   /**
+    * Cria um histórico crescente ou circular de acordo com a capacidade.
+    */
+   private HistoricoPerda novoHistorico(int capacidade){
+      return (capacidade > 0) ? new HistoricoPerda(capacidade) : new HistoricoPerda();
+   }
+
+   /**
+    * Configura a quantidade de lotes que terão seus gradientes somados antes de
+    * cada atualização do otimizador durante o treino em lotes.
+    * @param acumulacao quantidade de lotes acumulados por atualização.
+    */
+   public void configurarAcumulacaoGradientes(int acumulacao){
+      treinoLote.configurarAcumulacao(acumulacao);
+   }
+
+   /**
+    * Configura a amostragem por importância baseada na perda no treino em lotes.
+    * @param mistura fração da distribuição uniforme misturada à distribuição
+    * proporcional à perda, com zero a amostragem é desativada.
+    */
+   public void configurarAmostragemImportancia(double mistura){
+      treinoLote.configurarAmostragemImportancia(mistura);
+   }
+
+   /**
+    * Configura o embaralhamento em blocos dos dados de treino, onde apenas a ordem 
+    * de blocos de amostras contíguas é embaralhada a cada época.
+    * @param tamBloco quantidade de amostras por bloco, com 1 cada amostra é 
+    * embaralhada individualmente.
+    */
+   public void configurarEmbaralhamentoBlocos(int tamBloco){
+      treino.configurarEmbaralhamentoBlocos(tamBloco);
+      treinoLote.configurarEmbaralhamentoBlocos(tamBloco);
+   }
+
+   /**
+    * Configura a avaliação de um conjunto de validação em segundo plano, feita a
+    * cada intervalo de épocas sobre uma cópia dos pesos enquanto o treino continua.
+    * Uma validação configurada anteriormente é substituída.
+    * @param rede rede neural que será treinada.
+    * @param entradas dados de entrada da validação.
+    * @param saidas dados de saída da validação.
+    * @param intervalo quantidade de épocas entre as avaliações.
+    */
+   public void configurarValidacao(RedeNeural rede, double[][] entradas, double[][] saidas, int intervalo){
+      removerValidacao();
+      monitoramento.validacao = new Validacao(rede, entradas, saidas, intervalo, monitoramento);
+   }
+
+   /**
+    * Remove a validação em segundo plano configurada.
+    */
+   public void removerValidacao(){
+      Validacao v = monitoramento.validacao;
+      if(v != null){
+         v.encerrar();
+         monitoramento.validacao = null;
+      }
+   }
+
+   /**
+    * Retorna o histórico das perdas de validação, com um valor por avaliação.
+    * @return histórico de validação, ou nulo caso a validação não esteja configurada.
+    */
+   public HistoricoPerda obterHistoricoValidacao(){
+      Validacao v = monitoramento.validacao;
+      return (v == null) ? null : v.historico;
+   }
+
+   /**
+    * Configura a parada antecipada do treino, substituindo uma configuração anterior.
+    * @param rede rede neural que será treinada.
+    * @param validacao monitorar a perda de validação ao invés da perda de treino.
+    * @param paciencia quantidade de épocas sem melhora antes da parada.
+    * @param deltaMinimo redução mínima da perda para ser considerada uma melhora.
+    * @param restaurarMelhores aplicar os pesos da melhor época no final do treino.
+    */
+   public void configurarParadaAntecipada(RedeNeural rede, boolean validacao, int paciencia, double deltaMinimo, boolean restaurarMelhores){
+      monitoramento.parada = new ParadaAntecipada(rede, validacao, paciencia, deltaMinimo, restaurarMelhores);
+   }
+
+   /**
+    * Remove a parada antecipada configurada.
+    */
+   public void removerParadaAntecipada(){
+      monitoramento.parada = null;
+   }
+
+   /**
+    * Retorna a época com a melhor perda monitorada pela parada antecipada no último treino.
+    * @return época da melhor perda, ou -1 caso a parada antecipada não esteja configurada.
+    */
+   public long obterMelhorEpoca(){
+      ParadaAntecipada p = monitoramento.parada;
+      return (p == null) ? -1 : p.melhorEpoca();
+   }
+
+   /**
+    * Prepara os critérios que dependem do início de cada chamada de treino.
+    */
+   private void iniciarTreino(){
+      emTreino = true;
+      ParadaAntecipada p = monitoramento.parada;
+      if(p != null) p.reiniciar(monitoramento.epocas);
+   }
+
+   /**
+    * Espera a avaliação dos últimos pesos copiados, para que os resultados da
+    * validação estejam completos quando o treino terminar, e restaura os melhores
+    * pesos da parada antecipada.
+    * <p>
+    *    Chamado também quando o treino termina com um erro, então os melhores pesos 
+    *    são restaurados mesmo se a espera da validação falhar.
+    * </p>
+    */
+   private void finalizarTreino(){
+      try{
+         Validacao v = monitoramento.validacao;
+         if(v != null) v.aguardar();
+      }finally{
+         ParadaAntecipada p = monitoramento.parada;
+         if(p != null) p.restaurarMelhores();
+
+         emTreino = false;
+      }
+   }
+
+   /**
+    * Configura o sinal de cancelamento verificado pelos modos de treino ao fim
+    * de cada lote.
+    * @param cancelamento sinal de cancelamento, nulo para remover.
+    */
+   public void configurarCancelamento(Cancelamento cancelamento){
+      monitoramento.cancelamento = cancelamento;
+   }
+
+   /**
+    * Configura a quantidade de threads usadas pelos modos de treino que
+    * dividem o processamento do conjunto de dados.
+    * @param threads quantidade de threads.
+    */
+   public void configurarThreads(int threads){
+      this.threads = threads;
+   }
+
+   /**
+    * Retorna a quantidade de threads usadas pelos modos de treino que dividem o
+    * processamento do conjunto de dados.
+    * @return quantidade de threads.
+    */
+   public int obterThreads(){
+      return threads;
    }
 
    /**
@@ -58,17 +308,29 @@ public class Treinador{
     * @param embaralhar embaralhar dados de treino para cada época.
     */
    public void treino(RedeNeural rede, Perda perda, Otimizador otimizador, double[][] entradas, double[][] saidas, int epochs){
-      treino.treino(
-         rede, 
-         perda, 
-         otimizador, 
-         clonarElementos(entradas), 
-         clonarElementos(saidas), 
-         epochs
-      );
+      if(otimizador instanceof LBFGS){
+         treinoLBFGS(rede, perda, (LBFGS) otimizador, entradas, saidas, epochs);
+         return;
+      }
 
+      //marcado antes do treino para que o histórico possa ser lido durante ele
       treino.ultimoUsado = true;
       treinoLote.ultimoUsado = false;
+      treinoLBFGS.ultimoUsado = false;
+
+      iniciarTreino();
+      try{
+         DadosTreino dados = registrarDados(entradas, saidas, 0);
+         treino.treino(
+            rede, 
+            perda, 
+            otimizador, 
+            dados, 
+            epochs
+         );
+      }finally{
+         finalizarTreino();
+      }
    }
 
    /**
@@ -84,37 +346,421 @@ public class Treinador{
     * @param tamLote tamanho do lote.
     */
    public void treino(RedeNeural rede, Perda perda, Otimizador otimizador, double[][] entradas, double[][] saidas, int epochs, int tamLote){
-      treinoLote.treino(
-         rede, 
-         perda, 
-         otimizador, 
-         clonarElementos(entradas), 
-         clonarElementos(saidas), 
-         epochs, 
-         tamLote
-      );
+      if(otimizador instanceof LBFGS){
+         treinoLBFGS(rede, perda, (LBFGS) otimizador, entradas, saidas, epochs);
+         return;
+      }
 
       treinoLote.ultimoUsado = true;
       treino.ultimoUsado = false;
+      treinoLBFGS.ultimoUsado = false;
+
+      iniciarTreino();
+      try{
+         DadosTreino dados = registrarDados(entradas, saidas, 1);
+         treinoLote.treino(
+            rede, 
+            perda, 
+            otimizador, 
+            dados, 
+            epochs, 
+            tamLote
+         );
+      }finally{
+         finalizarTreino();
+      }
    }
 
    /**
-    * Copia elemento a elemento dos dados para evitar clones com mesmas referências
-    * e embaralhar os dados de treino usados.
-    * @param dados conjunto de dados base.
-    * @return novo conjunto de dados com os mesmo valores contidos no original.
+    * Treina a rede neural em lotes com as amostras lidas de uma fonte de dados, sem 
+    * precisar manter o conjunto de dados completo em memória.
+    * @param rede rede neural que será treinada.
+    * @param perda função de perda usada durante o treinamento.
+    * @param otimizador otimizador configurado da rede.
+    * @param fonte fonte de dados de treino.
+    * @param epochs quantidade de épocas de treinamento.
+    * @param tamLote tamanho do lote.
+    * @param tamBuffer quantidade de amostras do buffer de embaralhamento.
+    * @throws IllegalArgumentException se o otimizador for o L-BFGS, que precisa de 
+    * todo o conjunto de dados em cada iteração.
     */
-   private double[][] clonarElementos(double[][] dados){
-      double[][] clone = new double[dados.length][dados[0].length];
+   public void treino(RedeNeural rede, Perda perda, Otimizador otimizador, FonteDados fonte, int epochs, int tamLote, int tamBuffer){
+      if(otimizador instanceof LBFGS){
+         throw new IllegalArgumentException(
+            "O LBFGS não suporta treino a partir de fontes de dados."
+         );
+      }
+
+      treinoLote.ultimoUsado = true;
+      treino.ultimoUsado = false;
+      treinoLBFGS.ultimoUsado = false;
 
-      for(int i = 0; i < dados.length; i++){
-         // System.arraycopy(dados[i], 0, clone[i], 0, dados[i].length);
-         for(int j = 0; j < dados[i].length; j++){
-            clone[i][j] = dados[i][j];
+      //a época interrompida dos arrays não continua depois de um treino com outra fonte
+      if(dados != null) dados.descartarInterrupcao();
+
+      iniciarTreino();
+      try{
+         treinoLote.treino(rede, perda, otimizador, fonte, epochs, tamLote, tamBuffer);
+      }finally{
+         finalizarTreino();
+      }
+   }
+
+   /**
+    * Treina a rede neural usando o L-BFGS sobre todo o conjunto de dados, onde
+    * cada época corresponde a uma iteração do otimizador.
+    * @param rede rede neural que será treinada.
+    * @param perda função de perda usada durante o treinamento.
+    * @param otimizador otimizador L-BFGS configurado da rede.
+    * @param entradas dados de entrada para o treino.
+    * @param saidas dados de saída correspondente as entradas para o treino.
+    * @param iteracoes quantidade máxima de iterações.
+    */
+   private void treinoLBFGS(RedeNeural rede, Perda perda, LBFGS otimizador, double[][] entradas, double[][] saidas, int iteracoes){
+      treinoLBFGS.ultimoUsado = true;
+      treino.ultimoUsado = false;
+      treinoLote.ultimoUsado = false;
+
+      iniciarTreino();
+      try{
+         //os dados não são modificados pelo treino em lote completo
+         treinoLBFGS.treino(rede, perda, otimizador, entradas, saidas, iteracoes, threads);
+      }finally{
+         finalizarTreino();
+      }
+   }
+
+   /**
+    * Treina a rede neural estimando o gradiente da função de perda por diferenças finitas,
+    * perturbando cada peso individualmente. As perturbações são divididas entre as threads
+    * configuradas.
+    * @param rede rede neural que será treinada.
+    * @param perda função de perda usada na estimativa.
+    * @param entradas dados de entrada para o treino.
+    * @param saidas dados de saída correspondente as entradas para o treino.
+    * @param eps valor de perturbação.
+    * @param tA valor de taxa de aprendizagem.
+    * @param epochs quantidade de épocas de treinamento.
+    * @param perdaMinima valor de perda em que o treino é finalizado.
+    * @param central usar diferença central ao invés da progressiva.
+    */
+   public void diferencaFinita(RedeNeural rede, Perda perda, double[][] entradas, double[][] saidas, double eps, double tA, int epochs, double perdaMinima, boolean central){
+      DiferencaFinita df = new DiferencaFinita(rede, Math.max(1, threads));
+      double[] parametros = rede.obterParametros();
+      double[] gradiente = new double[parametros.length];
+
+      for(int i = 0; i < epochs; i++){
+         double perdaAtual = central ? df.perda(perda, entradas, saidas) : 0;
+         double p = df.gradiente(perda, entradas, saidas, eps, central, gradiente);
+         if(!central) perdaAtual = p;
+         if(perdaAtual < perdaMinima) break;
+
+         aplicarGradiente(rede, parametros, gradiente, tA);
+      }
+   }
+
+   /**
+    * Treina a rede neural estimando o gradiente da função de perda por perturbações
+    * simultâneas aleatórias (SPSA), onde cada estimativa precisa de apenas duas avaliações
+    * da perda, independente da quantidade de parâmetros. As perturbações são divididas
+    * entre as threads configuradas.
+    * @param rede rede neural que será treinada.
+    * @param perda função de perda usada na estimativa.
+    * @param entradas dados de entrada para o treino.
+    * @param saidas dados de saída correspondente as entradas para o treino.
+    * @param eps valor de perturbação.
+    * @param tA valor de taxa de aprendizagem.
+    * @param epochs quantidade de épocas de treinamento.
+    * @param perdaMinima valor de perda em que o treino é finalizado.
+    * @param perturbacoes quantidade de perturbações usadas em cada estimativa.
+    */
+   public void diferencaFinitaSPSA(RedeNeural rede, Perda perda, double[][] entradas, double[][] saidas, double eps, double tA, int epochs, double perdaMinima, int perturbacoes){
+      DiferencaFinita df = new DiferencaFinita(rede, Math.max(1, Math.min(threads, perturbacoes)));
+      double[] parametros = rede.obterParametros();
+      double[] gradiente = new double[parametros.length];
+
+      for(int i = 0; i < epochs; i++){
+         if(df.perda(perda, entradas, saidas) < perdaMinima) break;
+
+         df.gradienteSPSA(perda, entradas, saidas, eps, perturbacoes, random, gradiente);
+         aplicarGradiente(rede, parametros, gradiente, tA);
+      }
+   }
+
+   /**
+    * Compara os gradientes calculados pela retropropagação com os gradientes estimados
+    * por diferenças centrais, ambos como média sobre todo o conjunto de dados.
+    * @param rede rede neural que será verificada.
+    * @param perda função de perda da rede.
+    * @param entradas dados de entrada.
+    * @param saidas dados de saída.
+    * @param eps valor de perturbação.
+    * @return maior erro relativo entre os gradientes analíticos e numéricos.
+    */
+   public double verificarGradientes(RedeNeural rede, Perda perda, double[][] entradas, double[][] saidas, double eps){
+      int n = Math.max(1, Math.min(threads, entradas.length));
+      double[] analitico = new double[rede.obterQuantidadeParametros()];
+      double[] numerico = new double[analitico.length];
+
+      GradienteParalelo calculador = new GradienteParalelo(rede, n);
+      try{
+         calculador.calcular(perda, entradas, saidas, analitico);
+      }finally{
+         calculador.encerrar();
+      }
+      new DiferencaFinita(rede, Math.max(1, threads)).gradiente(perda, entradas, saidas, eps, true, numerico);
+
+      double erroMaximo = 0;
+      for(int i = 0; i < analitico.length; i++){
+         double a = analitico[i];
+         double b = numerico[i];
+         double erro = Math.abs(a - b) / Math.max(Math.abs(a) + Math.abs(b), 1e-8);
+         if(erro > erroMaximo) erroMaximo = erro;
+      }
+
+      return erroMaximo;
+   }
+
+   /**
+    * Treina a rede com uma única amostra, fazendo um passo do otimizador.
+    * @param rede rede neural que será treinada.
+    * @param perda função de perda da rede.
+    * @param otimizador otimizador configurado da rede.
+    * @param entrada dados de entrada da amostra.
+    * @param saida dados de saída esperados da amostra.
+    * @return perda da amostra antes da atualização dos pesos.
+    */
+   public double aprender(RedeNeural rede, Perda perda, Otimizador otimizador, double[] entrada, double[] saida){
+      return treino.aprender(rede, perda, otimizador, entrada, saida);
+   }
+
+   /**
+    * Treina a rede com um pequeno lote de amostras, fazendo um passo do otimizador.
+    * @param rede rede neural que será treinada.
+    * @param perda função de perda da rede.
+    * @param otimizador otimizador configurado da rede.
+    * @param entradas dados de entrada do lote.
+    * @param saidas dados de saída esperados do lote.
+    * @return perda média do lote antes da atualização dos pesos.
+    */
+   public double aprender(RedeNeural rede, Perda perda, Otimizador otimizador, double[][] entradas, double[][] saidas){
+      return treinoLote.aprender(rede, perda, otimizador, entradas, saidas);
+   }
+
+   /**
+    * Calcula a perda média e o gradiente médio da rede para as amostras fornecidas.
+    * <p>
+    *    O calculador, os clones da rede e as threads auxiliares são criados na primeira
+    *    chamada e reaproveitados nas seguintes, enquanto a quantidade de threads não mudar.
+    *    As threads auxiliares terminam sozinhas depois de um tempo sem cálculos.
+    * </p>
+    * @param rede rede neural.
+    * @param perda função de perda da rede.
+    * @param entradas dados de entrada.
+    * @param saidas dados de saída.
+    * @param gradiente array que receberá o gradiente médio.
+    * @return perda média das amostras.
+    */
+   public double calcularGradiente(RedeNeural rede, Perda perda, double[][] entradas, double[][] saidas, double[] gradiente){
+      int n = Math.max(1, threads);
+      if(gradienteParalelo == null || threadsGradiente != n){
+         if(gradienteParalelo != null) gradienteParalelo.encerrar();
+         gradienteParalelo = new GradienteParalelo(rede, n);
+         threadsGradiente = n;
+      }
+
+      return gradienteParalelo.calcular(perda, entradas, saidas, gradiente);
+   }
+
+   /**
+    * Atualiza os pesos da rede usando a descida do gradiente.
+    */
+   private void aplicarGradiente(RedeNeural rede, double[] parametros, double[] gradiente, double tA){
+      rede.obterParametros(parametros);
+      for(int i = 0; i < parametros.length; i++){
+         parametros[i] -= tA * gradiente[i];
+      }
+      rede.configurarParametros(parametros);
+   }
+
+   /**
+    * Retorna o conjunto de dados registrado para os arrays fornecidos, registrando um 
+    * novo conjunto apenas quando os arrays forem diferentes dos usados no último treino.
+    * <p>
+    *    Os valores não são copiados, então chamadas curtas e repetidas de treino com os 
+    *    mesmos dados não têm custo extra, e os arrays fornecidos nunca são modificados.
+    *    Cada chamada começa com as amostras na ordem original, como se os dados tivessem
+    *    acabado de ser fornecidos, a menos que um estado restaurado tenha uma ordem pendente
+    *    ou que a chamada anterior do mesmo modo tenha sido interrompida por um cancelamento.
+    *    Nesse caso a ordem é mantida e a época interrompida continua de onde parou.
+    * </p>
+    * @param entradas dados de entrada para o treino.
+    * @param saidas dados de saída correspondente as entradas para o treino.
+    * @param modo modo de treino que usará os dados (0 sequencial, 1 em lotes).
+    * @return conjunto de dados de treino.
+    */
+   private DadosTreino registrarDados(double[][] entradas, double[][] saidas, int modo){
+      //a época interrompida de uma fonte não continua depois de um treino com arrays
+      treinoLote.fonteInterrompida = null;
+
+      if(dados == null || !dados.mesmosDados(entradas, saidas)){
+         dados = new DadosTreino(entradas, saidas);
+      }else if(dados.modoInterrompido != modo){
+         dados.reiniciarOrdem();
+      }
+
+      if(ordemPendente != null){
+         if(ordemPendente[0].length == dados.tamanho()){
+            System.arraycopy(ordemPendente[0], 0, dados.indices, 0, dados.tamanho());
+            dados.blocos = ordemPendente[1];
          }
+         dados.descartarInterrupcao();
+         ordemPendente = null;
       }
 
-      return clone;
+      return dados;
+   }
+
+   /**
+    * Retorna a quantidade total de épocas concluídas por todos os modos de treino.
+    * @return quantidade de épocas treinadas.
+    */
+   public long obterEpocasTreinadas(){
+      return monitoramento.epocas;
+   }
+
+   /**
+    * Copia o estado do treinador necessário para continuar um treino exatamente
+    * de onde ele parou.
+    * <p>
+    *    O estado contém a quantidade de épocas treinadas, o histórico de perdas do
+    *    último modo de treino usado, a ordem atual das amostras embaralhadas e o
+    *    estado dos geradores de números aleatórios.
+    * </p>
+    * <p>
+    *    A ordem das amostras só é guardada quando o estado é copiado durante um treino
+    *    (por exemplo, por um ouvinte no fim de uma época), já que cada nova chamada de
+    *    treino começa com a ordem original.
+    * </p>
+    * @return estado do treinador em formato binário.
+    */
+   public byte[] obterEstado(){
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+      try(ObjectOutputStream out = new ObjectOutputStream(bytes)){
+         out.writeLong(monitoramento.epocas);
+
+         int modo = treinoLBFGS.ultimoUsado ? 2 : treinoLote.ultimoUsado ? 1 : treino.ultimoUsado ? 0 : -1;
+         HistoricoPerda historico = obterHistoricoPerda();
+         out.writeInt(modo);
+         out.writeObject(historico.valores());
+         out.writeLong(historico.total());
+
+         boolean guardarOrdem = emTreino && dados != null;
+         out.writeObject(guardarOrdem ? new int[][]{dados.indices.clone(), dados.blocos} : null);
+
+         //o Random é serializável e guarda a seed interna atual
+         out.writeObject(treino.aux.random);
+         out.writeObject(treino.random);
+         out.writeObject(treinoLote.aux.random);
+         out.writeObject(treinoLote.random);
+         out.writeObject(random);
+
+         AmostragemImportancia amostragem = treinoLote.amostragem;
+         out.writeObject((amostragem != null && amostragem.aquecida) ? amostragem.estimativas() : null);
+
+      }catch(IOException e){
+         throw new RuntimeException("Erro ao copiar o estado do treinador.", e);
+      }
+
+      return bytes.toByteArray();
+   }
+
+   /**
+    * Restaura um estado copiado por {@link #obterEstado()} na versão atual do formato.
+    * <p>
+    *    A ordem das amostras é aplicada no próximo treino, desde que o conjunto de
+    *    dados tenha a mesma quantidade de amostras do conjunto original.
+    * </p>
+    * @param estado estado do treinador em formato binário.
+    * @throws IllegalArgumentException se o estado fornecido não for válido.
+    */
+   public void configurarEstado(byte[] estado){
+      configurarEstado(estado, VERSAO_ESTADO);
+   }
+
+   /**
+    * Restaura um estado copiado por {@link #obterEstado()} numa versão anterior do formato.
+    * <p>
+    *    Estados anteriores à versão 3 não guardam as estimativas da amostragem por
+    *    importância, que então recomeça o aquecimento no próximo treino.
+    * </p>
+    * @param estado estado do treinador em formato binário.
+    * @param versao versão do formato em que o estado foi guardado.
+    * @throws IllegalArgumentException se o estado fornecido não for válido ou a versão
+    * não for suportada.
+    */
+   public void configurarEstado(byte[] estado, int versao){
+      if(versao < 2 || versao > VERSAO_ESTADO){
+         throw new IllegalArgumentException(
+            "Versão do estado do treinador (" + versao + ") não suportada."
+         );
+      }
+
+      try(ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(estado))){
+         long epocas = in.readLong();
+
+         int modo = in.readInt();
+         double[] valores = (double[]) in.readObject();
+         long total = in.readLong();
+
+         int[][] ordem = (int[][]) in.readObject();
+
+         Random[] geradores = new Random[5];
+         for(int i = 0; i < geradores.length; i++){
+            geradores[i] = (Random) in.readObject();
+         }
+
+         double[] estimativas = null;
+         if(versao >= 3){
+            estimativas = (double[]) in.readObject();
+         }
+
+         monitoramento.epocas = epocas;
+
+         treino.ultimoUsado = (modo == 0);
+         treinoLote.ultimoUsado = (modo == 1);
+         treinoLBFGS.ultimoUsado = (modo == 2);
+         if(modo != -1){
+            obterHistoricoPerda().restaurar(valores, total);
+         }
+
+         ordemPendente = ordem;
+
+         //a época interrompida antes da restauração não pertence ao estado restaurado
+         if(dados != null) dados.descartarInterrupcao();
+         treinoLote.fonteInterrompida = null;
+
+         treino.aux.random = geradores[0];
+         treino.random = geradores[1];
+         treinoLote.aux.random = geradores[2];
+         treinoLote.random = geradores[3];
+         random = geradores[4];
+
+         treinoLote.estimativasPendentes = estimativas;
+
+      }catch(IOException | ClassNotFoundException | ClassCastException e){
+         throw new IllegalArgumentException("Estado do treinador inválido.", e);
+      }
+   }
+
+   /**
+    * Retorna o tempo que o último treino a partir de uma fonte de dados passou
+    * esperando pelo carregamento dos lotes.
+    * @return tempo de espera em nanossegundos.
+    */
+   public long obterTempoEsperaDados(){
+      return treinoLote.tempoEsperaDados;
    }
 
    /**
@@ -123,6 +769,16 @@ public class Treinador{
     * @return lista com os custo por época durante a fase de treinamento.
     */
    public double[] obterHistorico(){
+      return obterHistoricoPerda().valores();
+   }
+
+   /**
+    * Retorna o histórico de perdas do último modo de treino usado, que pode ser
+    * lido por outra thread enquanto o treino está em andamento.
+    * @return histórico de perdas.
+    */
+   public HistoricoPerda obterHistoricoPerda(){
+      if(treinoLBFGS.ultimoUsado) return treinoLBFGS.historico;
       return (treino.ultimoUsado) ? treino.historico : treinoLote.historico;
    }
    
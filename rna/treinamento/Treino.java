@@ -19,18 +19,44 @@ import rna.otimizadores.Otimizador;
  */
 class Treino{
    public boolean calcularHistorico = false;
-   double[] historico;
+   HistoricoPerda historico;
    AuxiliarTreino aux = new AuxiliarTreino();
 
    Random random = new Random();
    boolean ultimoUsado = false;
 
+   /**
+    * Ouvintes de treino e suas métricas, configurado pelo Treinador.
+    */
+   Monitoramento monitoramento = new Monitoramento();
+
+   /**
+    * Quantidade de amostras por bloco no embaralhamento dos dados, com o
+    * valor padrão (1) cada amostra é embaralhada individualmente.
+    */
+   int tamBlocoEmbaralhamento = 1;
+
+   /**
+    * Auxiliar para a soma dos gradientes de cada camada na atualização fundida.
+    */
+   private double[][] somas;
+
+   /**
+    * Índice do primeiro peso de cada camada na lista de coeficientes.
+    */
+   private int[] idsCamadas;
+
+   /**
+    * Camadas para as quais os auxiliares da atualização fundida foram criados.
+    */
+   private Camada[] camadasFundida;
+
    /**
     * Objeto de treino sequencial da rede.
     * @param historico lista de custos da rede durante cada época de treino.
     */
    public Treino(boolean calcularHistorico){
-      this.historico = new double[0];
+      this.historico = new HistoricoPerda();
       this.calcularHistorico = calcularHistorico;
    }
 
@@ -52,20 +78,27 @@ class Treino{
       this.calcularHistorico = calcularHistorico;
    }
 
+   /**
+    * Configura a quantidade de amostras em cada bloco do embaralhamento dos dados.
+    * @param tamBloco quantidade de amostras por bloco.
+    */
+   public void configurarEmbaralhamentoBlocos(int tamBloco){
+      this.tamBlocoEmbaralhamento = tamBloco;
+   }
+
    /**
     * Treina a rede neural calculando os erros dos neuronios, seus gradientes para cada peso e 
     * passando essas informações para o otimizador configurado ajustar os pesos.
     * @param rede instância da rede.
     * @param perda função de perda (ou custo) usada para calcular os erros da rede.
     * @param otimizador otimizador configurado da rede.
-    * @param entradas dados de entrada para o treino.
-    * @param saidas dados de saída correspondente as entradas para o treino.
+    * @param dados conjunto de dados de treino.
     * @param epochs quantidade de épocas de treinamento.
-    * @param embaralhar embaralhar dados de treino para cada época.
     */
-   public void treino(RedeNeural rede, Perda perda, Otimizador otimizador, double[][] entradas, double[][] saidas, int epochs){
-      double[] entrada = new double[entradas[0].length];// quantidade de colunas da entrada
-      double[] saida = new double[saidas[0].length];// quantidade de colunas da saída
+   public void treino(RedeNeural rede, Perda perda, Otimizador otimizador, DadosTreino dados, int epochs){
+      double[][] entradas = dados.entradas;
+      double[][] saidas = dados.saidas;
+      int[] indices = dados.indices;
 
       boolean embaralhar = true;
       if(otimizador instanceof GD || otimizador instanceof GDM){
@@ -75,39 +108,145 @@ class Treino{
       //transformar a rede numa lista de camadas pra facilitar minha vida
       Camada[] redec = rede.obterCamadas();
 
+      //otimizadores compatíveis atualizam os pesos durante a retropropagação
+      boolean fundido = otimizador.suportaAtualizacaoFundida();
+      if(fundido) prepararAtualizacaoFundida(redec);
+
+      //nulo quando não há ouvintes, evitando as medições de tempo
+      Monitoramento mon = monitoramento.ativo();
+      boolean calcularPerda = calcularHistorico || mon != null || monitoramento.precisaPerda();
+
+      //época interrompida por um cancelamento na chamada anterior
+      int inicio = 0;
+      double perdaInicial = 0;
+      if(dados.modoInterrompido == 0){
+         inicio = dados.posicaoInterrompida;
+         perdaInicial = dados.perdaInterrompida;
+      }
+      dados.descartarInterrupcao();
+
       for(int i = 0; i < epochs; i++){
+         if(mon != null) mon.inicioEpoca(i);
+
          //aplicar gradiente estocástico
          //alterando a organização dos dados em cada época
-         if(embaralhar) aux.embaralharDados(entradas, saidas);
+         //a época retomada continua com a mesma ordem
+         if(embaralhar && inicio == 0) aux.embaralharDados(dados, tamBlocoEmbaralhamento);
 
-         double perdaEpoca = 0;
+         double perdaEpoca = perdaInicial;
+         boolean cancelado = false;
+         int proxima = indices.length;
 
          //percorrer amostras
-         for(int j = 0; j < entradas.length; j++){
-            //preencher dados de entrada e saída
-            for(int k = 0; k < entrada.length; k++){
-               entrada[k] = entradas[j][k];
-            }    
-            for(int k = 0; k < saida.length; k++){
-               saida[k] = saidas[j][k];
-            }
+         for(int j = inicio; j < indices.length; j++){
+            //as linhas são usadas diretamente, sem cópia
+            double[] entrada = entradas[indices[j]];
+            double[] saida = saidas[indices[j]];
 
+            long marca = (mon != null) ? System.nanoTime() : 0;
             rede.calcularSaida(entrada);
 
             //feedback de avanço da rede
-            if(calcularHistorico){
-               perdaEpoca += perda.calcular(rede.obterSaidas(), saida);
+            double perdaAmostra = 0;
+            if(calcularPerda){
+               perdaAmostra = perda.calcular(rede.obterSaidas(), saida);
+               perdaEpoca += perdaAmostra;
+            }
+            if(mon != null) marca = mon.propagacao(marca);
+
+            if(fundido){
+               backpropagationFundida(redec, perda, saida, otimizador, somas, idsCamadas);
+               if(mon != null) mon.retropropagacao(marca);
+            }else{
+               backpropagation(redec, perda, saida);
+               if(mon != null) marca = mon.retropropagacao(marca);
+               otimizador.atualizar(redec);
+               if(mon != null) mon.otimizador(marca);
             }
 
-            backpropagation(redec, perda, saida);
-            otimizador.atualizar(redec);
+            if(mon != null) mon.fimLote(1, perdaAmostra);
+
+            if(monitoramento.cancelado()){
+               cancelado = true;
+               proxima = j + 1;
+               break;
+            }
+         }
+
+         //épocas incompletas não entram no histórico nem na contagem de épocas,
+         //e continuam na próxima chamada
+         if(proxima < indices.length){
+            dados.interromper(0, proxima, perdaEpoca);
+            if(mon != null) mon.fimEpoca(true);
+            break;
          }
+         inicio = 0;
+         perdaInicial = 0;
 
          //feedback de avanço da rede
          if(calcularHistorico){
-            this.historico = aux.adicionarPerda(this.historico, perdaEpoca);
+            historico.adicionar(perdaEpoca / indices.length);
          }
+
+         boolean parar = monitoramento.concluirEpoca(perdaEpoca / indices.length);
+         if(mon != null) mon.fimEpoca();
+         if(parar) break;
+
+         //cancelado no fim da época, a próxima chamada embaralha a ordem atual
+         if(cancelado){
+            dados.interromper(0, 0, 0);
+            break;
+         }
+      }
+   }
+
+   /**
+    * Treina a rede com uma única amostra: propagação, retropropagação e um passo
+    * do otimizador.
+    * <p>
+    *    Nenhuma memória é alocada depois da primeira chamada e nenhum ouvinte, 
+    *    histórico ou contador de épocas é atualizado.
+    * </p>
+    * @param rede instância da rede.
+    * @param perda função de perda da rede.
+    * @param otimizador otimizador configurado da rede.
+    * @param entrada dados de entrada da amostra.
+    * @param saida dados de saída esperados da amostra.
+    * @return perda da amostra antes da atualização dos pesos.
+    */
+   double aprender(RedeNeural rede, Perda perda, Otimizador otimizador, double[] entrada, double[] saida){
+      Camada[] redec = rede.obterCamadas();
+
+      rede.calcularSaida(entrada);
+      double perdaAmostra = perda.calcular(rede.obterSaidas(), saida);
+
+      if(otimizador.suportaAtualizacaoFundida()){
+         prepararAtualizacaoFundida(redec);
+         backpropagationFundida(redec, perda, saida, otimizador, somas, idsCamadas);
+      }else{
+         backpropagation(redec, perda, saida);
+         otimizador.atualizar(redec);
+      }
+
+      return perdaAmostra;
+   }
+
+   /**
+    * Cria os auxiliares da atualização fundida caso ainda não existam para as
+    * camadas fornecidas.
+    */
+   private void prepararAtualizacaoFundida(Camada[] redec){
+      if(camadasFundida == redec) return;
+
+      somas = new double[redec.length][];
+      idsCamadas = new int[redec.length];
+      int id = 0;
+      for(int i = 0; i < redec.length; i++){
+         somas[i] = new double[redec[i].quantidadeNeuronios()];
+         idsCamadas[i] = id;
+         id += redec[i].numParametros();
       }
+      camadasFundida = redec;
    }
 
    /**
@@ -146,4 +285,50 @@ class Treino{
       }
    }
 
+   /**
+    * Retropropaga o erro da rede neural e atualiza os pesos numa única passagem
+    * por eles, sem preencher o vetor {@code neuronio.gradientes}.
+    * <p>
+    *    Começando pela camada de saída, cada camada tem seus pesos atualizados pelo 
+    *    otimizador ao mesmo tempo em que o valor antigo de cada peso é usado para 
+    *    acumular a soma dos gradientes da camada anterior. O resultado é o mesmo 
+    *    da retropropagação seguida da atualização, já que os gradientes da camada 
+    *    anterior só dependem dos pesos antes de serem atualizados.
+    * </p>
+    * @param redec Rede Neural em formato de lista de camadas.
+    * @param perda função de perda usada para calcular os gradientes da saída da Rede Neural.
+    * @param saidas array com as saídas esperadas das amostras.
+    * @param otimizador otimizador com suporte a atualização fundida.
+    * @param somas auxiliar para a soma dos gradientes de cada camada.
+    * @param idsCamadas índice do primeiro peso de cada camada na lista de coeficientes.
+    */
+   private void backpropagationFundida(Camada[] redec, Perda perda, double[] saidas, Otimizador otimizador, double[][] somas, int[] idsCamadas){
+      //saída
+      Camada saida = redec[redec.length-1];
+      double[] gradientes = aux.derivadaPerda(perda, saida.obterSaida(), saidas);
+      for(int i = 0; i < gradientes.length; i++){
+         saida.neuronio(i).gradiente = gradientes[i];
+      }
+
+      for(int i = redec.length-1; i >= 0; i--){
+         if(i == 0){
+            otimizador.atualizarCamadaFundida(redec[i], idsCamadas[i], null);
+            break;
+         }
+
+         double[] soma = somas[i-1];
+         for(int j = 0; j < soma.length; j++){
+            soma[j] = 0;
+         }
+         otimizador.atualizarCamadaFundida(redec[i], idsCamadas[i], soma);
+
+         Camada anterior = redec[i-1];
+         anterior.ativacaoDerivada();
+         Neuronio[] neuronios = anterior.neuronios();
+         for(int j = 0; j < neuronios.length; j++){
+            neuronios[j].gradiente = soma[j] * neuronios[j].derivada;
+         }
+      }
+   }
+
 }
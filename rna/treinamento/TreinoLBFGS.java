@@ -0,0 +1,189 @@
+package rna.treinamento;
+
+import rna.avaliacao.perda.Perda;
+import rna.estrutura.RedeNeural;
+import rna.otimizadores.LBFGS;
+
+/**
+ * Classe dedicada ao treino em lote completo da rede neural usando o otimizador L-BFGS.
+ * <p>
+ *    Em cada iteração é calculado o gradiente médio sobre todo o conjunto de dados
+ *    (dividido entre várias threads), o otimizador calcula a direção de busca e uma busca
+ *    linear com retrocesso escolhe o tamanho do passo que satisfaz a condição de Armijo.
+ * </p>
+ */
+class TreinoLBFGS{
+   public boolean calcularHistorico = false;
+   HistoricoPerda historico;
+
+   boolean ultimoUsado = false;
+
+   /**
+    * Ouvintes de treino e suas métricas, configurado pelo Treinador.
+    */
+   Monitoramento monitoramento = new Monitoramento();
+
+   /**
+    * Constante da condição de Armijo (decréscimo suficiente).
+    */
+   private static final double C1 = 1e-4;
+
+   /**
+    * Objeto de treino em lote completo com L-BFGS.
+    * @param calcularHistorico calcular ou não o histórico de custo.
+    */
+   public TreinoLBFGS(boolean calcularHistorico){
+      this.historico = new HistoricoPerda();
+      this.calcularHistorico = calcularHistorico;
+   }
+
+   /**
+    * Configura o cálculo de custos da rede neural durante cada
+    * iteração de treinamento.
+    * @param calcularHistorico true armazena os valores de custo da rede, false não faz nada.
+    */
+   public void configurarHistorico(boolean calcularHistorico){
+      this.calcularHistorico = calcularHistorico;
+   }
+
+   /**
+    * Treina a rede neural usando o L-BFGS sobre todo o conjunto de dados.
+    * <p>
+    *    O treino termina antes da quantidade de iterações caso a norma do gradiente fique
+    *    abaixo da tolerância do otimizador ou caso a busca linear não consiga mais reduzir
+    *    a perda. Quando a busca falha, ela é repetida na mesma iteração na direção do 
+    *    gradiente, e uma iteração sem passo aceito não entra no histórico nem na contagem 
+    *    de épocas, mantendo os dois sempre com o mesmo tamanho.
+    * </p>
+    * @param rede instância da rede.
+    * @param perda função de perda (ou custo) usada para calcular os erros da rede.
+    * @param otimizador otimizador L-BFGS configurado da rede.
+    * @param entradas dados de entrada para o treino.
+    * @param saidas dados de saída correspondente as entradas para o treino.
+    * @param iteracoes quantidade máxima de iterações.
+    * @param nThreads quantidade de threads usadas no cálculo do gradiente.
+    */
+   public void treino(RedeNeural rede, Perda perda, LBFGS otimizador, double[][] entradas, double[][] saidas, int iteracoes, int nThreads){
+      int threads = Math.max(1, Math.min(nThreads, entradas.length));
+      GradienteParalelo calculador = new GradienteParalelo(rede, threads);
+      try{
+         otimizar(rede, perda, otimizador, entradas, saidas, iteracoes, calculador);
+      }finally{
+         calculador.encerrar();
+      }
+   }
+
+   /**
+    * Executa as iterações do L-BFGS usando o calculador de gradientes do treino.
+    */
+   private void otimizar(RedeNeural rede, Perda perda, LBFGS otimizador, double[][] entradas, double[][] saidas, int iteracoes, GradienteParalelo calculador){
+      int n = rede.obterQuantidadeParametros();
+      double[] x = rede.obterParametros();
+      double[] xNovo = new double[n];
+      double[] g = new double[n];
+      double[] gNovo = new double[n];
+      double[] direcao = new double[n];
+      double[] aux1 = new double[n];
+
+      //nulo quando não há ouvintes, evitando as medições de tempo
+      Monitoramento mon = monitoramento.ativo();
+      long marca = 0;
+
+      double f = calculador.calcular(perda, entradas, saidas, g);
+
+      for(int it = 0; it < iteracoes; it++){
+         double normaG = Math.sqrt(produto(g, g));
+         if(normaG < otimizador.tolerancia()) break;
+
+         //cada iteração usa todo o conjunto de dados como um único lote
+         if(it > 0 && monitoramento.cancelado()) break;
+
+         if(mon != null) mon.inicioEpoca(it);
+
+         double fNovo = f;
+         boolean aceito = false;
+         while(true){
+            otimizador.calcularDirecao(g, direcao);
+            double inclinacao = produto(g, direcao);
+
+            //a direção precisa ser de descida
+            if(inclinacao >= 0){
+               otimizador.reiniciarHistorico();
+               otimizador.calcularDirecao(g, direcao);
+               inclinacao = produto(g, direcao);
+            }
+
+            double passo = otimizador.historicoVazio() ? Math.min(1, 1 / normaG) : 1;
+            for(int busca = 0; busca < otimizador.maxBuscas(); busca++){
+               for(int i = 0; i < n; i++){
+                  xNovo[i] = x[i] + passo * direcao[i];
+               }
+               rede.configurarParametros(xNovo);
+               if(mon != null) marca = System.nanoTime();
+               fNovo = calculador.calcularPerda(perda, entradas, saidas);
+               if(mon != null) mon.propagacao(marca);
+
+               if(fNovo <= f + C1 * passo * inclinacao){
+                  aceito = true;
+                  break;
+               }
+               passo *= 0.5;
+            }
+
+            if(aceito || otimizador.historicoVazio()) break;
+
+            //tentar de novo na direção do gradiente, na mesma iteração, antes de desistir
+            otimizador.reiniciarHistorico();
+         }
+
+         //o passo rejeitado não conta como iteração, então a época não é concluída
+         if(!aceito){
+            rede.configurarParametros(x);
+            if(mon != null) mon.fimEpoca(true);
+            break;
+         }
+
+         if(mon != null) marca = System.nanoTime();
+         fNovo = calculador.calcular(perda, entradas, saidas, gNovo);
+         if(mon != null) mon.retropropagacao(marca);
+
+         //s = xNovo - x, y = gNovo - g
+         for(int i = 0; i < n; i++){
+            direcao[i] = xNovo[i] - x[i];
+            aux1[i] = gNovo[i] - g[i];
+         }
+         otimizador.adicionarHistorico(direcao, aux1);
+
+         double[] temp = x;
+         x = xNovo;
+         xNovo = temp;
+         temp = g;
+         g = gNovo;
+         gNovo = temp;
+         f = fNovo;
+
+         //feedback de avanço da rede
+         if(calcularHistorico){
+            historico.adicionar(f);
+         }
+
+         boolean parar = monitoramento.concluirEpoca(f);
+         if(mon != null){
+            mon.fimLote(entradas.length, f * entradas.length);
+            mon.fimEpoca();
+         }
+         if(parar) break;
+      }
+   }
+
+   /**
+    * Produto escalar entre dois arrays.
+    */
+   private double produto(double[] a, double[] b){
+      double r = 0;
+      for(int i = 0; i < a.length; i++){
+         r += a[i] * b[i];
+      }
+      return r;
+   }
+}
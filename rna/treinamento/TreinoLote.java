@@ -3,6 +3,7 @@ package rna.treinamento;
 import java.util.Random;
 
 import rna.avaliacao.perda.Perda;
+import rna.dados.FonteDados;
 import rna.estrutura.Camada;
 import rna.estrutura.Neuronio;
 import rna.estrutura.RedeNeural;
@@ -19,18 +20,90 @@ import rna.otimizadores.Otimizador;
  */
 class TreinoLote{
    public boolean calcularHistorico = false;
-   double[] historico;
+   HistoricoPerda historico;
    AuxiliarTreino aux = new AuxiliarTreino();
 
    Random random = new Random();
    boolean ultimoUsado = false;
 
+   /**
+    * Ouvintes de treino e suas métricas, configurado pelo Treinador.
+    */
+   Monitoramento monitoramento = new Monitoramento();
+
+   /**
+    * Quantidade de lotes que terão seus gradientes somados antes de cada
+    * atualização feita pelo otimizador.
+    * <p>
+    *    Com o valor padrão (1), cada lote gera uma atualização dos pesos.
+    * </p>
+    */
+   int acumulacao = 1;
+
+   /**
+    * Quantidade de amostras por bloco no embaralhamento dos dados, com o
+    * valor padrão (1) cada amostra é embaralhada individualmente.
+    */
+   int tamBlocoEmbaralhamento = 1;
+
+   /**
+    * Tempo que o último treino a partir de uma fonte de dados passou esperando
+    * pelo carregamento dos lotes, em nanossegundos.
+    */
+   long tempoEsperaDados = 0;
+
+   /**
+    * Fração uniforme da amostragem por importância, zero desabilita a amostragem.
+    */
+   double misturaImportancia = 0;
+
+   /**
+    * Amostragem por importância do conjunto de dados atual.
+    */
+   AmostragemImportancia amostragem = null;
+
+   /**
+    * Conjunto de dados da amostragem atual.
+    */
+   private DadosTreino dadosAmostragem = null;
+
+   /**
+    * Estimativas de perda restauradas de um estado salvo, aplicadas no próximo treino.
+    */
+   double[] estimativasPendentes = null;
+
+   /**
+    * Fonte de dados da época interrompida por um cancelamento, nula quando não há
+    * época interrompida.
+    */
+   FonteDados fonteInterrompida = null;
+
+   /**
+    * Quantidade de amostras já treinadas na época interrompida da fonte.
+    */
+   private long posicaoFonte = 0;
+
+   /**
+    * Soma das perdas das amostras já treinadas na época interrompida da fonte.
+    */
+   private double perdaFonte = 0;
+
+   /**
+    * Índices das amostras sorteadas para o lote atual.
+    */
+   private int[] sorteados = new int[0];
+
+   /**
+    * Pesos de correção das amostras sorteadas para o lote atual.
+    */
+   private double[] pesosSorteados = new double[0];
+
    /**
     * Implementação do treino em lote.
-    * @param historico
+    * @param calcularHistorico calcular ou não o histórico de custo.
     */
    public TreinoLote(boolean calcularHistorico){
-      this.historico = new double[0];
+      this.historico = new HistoricoPerda();
       this.calcularHistorico = calcularHistorico;
    }
 
@@ -52,55 +125,393 @@ class TreinoLote{
       this.calcularHistorico = calcularHistorico;
    }
 
+   /**
+    * Configura a quantidade de lotes que terão seus gradientes acumulados antes
+    * de cada atualização dos pesos.
+    * <p>
+    *    Dessa forma o lote efetivo da atualização passa a ser {@code tamLote * acumulacao},
+    *    mas apenas {@code tamLote} amostras são materializadas em memória por vez.
+    * </p>
+    * @param acumulacao quantidade de lotes acumulados por atualização.
+    */
+   public void configurarAcumulacao(int acumulacao){
+      this.acumulacao = acumulacao;
+   }
+
+   /**
+    * Configura a quantidade de amostras em cada bloco do embaralhamento dos dados.
+    * @param tamBloco quantidade de amostras por bloco.
+    */
+   public void configurarEmbaralhamentoBlocos(int tamBloco){
+      this.tamBlocoEmbaralhamento = tamBloco;
+   }
+
+   /**
+    * Configura a amostragem por importância dos lotes, descartando as estimativas
+    * de perda atuais.
+    * @param mistura fração uniforme da amostragem, zero desabilita a amostragem.
+    */
+   public void configurarAmostragemImportancia(double mistura){
+      this.misturaImportancia = mistura;
+      this.amostragem = null;
+      this.dadosAmostragem = null;
+   }
+
    /**
     * Treina a rede neural calculando os erros dos neuronios, seus gradientes para cada peso e 
     * passando essas informações para o otimizador configurado ajustar os pesos.
     * @param rede instância da rede.
     * @param perda função de perda (ou custo) usada para calcular os erros da rede.
     * @param otimizador otimizador configurado da rede.
-    * @param entradas dados de entrada para o treino.
-    * @param saidas dados de saída correspondente as entradas para o treino.
+    * @param dados conjunto de dados de treino.
     * @param epochs quantidade de épocas de treinamento.
-    * @param embaralhar embaralhar dados de treino para cada época.
     * @param tamLote tamanho do lote.
     */
-   public void treino(RedeNeural rede, Perda perda, Otimizador otimizador, double[][] entradas, double[][] saidas, int epochs, int tamLote){      
+   public void treino(RedeNeural rede, Perda perda, Otimizador otimizador, DadosTreino dados, int epochs, int tamLote){      
+      Lote lote = new Lote(dados);
+      int amostras = dados.tamanho();
       Camada[] redec = rede.obterCamadas();
 
+      AmostragemImportancia amostragem = prepararAmostragem(dados, tamLote);
+      Lote loteSorteado = (amostragem == null) ? null : new Lote(dados.entradas, dados.saidas, sorteados);
+
       boolean embaralhar = true;
       if(otimizador instanceof GD || otimizador instanceof GDM){
          embaralhar = false;
       }
 
+      int lotesAcumulados = 0;
+      int amostrasAcumuladas = 0;
+
+      //nulo quando não há ouvintes, evitando as medições de tempo
+      Monitoramento mon = monitoramento.ativo();
+
+      //época interrompida por um cancelamento na chamada anterior
+      int inicio = 0;
+      double perdaInicial = 0;
+      if(dados.modoInterrompido == 1){
+         inicio = dados.posicaoInterrompida;
+         perdaInicial = dados.perdaInterrompida;
+      }
+      dados.descartarInterrupcao();
+
       for(int i = 0; i < epochs; i++){
-         if(embaralhar) aux.embaralharDados(entradas, saidas);
+         if(mon != null) mon.inicioEpoca(i);
+
+         //a primeira época percorre todas as amostras para estimar as perdas
+         //a época retomada continua com a mesma ordem
+         boolean importancia = (amostragem != null && amostragem.aquecida);
+         if(importancia) amostragem.reconstruir();
+         else if(embaralhar && inicio == 0) aux.embaralharDados(dados, tamBlocoEmbaralhamento);
+
+         double perdaEpoca = perdaInicial;
+         boolean cancelado = false;
+         int proxima = amostras;
+
+         for(int j = inicio; j < amostras; j += tamLote){
+            int fim = Math.min(j + tamLote, amostras);
+            Lote atual = lote;
+            if(importancia){
+               sortearLote(amostragem, loteSorteado, fim - j);
+               atual = loteSorteado;
+            }else{
+               lote.configurar(j, fim);
+            }
 
-         for(int j = 0; j < entradas.length; j += tamLote){
-            int fimIndice = Math.min(j + tamLote, entradas.length);
-            double[][] entradaLote = aux.obterSubMatriz(entradas, j, fimIndice);
-            double[][] saidaLote = aux.obterSubMatriz(saidas, j, fimIndice);
+            //reiniciar gradiente apenas no primeiro lote da acumulação
+            if(lotesAcumulados == 0) zerarGradientesAcumulados(redec);
 
-            //reiniciar gradiente do lote
-            zerarGradientesAcumulados(redec);
-            for(int k = 0; k < entradaLote.length; k++){
-               double[] entrada = entradaLote[k];
-               double[] saida = saidaLote[k];
+            double perdaLote = processarLote(rede, redec, perda, atual, amostragem, importancia ? pesosSorteados : null, mon);
+            perdaEpoca += perdaLote;
 
-               rede.calcularSaida(entrada);
-               backpropagationLote(redec, perda, saida);
+            lotesAcumulados++;
+            amostrasAcumuladas += atual.tamanho();
+
+            if(lotesAcumulados == acumulacao){
+               atualizar(redec, otimizador, amostrasAcumuladas, mon);
+               lotesAcumulados = 0;
+               amostrasAcumuladas = 0;
             }
 
-            //normalizar gradientes para enviar pro otimizador
-            calcularMediaGradientesLote(redec, entradaLote.length);
-            otimizador.atualizar(redec);
+            if(mon != null) mon.fimLote(atual.tamanho(), perdaLote);
+
+            if(monitoramento.cancelado()){
+               cancelado = true;
+               proxima = fim;
+               break;
+            }
+         }
+
+         //lotes que sobraram no final da época ainda geram uma atualização
+         if(lotesAcumulados > 0){
+            atualizar(redec, otimizador, amostrasAcumuladas, mon);
+            lotesAcumulados = 0;
+            amostrasAcumuladas = 0;
          }
 
+         //épocas incompletas não entram no histórico nem na contagem de épocas,
+         //e continuam na próxima chamada
+         if(proxima < amostras){
+            dados.interromper(1, proxima, perdaEpoca);
+            if(mon != null) mon.fimEpoca(true);
+            break;
+         }
+         inicio = 0;
+         perdaInicial = 0;
+
+         if(amostragem != null) amostragem.aquecida = true;
+
          //feedback de avanço da rede
          if(calcularHistorico){
-            // TODO corrigir para o novo formato das funções de perda
-            //historico = aux.adicionarPerda(historico, perda.calcular(rede, entradas, saidas));
+            historico.adicionar(perdaEpoca / amostras);
+         }
+
+         boolean parar = monitoramento.concluirEpoca(perdaEpoca / amostras);
+         if(mon != null) mon.fimEpoca();
+         if(parar) break;
+
+         //cancelado no fim da época, a próxima chamada embaralha a ordem atual
+         if(cancelado){
+            dados.interromper(1, 0, 0);
+            break;
+         }
+      }
+   }
+
+   /**
+    * Treina a rede neural com as amostras lidas em sequência de uma fonte de dados.
+    * <p>
+    *    A fonte é aberta novamente a cada época e as amostras passam por um buffer 
+    *    de embaralhamento antes de formar os lotes, então apenas o buffer e os lotes 
+    *    ficam em memória, independente do tamanho da fonte. O próximo lote é carregado 
+    *    numa thread separada enquanto a rede treina com o lote atual.
+    * </p>
+    * @param rede instância da rede.
+    * @param perda função de perda (ou custo) usada para calcular os erros da rede.
+    * @param otimizador otimizador configurado da rede.
+    * @param fonte fonte de dados de treino.
+    * @param epochs quantidade de épocas de treinamento.
+    * @param tamLote tamanho do lote.
+    * @param tamBuffer quantidade de amostras do buffer de embaralhamento.
+    */
+   public void treino(RedeNeural rede, Perda perda, Otimizador otimizador, FonteDados fonte, int epochs, int tamLote, int tamBuffer){
+      Camada[] redec = rede.obterCamadas();
+
+      //otimizadores sem embaralhamento leem a fonte na ordem original
+      boolean embaralhar = true;
+      if(otimizador instanceof GD || otimizador instanceof GDM){
+         embaralhar = false;
+      }
+      CarregadorLotes carregador = new CarregadorLotes(fonte, tamLote, embaralhar ? tamBuffer : 0, aux.random);
+
+      int lotesAcumulados = 0;
+      int amostrasAcumuladas = 0;
+
+      Monitoramento mon = monitoramento.ativo();
+
+      //época da mesma fonte interrompida por um cancelamento na chamada anterior
+      long inicio = 0;
+      double perdaInicial = 0;
+      if(fonteInterrompida == fonte){
+         inicio = posicaoFonte;
+         perdaInicial = perdaFonte;
+      }
+      fonteInterrompida = null;
+
+      for(int i = 0; i < epochs; i++){
+         if(mon != null) mon.inicioEpoca(i);
+
+         double perdaEpoca = perdaInicial;
+         long amostras = inicio;
+         boolean cancelado = false;
+
+         carregador.iniciar(inicio);
+         try{
+            Lote lote;
+            while((lote = carregador.proximo()) != null){
+               if(lotesAcumulados == 0) zerarGradientesAcumulados(redec);
+
+               double perdaLote = processarLote(rede, redec, perda, lote, null, null, mon);
+               perdaEpoca += perdaLote;
+               amostras += lote.tamanho();
+
+               lotesAcumulados++;
+               amostrasAcumuladas += lote.tamanho();
+
+               if(lotesAcumulados == acumulacao){
+                  atualizar(redec, otimizador, amostrasAcumuladas, mon);
+                  lotesAcumulados = 0;
+                  amostrasAcumuladas = 0;
+               }
+
+               if(mon != null) mon.fimLote(lote.tamanho(), perdaLote);
+
+               if(monitoramento.cancelado()){
+                  cancelado = true;
+                  break;
+               }
+            }
+         }finally{
+            carregador.encerrar();
+            tempoEsperaDados = carregador.tempoEspera();
+         }
+
+         if(lotesAcumulados > 0){
+            atualizar(redec, otimizador, amostrasAcumuladas, mon);
+            lotesAcumulados = 0;
+            amostrasAcumuladas = 0;
+         }
+
+         //épocas incompletas não entram no histórico nem na contagem de épocas,
+         //e continuam na próxima chamada com a mesma fonte
+         if(cancelado){
+            fonteInterrompida = fonte;
+            posicaoFonte = amostras;
+            perdaFonte = perdaEpoca;
+            if(mon != null) mon.fimEpoca(true);
+            break;
+         }
+         inicio = 0;
+         perdaInicial = 0;
+
+         //feedback de avanço da rede
+         if(calcularHistorico && amostras > 0){
+            historico.adicionar(perdaEpoca / amostras);
+         }
+
+         //fontes vazias não têm perda média para a parada antecipada
+         boolean parar = (amostras > 0) ? monitoramento.concluirEpoca(perdaEpoca / amostras) : monitoramento.concluirEpoca();
+         if(mon != null) mon.fimEpoca();
+         if(parar) break;
+      }
+   }
+
+   /**
+    * Alimenta e retropropaga todas as amostras do lote, acumulando seus gradientes.
+    * @param rede instância da rede.
+    * @param redec Rede Neural em formato de lista de camadas.
+    * @param perda função de perda usada para calcular os erros da rede.
+    * @param lote lote de amostras.
+    * @param amostragem amostragem por importância que receberá as perdas das amostras, 
+    * pode ser nula.
+    * @param pesos pesos de correção de cada amostra do lote, nulo para peso um.
+    * @param mon monitoramento do treino, nulo quando não há ouvintes.
+    * @return soma das perdas (ponderadas pelos pesos) das amostras do lote, caso o 
+    * histórico, o monitoramento ou a amostragem estejam habilitados.
+    */
+   private double processarLote(RedeNeural rede, Camada[] redec, Perda perda, Lote lote, AmostragemImportancia amostragem, double[] pesos, Monitoramento mon){
+      boolean calcularPerda = calcularHistorico || mon != null || monitoramento.precisaPerda() || amostragem != null;
+      double soma = 0;
+
+      for(int k = 0; k < lote.tamanho(); k++){
+         double[] saida = lote.saida(k);
+         double peso = (pesos == null) ? 1 : pesos[k];
+         long marca = (mon != null) ? System.nanoTime() : 0;
+         rede.calcularSaida(lote.entrada(k));
+
+         //feedback de avanço da rede
+         if(calcularPerda){
+            double perdaAmostra = perda.calcular(rede.obterSaidas(), saida);
+            soma += peso * perdaAmostra;
+            if(amostragem != null) amostragem.atualizar(lote.linha(k), perdaAmostra);
          }
+         if(mon != null) marca = mon.propagacao(marca);
+
+         backpropagationLote(redec, perda, saida, peso);
+         if(mon != null) mon.retropropagacao(marca);
+      }
+
+      return soma;
+   }
+
+   /**
+    * Prepara a amostragem por importância para o conjunto de dados, mantendo as
+    * estimativas de perda enquanto o conjunto for o mesmo.
+    * @return amostragem do conjunto, ou nulo caso esteja desabilitada.
+    */
+   private AmostragemImportancia prepararAmostragem(DadosTreino dados, int tamLote){
+      if(misturaImportancia <= 0){
+         amostragem = null;
+         return null;
+      }
+
+      int n = dados.tamanho();
+      if(amostragem == null || dadosAmostragem != dados || amostragem.tamanho() != n){
+         amostragem = new AmostragemImportancia(n, misturaImportancia);
+         dadosAmostragem = dados;
+      }
+      if(estimativasPendentes != null && estimativasPendentes.length == n){
+         amostragem.restaurar(estimativasPendentes);
+      }
+      estimativasPendentes = null;
+
+      if(sorteados.length < tamLote){
+         sorteados = new int[tamLote];
+         pesosSorteados = new double[tamLote];
+      }
+
+      return amostragem;
+   }
+
+   /**
+    * Sorteia as amostras do próximo lote de acordo com a amostragem por importância,
+    * guardando o peso de correção de cada uma.
+    */
+   private void sortearLote(AmostragemImportancia amostragem, Lote lote, int tamanho){
+      for(int k = 0; k < tamanho; k++){
+         int id = amostragem.sortear(random);
+         sorteados[k] = id;
+         pesosSorteados[k] = amostragem.peso(id);
+      }
+
+      lote.configurar(0, tamanho);
+   }
+
+   /**
+    * Calcula a média dos gradientes acumulados e atualiza os pesos da rede.
+    * @param redec Rede Neural em formato de lista de camadas.
+    * @param otimizador otimizador configurado da rede.
+    * @param amostras quantidade de amostras acumuladas.
+    * @param mon monitoramento do treino, nulo quando não há ouvintes.
+    */
+   private void atualizar(Camada[] redec, Otimizador otimizador, int amostras, Monitoramento mon){
+      long marca = (mon != null) ? System.nanoTime() : 0;
+
+      //normalizar gradientes para enviar pro otimizador
+      calcularMediaGradientesLote(redec, amostras);
+      otimizador.atualizar(redec);
+
+      if(mon != null) mon.otimizador(marca);
+   }
+
+   /**
+    * Treina a rede com um pequeno lote de amostras, fazendo um único passo do otimizador
+    * com a média dos gradientes das amostras.
+    * <p>
+    *    Nenhuma memória é alocada depois da primeira chamada e nenhum ouvinte, 
+    *    histórico ou contador de épocas é atualizado.
+    * </p>
+    * @param rede instância da rede.
+    * @param perda função de perda da rede.
+    * @param otimizador otimizador configurado da rede.
+    * @param entradas dados de entrada do lote.
+    * @param saidas dados de saída esperados do lote.
+    * @return perda média do lote antes da atualização dos pesos.
+    */
+   double aprender(RedeNeural rede, Perda perda, Otimizador otimizador, double[][] entradas, double[][] saidas){
+      Camada[] redec = rede.obterCamadas();
+
+      zerarGradientesAcumulados(redec);
+      double perdaLote = 0;
+      for(int i = 0; i < entradas.length; i++){
+         rede.calcularSaida(entradas[i]);
+         perdaLote += perda.calcular(rede.obterSaidas(), saidas[i]);
+         backpropagationLote(redec, perda, saidas[i], 1);
       }
+
+      atualizar(redec, otimizador, entradas.length, null);
+
+      return perdaLote / entradas.length;
    }
 
    /**
@@ -109,10 +520,11 @@ class TreinoLote{
     * @param redec Rede Neural em formato de lista de camadas.
     * @param taxaAprendizagem valor de taxa de aprendizagem da rede neural.
     * @param saidas array com as saídas esperadas das amostras.
+    * @param peso peso da amostra na soma dos gradientes.
     */
-   private void backpropagationLote(Camada[] redec, Perda perda, double[] saidas){
+   private void backpropagationLote(Camada[] redec, Perda perda, double[] saidas, double peso){
       aux.calcularGradientes(redec, perda, saidas);
-      calcularGradientesAcumulados(redec);
+      calcularGradientesAcumulados(redec, peso);
    }
 
    /**
@@ -135,16 +547,16 @@ class TreinoLote{
     * Método exclusivo para separar o cálculo dos gradientes em lote das conexões de cada
     * neurônio dentro da rede.
     * @param redec Rede Neural em formato de lista de camadas.
-    * @param taxaAprendizagem valor de taxa de aprendizagem da rede neural.
+    * @param peso peso da amostra na soma dos gradientes.
     */
-   private void calcularGradientesAcumulados(Camada[] redec){
+   private void calcularGradientesAcumulados(Camada[] redec, double peso){
       for(int i = 0; i < redec.length; i++){ 
          for(int j = 0; j < redec[i].quantidadeNeuronios(); j++){
             
             Neuronio neuronio = redec[i].neuronio(j);
             for(int k = 0; k < neuronio.pesos.length; k++){
                neuronio.gradientes[k] = -neuronio.gradiente * neuronio.entradas[k];
-               neuronio.gradientesAcumulados[k] += neuronio.gradientes[k];
+               neuronio.gradientesAcumulados[k] += peso * neuronio.gradientes[k];
             }
          }
       }
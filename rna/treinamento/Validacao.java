@@ -0,0 +1,240 @@
+package rna.treinamento;
+
+import rna.avaliacao.perda.Perda;
+import rna.estrutura.RedeNeural;
+
+/**
+ * Avaliação da perda de validação da rede neural numa thread separada.
+ * <p>
+ *    A cada intervalo de épocas os pesos da rede são copiados para um buffer, o
+ *    que é rápido e feito na thread de treino, e a avaliação do conjunto de validação
+ *    é feita numa thread própria com um clone da rede, enquanto o treino continua.
+ * </p>
+ * <p>
+ *    Caso uma nova cópia fique pronta antes da avaliação anterior terminar, apenas a
+ *    mais recente é avaliada, então a validação nunca atrasa o treino, mesmo com um
+ *    conjunto de validação grande.
+ * </p>
+ */
+class Validacao{
+
+   /**
+    * Rede neural em treino.
+    */
+   private RedeNeural rede;
+
+   /**
+    * Clone da rede usado na avaliação.
+    */
+   private RedeNeural clone;
+
+   /**
+    * Dados de entrada da validação.
+    */
+   private double[][] entradas;
+
+   /**
+    * Dados de saída da validação.
+    */
+   private double[][] saidas;
+
+   /**
+    * Quantidade de épocas entre as avaliações.
+    */
+   private int intervalo;
+
+   /**
+    * Ouvintes que recebem os resultados.
+    */
+   private Monitoramento monitoramento;
+
+   /**
+    * Perdas de validação calculadas, uma por avaliação.
+    */
+   HistoricoPerda historico = new HistoricoPerda();
+
+   /**
+    * Cópia dos pesos aguardando avaliação.
+    */
+   private double[] copia;
+
+   /**
+    * Época da cópia aguardando avaliação.
+    */
+   private long epocaPendente;
+
+   /**
+    * Indica se existe uma cópia aguardando avaliação.
+    */
+   private boolean pendente = false;
+
+   /**
+    * Indica se uma avaliação está em andamento.
+    */
+   private boolean avaliando = false;
+
+   /**
+    * Indica que a thread de avaliação deve ser finalizada.
+    */
+   private boolean encerrado = false;
+
+   /**
+    * Época da última avaliação concluída.
+    */
+   volatile long ultimaEpoca = -1;
+
+   /**
+    * Perda da última avaliação concluída.
+    */
+   volatile double ultimaPerda = Double.NaN;
+
+   /**
+    * Erro ocorrido na última avaliação, lançado novamente na thread de treino.
+    */
+   private volatile RuntimeException erro = null;
+
+   /**
+    * Thread responsável pelas avaliações.
+    */
+   private Thread avaliador = null;
+
+   /**
+    * Inicializa a validação da rede.
+    * @param rede rede neural em treino.
+    * @param entradas dados de entrada da validação.
+    * @param saidas dados de saída da validação.
+    * @param intervalo quantidade de épocas entre as avaliações.
+    * @param monitoramento ouvintes que recebem os resultados.
+    */
+   Validacao(RedeNeural rede, double[][] entradas, double[][] saidas, int intervalo, Monitoramento monitoramento){
+      this.rede = rede;
+      this.entradas = entradas;
+      this.saidas = saidas;
+      this.intervalo = intervalo;
+      this.monitoramento = monitoramento;
+      this.copia = new double[rede.obterQuantidadeParametros()];
+   }
+
+   /**
+    * Chamado pela thread de treino no final de cada época, copia os pesos da rede
+    * e avisa a thread de avaliação quando a época estiver no intervalo configurado.
+    * @param epoca quantidade total de épocas treinadas.
+    * @throws RuntimeException se ocorreu algum erro na avaliação anterior.
+    */
+   void fimEpoca(long epoca){
+      lancarErro();
+      if(epoca % intervalo != 0) return;
+
+      synchronized(this){
+         if(encerrado) return;
+
+         rede.obterParametros(copia);
+         epocaPendente = epoca;
+         pendente = true;
+
+         if(avaliador == null){
+            //criado no primeiro uso para refletir a configuração atual da rede
+            clone = rede.clone();
+            avaliador = new Thread(this::executar, "validacao");
+            avaliador.setDaemon(true);
+            avaliador.start();
+         }
+         notifyAll();
+      }
+   }
+
+   /**
+    * Laço da thread de avaliação.
+    */
+   private void executar(){
+      while(true){
+         long epoca;
+         synchronized(this){
+            while(!pendente && !encerrado){
+               try{
+                  wait();
+               }catch(InterruptedException e){
+                  return;
+               }
+            }
+            if(!pendente) return;
+
+            clone.configurarParametros(copia);
+            epoca = epocaPendente;
+            pendente = false;
+            avaliando = true;
+         }
+
+         try{
+            double perda = avaliar(clone, rede.obterPerda());
+            historico.adicionar(perda);
+            ultimaPerda = perda;
+            ultimaEpoca = epoca;
+
+            //os pesos do clone são os mesmos que foram avaliados
+            ParadaAntecipada p = monitoramento.parada;
+            if(p != null && p.validacao) p.registrar(epoca, perda, clone);
+
+            monitoramento.validacao(epoca, perda);
+         }catch(RuntimeException e){
+            //a thread continua viva para que as próximas cópias não fiquem sem avaliação
+            erro = e;
+         }finally{
+            synchronized(this){
+               avaliando = false;
+               notifyAll();
+            }
+         }
+      }
+   }
+
+   /**
+    * Calcula a perda média do clone sobre o conjunto de validação.
+    */
+   private double avaliar(RedeNeural clone, Perda perda){
+      double soma = 0;
+      for(int i = 0; i < entradas.length; i++){
+         clone.calcularSaida(entradas[i]);
+         soma += perda.calcular(clone.obterSaidas(), saidas[i]);
+      }
+
+      return soma / entradas.length;
+   }
+
+   /**
+    * Espera até que a avaliação da última cópia tenha terminado.
+    * @throws RuntimeException se ocorreu algum erro durante a avaliação.
+    */
+   synchronized void aguardar(){
+      while(pendente || avaliando){
+         try{
+            wait();
+         }catch(InterruptedException e){
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+         }
+      }
+
+      lancarErro();
+   }
+
+   /**
+    * Lança novamente o erro da última avaliação, caso exista.
+    */
+   private void lancarErro(){
+      RuntimeException e = erro;
+      if(e != null){
+         erro = null;
+         throw e;
+      }
+   }
+
+   /**
+    * Finaliza a thread de avaliação, descartando cópias ainda não avaliadas.
+    */
+   synchronized void encerrar(){
+      encerrado = true;
+      pendente = false;
+      notifyAll();
+   }
+}